@@ -84,8 +84,8 @@ public class Asteroids {
         hostServer.clearClients();
         System.out.println("Ip address:" + InetAddress.getLocalHost().toString());
 
-        // start its thread
-        new Thread(hostServer).start();
+        // start serving its channel
+        hostServer.start();
 
         // wait until all the opponents have connected
         new WaitingFrame(game, hostServer, minOpponents);
@@ -100,6 +100,7 @@ public class Asteroids {
         Color color = playerInfo.getPlayerColor();
         String ipAddress = playerInfo.getIpAddress();
         int port = playerInfo.getPlayerPort();
+        int room = playerInfo.getRoom();
 
         // No name, color, ipAddress or port number takes the user back to the Main Menu
         if (name == null || color == null || ipAddress == null || port == -1) {
@@ -112,9 +113,9 @@ public class Asteroids {
         // initialise game, the thread game will begin upon "start" request from host
         MultiPlayerGame game = new MultiPlayerGame(player, controller, false);
 
-        // initialise joiner's client and start its thread
-        JoinerClient js = new JoinerClient(game, player, new Address(port, InetAddress.getByName(ipAddress)));
-        new Thread(js).start();
+        // initialise joiner's client and start serving its channel
+        JoinerClient js = new JoinerClient(game, player, new Address(port, InetAddress.getByName(ipAddress)), room);
+        js.start();
         new AsteroidsFrame(game, controller);
     }
 
@@ -125,6 +126,7 @@ public class Asteroids {
 
         String ipAddress = playerInfo.getIpAddress();
         int port = playerInfo.getPlayerPort();
+        int room = playerInfo.getRoom();
 
         // No ipAddress or no port will take the player back to the Main Menu
         if (ipAddress == null || port == -1) {
@@ -133,9 +135,9 @@ public class Asteroids {
         }
 
         MultiPlayerGame game = new MultiPlayerGame();
-        SpectateClient sp = new SpectateClient(game, new Address(port, InetAddress.getByName(ipAddress)));
-        new Thread(sp).start();
-        new Thread(game).start();
+        SpectateClient sp = new SpectateClient(game, new Address(port, InetAddress.getByName(ipAddress)), room);
+        sp.start();
+        // no game thread : the spectate client updates the game from the received snapshots
         new AsteroidsFrame(game, null);
 
     }
@@ -0,0 +1,275 @@
+package aoop.asteroids;
+
+import aoop.asteroids.controller.net.HostServer;
+import aoop.asteroids.controller.net.Network;
+import aoop.asteroids.controller.net.Room;
+import aoop.asteroids.controller.net.RoomManager;
+import aoop.asteroids.controller.net.SnapshotBroadcaster;
+import aoop.asteroids.model.Database;
+import aoop.asteroids.model.Game;
+import aoop.asteroids.model.MultiPlayerGame;
+import aoop.asteroids.view.AsteroidsFrame;
+import aoop.asteroids.view.FrameWriter;
+import aoop.asteroids.view.OffscreenRenderer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dedicated server : hosts multi-player games without a local player and without any windows,
+ * so it can run on a machine without a display.
+ * <p>
+ * Settings are read from a properties file given by config=path, and can be overridden by
+ * key=value arguments on the command line. The known keys are
+ * port (default 8080), rooms (default 1), minPlayers (default 2), tickRate (default 25), worldSize (default 800),
+ * spectatorInterval (spectators get every n-th snapshot, default 2), mtu (largest packet in bytes, larger snapshots
+ * are sent in fragments, default 1200) and database (default ./Database.odb).
+ * <p>
+ * Rooms 0 to rooms - 1 are opened on the same port, and share one database and one pool of worker threads.
+ * The game of a room starts as soon as minPlayers players have joined it, once it is over the room is
+ * opened again for a new game. The server runs until it is stopped.
+ * <p>
+ * When capture=directory is set, the frames of every game are drawn offscreen and written to a directory of their own
+ * in it, see FrameWriter : captureRate frames per second (default 5), captureFormat png (default) or rgb.
+ */
+public class AsteroidsServer {
+
+    private final int port;
+    private final int roomCount;
+    private final int minPlayers;
+    private final int tickRate;
+    // width and height of the world of every game
+    private final int worldSize;
+    // spectators get every this many snapshots
+    private final int spectatorInterval;
+    // largest packet that is sent to the clients
+    private final int mtu;
+    private final String databasePath;
+    // where the frames of the games are written to, null for no capture
+    private final File captureDirectory;
+    private final int captureRate;
+    private final String captureFormat;
+    // amount of games started, to name the capture directories
+    private final AtomicInteger gameCount;
+    // rooms whose game is being played
+    private final Set<Integer> playing;
+    // released when the server is stopped
+    private final CountDownLatch stopped;
+    private HostServer hostServer;
+    private Database database;
+
+    /**
+     * Constructor : read the settings, throws IllegalArgumentException for invalid values
+     */
+    public AsteroidsServer(Properties settings) {
+        this.port = readInt(settings, "port", Network.DEFAULT_PORT);
+        this.roomCount = readInt(settings, "rooms", 1);
+        this.minPlayers = readInt(settings, "minPlayers", 2);
+        this.tickRate = readInt(settings, "tickRate", Game.BASE_TICK_RATE);
+        this.worldSize = readInt(settings, "worldSize", Game.DEFAULT_WORLD_SIZE);
+        this.spectatorInterval = readInt(settings, "spectatorInterval", Room.DEFAULT_SPECTATOR_INTERVAL);
+        this.mtu = readInt(settings, "mtu", SnapshotBroadcaster.DEFAULT_MTU);
+        this.databasePath = settings.getProperty("database", Database.DEFAULT_PATH);
+        String capture = settings.getProperty("capture");
+        this.captureDirectory = capture != null ? new File(capture) : null;
+        this.captureRate = readInt(settings, "captureRate", 5);
+        this.captureFormat = settings.getProperty("captureFormat", FrameWriter.PNG);
+
+        if (this.roomCount < 1) {
+            throw new IllegalArgumentException("rooms must be at least 1, got " + this.roomCount);
+        }
+        if (this.minPlayers < 2) {
+            throw new IllegalArgumentException("minPlayers must be at least 2, got " + this.minPlayers);
+        }
+        if (this.tickRate < 1) {
+            throw new IllegalArgumentException("tickRate must be at least 1, got " + this.tickRate);
+        }
+        if (this.worldSize < AsteroidsFrame.FRAME_WIDTH / 4) {
+            throw new IllegalArgumentException("worldSize must be at least " + AsteroidsFrame.FRAME_WIDTH / 4 + ", got " + this.worldSize);
+        }
+        if (this.spectatorInterval < 1) {
+            throw new IllegalArgumentException("spectatorInterval must be at least 1, got " + this.spectatorInterval);
+        }
+        if (this.mtu < SnapshotBroadcaster.MIN_MTU || this.mtu > SnapshotBroadcaster.MAX_MTU) {
+            throw new IllegalArgumentException("mtu must be between " + SnapshotBroadcaster.MIN_MTU + " and " + SnapshotBroadcaster.MAX_MTU + ", got " + this.mtu);
+        }
+        if (this.captureRate < 1) {
+            throw new IllegalArgumentException("captureRate must be at least 1, got " + this.captureRate);
+        }
+        if (!FrameWriter.PNG.equals(this.captureFormat) && !FrameWriter.RAW.equals(this.captureFormat)) {
+            throw new IllegalArgumentException("captureFormat must be " + FrameWriter.PNG + " or " + FrameWriter.RAW + ", got " + this.captureFormat);
+        }
+        this.gameCount = new AtomicInteger();
+        this.playing = ConcurrentHashMap.newKeySet();
+        this.stopped = new CountDownLatch(1);
+    }
+
+    /**
+     * main function : java -cp asteroids.jar aoop.asteroids.AsteroidsServer [config=file] [key=value ...]
+     */
+    public static void main(String[] args) {
+        // make sure nothing tries to open a window
+        System.setProperty("java.awt.headless", "true");
+
+        try {
+            AsteroidsServer server = new AsteroidsServer(readSettings(args));
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+            server.run();
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Could not start server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Open the rooms and start their games whenever enough players have joined, until the server is stopped
+     */
+    public void run() {
+        this.database = Database.open(this.databasePath);
+
+        // initialise host server and its rooms, start serving its channel
+        this.hostServer = HostServer.getHostServerInstance(this.port);
+        RoomManager rooms = this.hostServer.getRooms();
+        for (int id = 0; id < this.roomCount; id++) {
+            this.openRoom(rooms, id);
+        }
+        this.hostServer.start();
+        System.out.println("Server listening on port " + this.hostServer.getPortNumber() + " with " + this.roomCount + " rooms, waiting for " + this.minPlayers + " players per room.");
+
+        rooms.getWorkers().scheduleWithFixedDelay(() -> this.startFullRooms(rooms), 100, 100, TimeUnit.MILLISECONDS);
+
+        try {
+            this.stopped.await();
+        } catch (InterruptedException e) {
+            System.err.println("Server was interrupted.");
+            this.stop();
+        }
+    }
+
+    /**
+     * Stop all games, close the server and the database
+     */
+    public synchronized void stop() {
+        if (this.stopped.getCount() == 0) {
+            return;
+        }
+        if (this.hostServer != null) {
+            this.hostServer.close();
+        }
+        if (this.database != null) {
+            this.database.closeDatabaseConnection();
+            System.out.println("Scores: " + this.database.getScoreWriter());
+        }
+        this.stopped.countDown();
+    }
+
+    /**
+     * Open the room with the given id for a new game
+     */
+    private void openRoom(RoomManager rooms, int id) {
+        MultiPlayerGame game = new MultiPlayerGame(this.database);
+        game.setTickRate(this.tickRate);
+        game.setWorldSize(this.worldSize, this.worldSize);
+        Room room = rooms.openRoom(id, game);
+        room.setSpectatorInterval(this.spectatorInterval);
+        room.setMtu(this.mtu);
+    }
+
+    /**
+     * Start the game of every room that has enough players : it is stepped on the worker pool,
+     * and the room is opened again once the game is over
+     */
+    private void startFullRooms(RoomManager rooms) {
+        try {
+            for (Room room : rooms.getRooms()) {
+                int id = room.getId();
+                if (room.getNumberOfClients() < this.minPlayers || !this.playing.add(id)) {
+                    continue;
+                }
+                room.getGame().setShouldEnd();
+                FrameWriter capture = this.startCapture(room);
+                rooms.play(room, () -> {
+                    System.out.println("Game over in room " + id + ".");
+                    if (capture != null) {
+                        capture.stop();
+                        // the frame that is being written is still counted
+                        try {
+                            capture.join();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        System.out.println("Captured " + capture.getFrameCount() + " frames of room " + id + ", " + capture.getAverageRenderTime() / 1000 + " us per frame.");
+                    }
+                    this.openRoom(rooms, id);
+                    this.playing.remove(id);
+                });
+                room.sendStart();
+                System.out.println("Game started in room " + id + " with " + room.getNumberOfClients() + " players.");
+            }
+        } catch (RuntimeException e) {
+            // an exception would cancel the periodic task
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Start writing the frames of the game of the given room, returns null when there is no capture
+     */
+    private FrameWriter startCapture(Room room) {
+        if (this.captureDirectory == null) {
+            return null;
+        }
+        File directory = new File(this.captureDirectory, "room-" + room.getId() + "-game-" + this.gameCount.incrementAndGet());
+        OffscreenRenderer renderer = new OffscreenRenderer(room.getGame(), AsteroidsFrame.FRAME_WIDTH, AsteroidsFrame.FRAME_HEIGHT);
+        FrameWriter writer = new FrameWriter(renderer, directory, this.captureFormat, this.captureRate, 0);
+        writer.start();
+        return writer;
+    }
+
+    /**
+     * Read the settings from the config file (if any) and the command line arguments
+     */
+    private static Properties readSettings(String[] args) throws IOException {
+        Properties arguments = new Properties();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (split <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            // allow --port=8080 as well as port=8080
+            String key = arg.substring(0, split).replaceFirst("^--", "");
+            arguments.setProperty(key, arg.substring(split + 1));
+        }
+
+        Properties settings = new Properties();
+        String config = arguments.getProperty("config");
+        if (config != null) {
+            try (InputStream input = new FileInputStream(config)) {
+                settings.load(input);
+            }
+        }
+        settings.putAll(arguments);
+        return settings;
+    }
+
+    private static int readInt(Properties settings, String key, int defaultValue) {
+        String value = settings.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a number, got " + value);
+        }
+    }
+
+}
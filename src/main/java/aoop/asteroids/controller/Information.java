@@ -13,6 +13,7 @@ public class Information extends JFrame {
     private JColorChooser color;
     private JTextField port;
     private JTextField ipAddress;
+    private JTextField room;
     private JTextField numberOpponents;
 
     /**
@@ -69,8 +70,9 @@ public class Information extends JFrame {
         this.name = new JTextField();
         this.ipAddress = new JTextField();
         this.port = new JTextField();
+        this.room = new JTextField("0");
         this.color = new JColorChooser();
-        Object[] components = {"Your name:", this.name, "Host ip address:", this.ipAddress, "Host port number:", this.port, "Choose a spaceship color that suits you :", this.color};
+        Object[] components = {"Your name:", this.name, "Host ip address:", this.ipAddress, "Host port number:", this.port, "Room:", this.room, "Choose a spaceship color that suits you :", this.color};
         int confirm = JOptionPane.showConfirmDialog(null, components, message, JOptionPane.OK_CANCEL_OPTION);
         if (this.closeOperation(confirm)) {
             this.name.setText("");
@@ -84,7 +86,8 @@ public class Information extends JFrame {
     private void spectateOptions(String message) {
         this.ipAddress = new JTextField();
         this.port = new JTextField();
-        Object[] components = {"Host ip address:", this.ipAddress, "Host port number:", this.port};
+        this.room = new JTextField("0");
+        Object[] components = {"Host ip address:", this.ipAddress, "Host port number:", this.port, "Room:", this.room};
         int confirm = JOptionPane.showConfirmDialog(null, components, message, JOptionPane.OK_CANCEL_OPTION);
         if (this.closeOperation(confirm)) {
             this.ipAddress.setText("");
@@ -117,6 +120,16 @@ public class Information extends JFrame {
         return Integer.parseInt(this.port.getText());
     }
 
+    /**
+     * Returns the room to join or spectate, the room of a game hosted from the menu when left empty
+     */
+    public int getRoom() {
+        if (this.room.getText().trim().isEmpty()) {
+            return 0;
+        }
+        return Integer.parseInt(this.room.getText().trim());
+    }
+
     public String getIpAddress() {
         if (this.ipAddress.getText().isEmpty()) {
             return null;
@@ -15,6 +15,14 @@ public class PlayerActions implements KeyListener, Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Bit flags of the actions, see getActionFlags()
+     */
+    public static final int UP = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 4;
+    public static final int FIRE = 8;
+
     // current action of the ship
     private Boolean isFiring;
     private Boolean up;
@@ -97,10 +105,17 @@ public class PlayerActions implements KeyListener, Serializable {
     }
 
     /**
-     * Returns a string of ship current actions : used for serialize
+     * Returns the current actions of the ship as bit flags : used to send them to the host
+     */
+    public int getActionFlags() {
+        return (this.up ? UP : 0) | (this.left ? LEFT : 0) | (this.right ? RIGHT : 0) | (this.isFiring ? FIRE : 0);
+    }
+
+    /**
+     * Returns the id number of the controlled ship
      */
-    public String getActions() {
-        return "actions-" + this.ship.getIdNumber() + "-" + Boolean.toString(this.up) + "-" + Boolean.toString(this.left) + "-" + Boolean.toString(this.right) + "-" + Boolean.toString(this.isFiring) + "-";
+    public int getShipIdNumber() {
+        return this.ship.getIdNumber();
     }
 
     /**
@@ -2,6 +2,8 @@ package aoop.asteroids.controller.net;
 
 import java.io.Serializable;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Objects;
 
 public class Address implements Serializable {
 
@@ -12,6 +14,8 @@ public class Address implements Serializable {
      */
     private int portNumber;
     private InetAddress ipAddress;
+    // both as a socket address, created when first needed
+    private transient InetSocketAddress socketAddress;
 
     /**
      * Constructor : assign fields
@@ -21,6 +25,14 @@ public class Address implements Serializable {
         this.ipAddress = ipAddress;
     }
 
+    /**
+     * Constructor : the address a message was received from
+     */
+    public Address(InetSocketAddress socketAddress) {
+        this(socketAddress.getPort(), socketAddress.getAddress());
+        this.socketAddress = socketAddress;
+    }
+
     /**
      * Getters
      */
@@ -32,4 +44,28 @@ public class Address implements Serializable {
         return this.ipAddress;
     }
 
+    public InetSocketAddress getSocketAddress() {
+        if (this.socketAddress == null) {
+            this.socketAddress = new InetSocketAddress(this.ipAddress, this.portNumber);
+        }
+        return this.socketAddress;
+    }
+
+    /**
+     * Two addresses are equal when they have the same port number and ip address
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Address)) {
+            return false;
+        }
+        Address other = (Address) o;
+        return this.portNumber == other.portNumber && Objects.equals(this.ipAddress, other.ipAddress);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.portNumber + Objects.hashCode(this.ipAddress);
+    }
+
 }
@@ -1,207 +1,165 @@
 package aoop.asteroids.controller.net;
 
 import aoop.asteroids.model.MultiPlayerGame;
-import aoop.asteroids.model.Player;
-import aoop.asteroids.model.Spaceship;
 
 import java.io.IOException;
 import java.net.*;
-import java.util.*;
+import java.nio.ByteBuffer;
 
 /**
  * This class implements the singleton pattern, it is only instantiated once
- * because it binds its corresponding DatagramSocket to the local ip address and a specific port number
- * It will receive information from its clients and update the local game accordingly
- * Whenever the local game is updated, it will be sent to all clients in order for them to update their local games
+ * because it binds its corresponding DatagramChannel to the local ip address and a specific port number
+ * It will receive information from its clients (on the network loop thread) and route it to their room by the room id it carries
+ * Every room holds one multi-player game and sends it to its clients whenever it is updated, see Room and RoomManager
+ * <p>
+ * A game hosted from the menu is played in the default room, the single game methods below act on that room.
  */
-public class HostServer extends Network implements Observer {
+public class HostServer extends Network {
 
-    // create an unique object of HostServer
-    private static HostServer uniqueInstance = new HostServer();
+    // the unique object of HostServer, created when it is first requested
+    private static HostServer uniqueInstance;
 
-    private MultiPlayerGame gameModel;
-    private ArrayList<Address> clientsAddress;
-    private DatagramPacket incomingPacket;
-    private byte[] receivedData;
-    private int numberOfSpectators;
+    // the rooms, all served on this channel
+    private RoomManager rooms;
+    // holds true once the channel is served, a second hosted game reuses it
+    private boolean isStarted;
 
     /**
      * Private constructor : this class cannot be instantiated
      */
-    private HostServer() {
-        super();
-        this.clientsAddress = new ArrayList<>();
-        numberOfSpectators = 0;
+    private HostServer(int portNumber) {
+        super(portNumber);
+        this.rooms = new RoomManager(this, Runtime.getRuntime().availableProcessors());
     }
 
     /**
-     * Thread loop : tries to receive data from clients and choose further action
+     * Start serving the channel
      */
-    public void run() {
-
-        String receivedMessage;
-
-        while (this.isRunning) {
-
-            this.receivedData = new byte[4096];
-            this.incomingPacket = new DatagramPacket(receivedData, receivedData.length);
-
-            // get message, choose further action
-            receivedMessage = new String(this.receive(this.incomingPacket));
-
-            if (receivedMessage.trim().toLowerCase().contains("stop")) {
-                this.disconnectJoiner();
-            } else if (receivedMessage.trim().toLowerCase().equals("spectate")) {
-                this.spectate();
-            } else if (receivedMessage.startsWith("actions")) {
-                this.updateActions();
-            } else if (receivedMessage.contains("aoop.asteroids.model.Player")) {
-                this.updatePlayer();
-            } else if (receivedMessage.trim().toLowerCase().equals("disconnect")) {
-                this.disconnect();
-            }
-
+    @Override
+    public synchronized void start() {
+        if (this.isStarted) {
+            return;
         }
+        this.isStarted = true;
+        super.start();
     }
 
     /**
-     * Received spectate message, add a new client
-     */
-    private void spectate() {
-        this.clientsAddress.add(new Address(this.incomingPacket.getPort(), this.incomingPacket.getAddress()));
-        this.numberOfSpectators++;
-    }
-
-    /**
-     * Received a new player, update the model by adding the player
-     * the model will be updated, so it will be sent to all clients (see constructor)
-     */
-    private void updatePlayer() {
-        // this can be interpreted as a "join" request : add the client to the list
-        this.clientsAddress.add(new Address(this.incomingPacket.getPort(), this.incomingPacket.getAddress()));
-        // retrieve player
-        Player player = (Player) deserialize(this.receivedData);
-        // add the player to the model : will also add his ship
-        this.gameModel.addPlayer(player);
-    }
-
-    /**
-     * Received an update for the actions of one ship
-     * retrieve the ship and link it to a corresponding one in the game model and update its actions
+     * Received a message from a client, pass it on to its room
+     * messages for rooms that are not open are dropped
      */
-    private void updateActions() {
-        String[] parts = splitMessage();
-        // retrieve the id number of the spaceship
-        int idNumber = Integer.parseInt(parts[1]);
-        Spaceship s = this.gameModel.getSpaceShip(idNumber);
-        // update spaceship's actions
-        s.setActions(Boolean.valueOf(parts[2]), Boolean.valueOf(parts[3]), Boolean.valueOf(parts[4]), Boolean.valueOf(parts[5]));
+    @Override
+    protected void handle(ByteBuffer message, SocketAddress sender) {
+        byte type = Message.typeOf(message);
+        Room room = this.rooms.getRoom(Message.getRoomId(message));
+        if (room != null) {
+            room.handle(type, message, sender);
+        }
     }
 
     /**
-     * Received disconnect message, remove the disconnected address from the clients list
+     * Retransmit the control messages of all rooms
      */
-    private void disconnect() {
-        ArrayList<Address> clientsRest = new ArrayList<>();
-        for (Address a : this.clientsAddress) {
-            if (a.getPortNumber() != incomingPacket.getPort() || !a.getIpAddress().toString().equals(this.incomingPacket.getAddress().toString())) {
-                clientsRest.add(a);
-            }
+    @Override
+    void pollControl(long now) {
+        for (Room room : this.rooms.getRooms()) {
+            room.pollControl(now);
         }
-        this.clientsAddress = clientsRest;
     }
 
     /**
-     * Remove the disconnected address from the clients list
-     * Also remove the player from the current game
+     * Send the remaining content of the buffer to the given client
+     * the position of the buffer is left unchanged, so the same content can be sent to several clients
      */
-    private void disconnectJoiner() {
-        this.disconnect();
-        String[] parts = splitMessage();
-        this.gameModel.getSpaceShip(Integer.parseInt(parts[1])).destroy();
+    public void send(ByteBuffer data, Address address) {
+        int position = data.position();
+        try {
+            this.channel.send(data, address.getSocketAddress());
+        } catch (IOException e) {
+            System.err.println("Outgoing packet was not sent: " + e.getMessage());
+        }
+        data.position(position);
     }
 
     /**
-     * This method overloads the super class method for sending
+     * Method to get the only object available, bound to the default port number
      */
-    public void send(byte[] data, Address address) {
-        try {
-            socket.send(new DatagramPacket(data, data.length, address.getIpAddress(), address.getPortNumber()));
-        } catch (IOException e) {
-            System.err.println("Outgoing packet was not sent.");
-            e.printStackTrace();
-        }
+    public static HostServer getHostServerInstance() {
+        return getHostServerInstance(DEFAULT_PORT);
     }
 
     /**
-     * Whenever the model changes, update all clients by sending the updated model
+     * Method to get the only object available, bound to the given port number
+     * the socket can only be bound once : asking for another port afterwards is an error
      */
-    public void update(Observable o, Object arg) {
-        try {
-            if (this.hasClients()) {
-                for (Address address : this.clientsAddress) {
-                    byte[] outgoingData = serialize(this.gameModel);
-                    this.send(outgoingData, address);
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Server couldn't send updated data.");
-            e.printStackTrace();
+    public static synchronized HostServer getHostServerInstance(int portNumber) {
+        if (uniqueInstance == null) {
+            uniqueInstance = new HostServer(portNumber);
+        } else if (uniqueInstance.getPortNumber() != portNumber) {
+            throw new IllegalStateException("Host server is already bound to port " + uniqueInstance.getPortNumber());
         }
+        return uniqueInstance;
     }
 
     /**
-     * Method that returns a String array
+     * Add the game model to the default room
      */
-    public String[] splitMessage() {
-        String message = new String(this.receivedData);
-        return message.split("-");
+    public void initialiseComponents(MultiPlayerGame game) {
+        this.rooms.openRoom(RoomManager.DEFAULT_ROOM, game);
     }
 
-
     /**
-     * Method to get the only object available
+     * Clear the clients list of the default room
      */
-    public static HostServer getHostServerInstance() {
-        return uniqueInstance;
+    public void clearClients() {
+        Room room = this.getDefaultRoom();
+        if (room != null) {
+            room.clearClients();
+        }
     }
 
     /**
-     * Add the game model, add this as its observer
+     * Tell all clients of the default room that the game starts
      */
-    public void initialiseComponents(MultiPlayerGame game) {
-        this.gameModel = game;
-        this.gameModel.addObserver(this);
+    public void sendStart() {
+        Room room = this.getDefaultRoom();
+        if (room != null) {
+            room.sendStart();
+        }
     }
 
     /**
-     * Clear the clients list
+     * Close all rooms, stop serving the channel and close it
      */
-    public void clearClients() {
-        Collection<Address> c = new ArrayList<>();
-        for (Address a : this.clientsAddress) {
-            c.add(a);
-        }
-        this.clientsAddress.removeAll(c);
+    @Override
+    public void close() {
+        this.rooms.shutdown();
+        super.close();
     }
 
     /**
-     * Checks if there are clients connected to this server
+     * Checks if there are clients connected to the default room
      */
     public Boolean hasClients() {
-        return (this.clientsAddress.size() > 0);
+        Room room = this.getDefaultRoom();
+        return room != null && room.hasClients();
     }
 
     /**
      * Getters
      */
 
-    public ArrayList<Address> getClientsAddress() {
-        return this.clientsAddress;
+    public RoomManager getRooms() {
+        return this.rooms;
+    }
+
+    private Room getDefaultRoom() {
+        return this.rooms.getRoom(RoomManager.DEFAULT_ROOM);
     }
 
     public int getNumberOfClients() {
-        return this.clientsAddress.size() - this.numberOfSpectators;
+        Room room = this.getDefaultRoom();
+        return room != null ? room.getNumberOfClients() : 0;
     }
 
     public InetAddress getIpAddress() {
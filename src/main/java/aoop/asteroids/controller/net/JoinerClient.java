@@ -1,17 +1,22 @@
 package aoop.asteroids.controller.net;
 
 
+import aoop.asteroids.model.InputHistory;
 import aoop.asteroids.model.MultiPlayerGame;
 import aoop.asteroids.model.Player;
 
-import java.net.DatagramPacket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 
 /**
  * This class deals with a joiner's networking part
  * It will first send the local player for it to be added to the host's model
- * Whenever the local player's actions change they will be sent to the host server
- * When the player disconnects, a "disconnect" request will be sent to the host server
- * When it receives a "start" request, it will start the local's game thread
+ * Every input of the local player is sent to the host server with its sequence number (see InputHistory),
+ * together with the inputs before it : a lost message does not lose an input
+ * The join, "start" and "leave" messages are sent on the control channel, so they arrive even when packets are lost
+ * When the player disconnects, a "leave" message will be sent to the host server
+ * When it receives a "start" message, it will start the local's game thread
+ * When it receives a "reject" message, the game is running already : the game shows it, and the channel is closed
  * When it receives an updated model, it will update the local game model
  */
 public class JoinerClient extends Network {
@@ -19,57 +24,84 @@ public class JoinerClient extends Network {
     // its player
     private Player player;
     private MultiPlayerGame game;
-    private String spaceshipActions;
+    // sequence number of the last sent input
+    private int sentSequence;
 
     /**
      * Constructor: initialize components
      */
     public JoinerClient(MultiPlayerGame game, Player player, Address hostAddress) {
-        super(hostAddress);
+        this(game, player, hostAddress, RoomManager.DEFAULT_ROOM);
+    }
+
+    /**
+     * Constructor: initialize components, join the given room of the host
+     */
+    public JoinerClient(MultiPlayerGame game, Player player, Address hostAddress, int roomId) {
+        super(hostAddress, roomId);
         this.game = game;
         this.player = player;
-        this.spaceshipActions = "";
     }
 
     /**
-     * Thread loop : sends and receives packages/ messages
+     * Sends the player to the host server : interpreted as the "join request"
      */
-    public void run() {
-        //sends the player to the host server : interpreted as the "join request"
-        super.send(serialize(this.player));
-
-        while (this.isRunning) {
-
-            byte[] incomingData = new byte[4096];
-            DatagramPacket incomingPacket = new DatagramPacket(incomingData, incomingData.length);
-
-            String receivedMessage = new String(this.receive(incomingPacket));
+    @Override
+    protected void onStart() {
+        ByteBuffer join = this.getSendBuffer();
+        Message.putJoin(join, this.roomId, this.player);
+        join.flip();
+        this.sendControl(join);
+    }
 
-            // receives an updated game, calls super method to update the local game model
-            if (receivedMessage.contains("aoop.asteroids.model.MultiPlayerGame")) {
-                super.updateGame(incomingPacket.getData(), this.game);
-            }
+    /**
+     * Received a message from the host server
+     */
+    @Override
+    protected void handle(ByteBuffer message, SocketAddress sender) {
+        switch (Message.typeOf(message)) {
+            case Message.SNAPSHOT:
+                // receives an updated game, calls super method to update the local game model
+                super.updateGame(message, this.game);
+                break;
+            case Message.START:
+                // receives start request from server, starts the thread of the game
+                new Thread(this.game).start();
+                break;
+            case Message.REJECT:
+                // the game of the host is running already : it will not start
+                this.game.reject();
+                break;
+        }
+    }
 
-            // receives start request from server, starts the thread of the game
-            if (receivedMessage.contains("start")) {
-                new Thread(game).start();
-            }
+    /**
+     * Sends the last inputs once the input of a step is recorded (every tick), disconnects when the player quits
+     */
+    @Override
+    protected void poll() {
+        // rejected : the rejection was acknowledged when it was received, the host expects no "leave"
+        if (this.game.isRejected()) {
+            this.close();
+            return;
+        }
 
-            // sends the performed actions for every other client to update them locally
-            String newActions = this.game.getController().getActions();
-            if (!this.spaceshipActions.equals(newActions)) {
-                byte[] outgoingActions = (this.game.getController().getActions().getBytes());
-                super.send(outgoingActions);
-                // set this as the last actions
-                this.spaceshipActions = newActions;
-            }
+        InputHistory inputs = this.game.getInputs();
+        int newest = inputs.getNewest();
+        if (newest != this.sentSequence) {
+            ByteBuffer actions = this.getSendBuffer();
+            Message.putActions(actions, this.roomId, this.game.getController().getShipIdNumber(), inputs);
+            actions.flip();
+            this.send(actions);
+            this.sentSequence = newest;
+        }
 
-            // disconnect, stop the thread and close the socket
-            if (!this.game.getIsConnected()) {
-                super.send(("stop" + "-" + this.game.getLocalPlayer().getIdNumber() + "-").getBytes());
-                this.isRunning = false;
-                this.socket.close();
-            }
+        // disconnect, the channel is closed once the host got the "leave" message
+        if (!this.game.getIsConnected() && !this.isClosing()) {
+            ByteBuffer leave = this.getSendBuffer();
+            Message.putLeave(leave, this.roomId, this.game.getLocalPlayer().getIdNumber());
+            leave.flip();
+            this.sendAndClose(leave);
         }
     }
-}
\ No newline at end of file
+}
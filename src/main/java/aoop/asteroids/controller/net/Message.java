@@ -0,0 +1,288 @@
+package aoop.asteroids.controller.net;
+
+import aoop.asteroids.controller.PlayerActions;
+import aoop.asteroids.model.InputHistory;
+import aoop.asteroids.model.Player;
+import aoop.asteroids.model.SnapshotCodec;
+
+import java.awt.Color;
+import java.nio.ByteBuffer;
+
+/**
+ * The messages exchanged between the host server and its clients.
+ * Every message starts with a byte telling its type, so a received message is dispatched on that byte
+ * and read straight from the receive buffer.
+ * Messages sent to the host carry the id of the room they are meant for right after their type, see RoomManager.
+ * Join, spectate, start, leave and disconnect messages are sent on a reliable control channel (see ReliableChannel) :
+ * wrapped in a CONTROL message, whose header carries the room id in both directions.
+ * Ids and lengths are written as variable length integers, see SnapshotCodec.
+ */
+public final class Message {
+
+    /**
+     * host to client : the state of the game, see SnapshotCodec
+     */
+    public static final byte SNAPSHOT = SnapshotCodec.SNAPSHOT;
+
+    /**
+     * client to host : sequence number of a received snapshot, the next snapshots can be deltas against it
+     */
+    public static final byte ACK = 3;
+
+    /**
+     * client to host : id number, color and name of the player that joins
+     */
+    public static final byte JOIN = 4;
+
+    /**
+     * client to host : start sending snapshots to this address
+     */
+    public static final byte SPECTATE = 5;
+
+    /**
+     * host to client : the game starts
+     */
+    public static final byte START = 6;
+
+    /**
+     * client to host : id number of the ship, the sequence number of its newest input, and its last inputs
+     * as 4 bit action flags (see PlayerActions), newest first, two per byte
+     * every input is sent in INPUT_REDUNDANCY messages, so it still arrives when some of them are lost
+     */
+    public static final byte ACTIONS = 7;
+
+    /**
+     * client to host : id number of the player that leaves the game
+     */
+    public static final byte LEAVE = 8;
+
+    /**
+     * client to host : stop sending snapshots to this address
+     */
+    public static final byte DISCONNECT = 9;
+
+    /**
+     * both ways : room id and sequence number of a control message, followed by the message itself, see ReliableChannel
+     */
+    public static final byte CONTROL = 10;
+
+    /**
+     * both ways : room id and sequence number of the last control message that was delivered in order
+     */
+    public static final byte CONTROL_ACK = 11;
+
+    /**
+     * host to client : a part of a snapshot that does not fit in one packet (see SnapshotBroadcaster.setMtu(...)) :
+     * the sequence number of the snapshot, its length, the amount of fragments and the index of this one, followed
+     * by its bytes. Every fragment but the last one holds getFragmentSize(...) bytes, see SnapshotReassembler
+     */
+    public static final byte FRAGMENT = 12;
+
+    /**
+     * host to client : the join was rejected because the game is running already, sent on the control channel
+     */
+    public static final byte REJECT = 13;
+
+    /**
+     * Largest snapshot that can be sent, in bytes
+     */
+    public static final int MAX_SNAPSHOT_SIZE = 1 << 18;
+
+    /**
+     * Largest header of a fragment, in bytes
+     */
+    public static final int MAX_FRAGMENT_HEADER_SIZE = 21;
+
+    /**
+     * Amount of inputs in an actions message
+     */
+    public static final int INPUT_REDUNDANCY = 8;
+
+    /**
+     * Utility class : cannot be instantiated
+     */
+    private Message() {
+    }
+
+    /**
+     * Returns the type of the message at the current position of the buffer, without moving the position
+     */
+    public static byte typeOf(ByteBuffer message) {
+        return message.get(message.position());
+    }
+
+    /**
+     * Writes a message that only consists of its type : host to client
+     */
+    public static void putEmpty(ByteBuffer out, byte type) {
+        out.put(type);
+    }
+
+    /**
+     * Writes the type and the room id of a message to the host, the content follows
+     */
+    public static void putHeader(ByteBuffer out, byte type, int roomId) {
+        out.put(type);
+        SnapshotCodec.putVarInt(out, roomId);
+    }
+
+    /**
+     * Reads the type and the room id of a message to the host, returns the room id
+     * the buffer is left at the content of the message
+     */
+    public static int getRoomId(ByteBuffer in) {
+        in.get();
+        return SnapshotCodec.getVarInt(in);
+    }
+
+    public static void putJoin(ByteBuffer out, int roomId, Player player) {
+        putHeader(out, JOIN, roomId);
+        SnapshotCodec.putVarInt(out, player.getIdNumber());
+        out.putInt(player.getColor().getRGB());
+        SnapshotCodec.putString(out, player.getName());
+    }
+
+    /**
+     * Reads the content of a join message, returns the player that joins
+     */
+    public static Player getJoin(ByteBuffer in) {
+        int idNumber = SnapshotCodec.getVarInt(in);
+        Color color = new Color(in.getInt(), true);
+        Player player = new Player(SnapshotCodec.getString(in), color);
+        player.setIdNumber(idNumber);
+        return player;
+    }
+
+    /**
+     * Writes the newest inputs of the history, at most INPUT_REDUNDANCY
+     */
+    public static void putActions(ByteBuffer out, int roomId, int shipIdNumber, InputHistory inputs) {
+        putHeader(out, ACTIONS, roomId);
+        int newest = inputs.getNewest();
+        int count = Math.min(INPUT_REDUNDANCY, newest - inputs.getOldest() + 1);
+        SnapshotCodec.putVarInt(out, shipIdNumber);
+        SnapshotCodec.putVarInt(out, newest);
+        out.put((byte) count);
+        for (int i = 0; i < count; i += 2) {
+            int low = inputs.getFlags(newest - i) & 0xF;
+            int high = i + 1 < count ? inputs.getFlags(newest - i - 1) & 0xF : 0;
+            out.put((byte) (low | high << 4));
+        }
+    }
+
+    /**
+     * Reads the id number of the ship of an actions message, followed by getActionSequence(...) and getActionCount(...)
+     */
+    public static int getActionsIdNumber(ByteBuffer in) {
+        return SnapshotCodec.getVarInt(in);
+    }
+
+    /**
+     * Reads the sequence number of the newest input, see InputHistory
+     */
+    public static int getActionSequence(ByteBuffer in) {
+        return SnapshotCodec.getVarInt(in);
+    }
+
+    /**
+     * Reads the amount of inputs, the buffer is left at the first one, see getActionFlags(...)
+     */
+    public static int getActionCount(ByteBuffer in) {
+        return Math.min(INPUT_REDUNDANCY, in.get() & 0xFF);
+    }
+
+    /**
+     * Returns the action flags of the input i steps before the newest one, without moving the position
+     */
+    public static int getActionFlags(ByteBuffer in, int i) {
+        int packed = in.get(in.position() + i / 2);
+        return (i % 2 == 0 ? packed : packed >> 4) & (PlayerActions.UP | PlayerActions.LEFT | PlayerActions.RIGHT | PlayerActions.FIRE);
+    }
+
+    public static void putLeave(ByteBuffer out, int roomId, int idNumber) {
+        putHeader(out, LEAVE, roomId);
+        SnapshotCodec.putVarInt(out, idNumber);
+    }
+
+    /**
+     * Reads the content of a leave message, returns the id number of the player that leaves
+     */
+    public static int getLeave(ByteBuffer in) {
+        return SnapshotCodec.getVarInt(in);
+    }
+
+    /**
+     * Writes the header of a control message, the message itself follows
+     */
+    public static void putControl(ByteBuffer out, int roomId, int sequence) {
+        putHeader(out, CONTROL, roomId);
+        SnapshotCodec.putVarInt(out, sequence);
+    }
+
+    /**
+     * Reads the sequence number of a control message, the buffer is left at the message itself
+     */
+    public static int getControlSequence(ByteBuffer in) {
+        return SnapshotCodec.getVarInt(in);
+    }
+
+    public static void putControlAck(ByteBuffer out, int roomId, int sequence) {
+        putHeader(out, CONTROL_ACK, roomId);
+        SnapshotCodec.putVarInt(out, sequence);
+    }
+
+    /**
+     * Reads the content of a control acknowledgement, returns the sequence number of the last delivered message
+     */
+    public static int getControlAck(ByteBuffer in) {
+        return SnapshotCodec.getVarInt(in);
+    }
+
+    public static void putFragment(ByteBuffer out, int sequence, int length, int count, int index) {
+        out.put(FRAGMENT);
+        SnapshotCodec.putVarInt(out, sequence);
+        SnapshotCodec.putVarInt(out, length);
+        SnapshotCodec.putVarInt(out, count);
+        SnapshotCodec.putVarInt(out, index);
+    }
+
+    /**
+     * Reads the header of a fragment after its type : the sequence number of the snapshot, followed by
+     * getFragmentLength(...), getFragmentCount(...) and getFragmentIndex(...), the buffer is then left at its bytes
+     */
+    public static int getFragmentSequence(ByteBuffer in) {
+        return SnapshotCodec.getVarInt(in);
+    }
+
+    public static int getFragmentLength(ByteBuffer in) {
+        return SnapshotCodec.getVarInt(in);
+    }
+
+    public static int getFragmentCount(ByteBuffer in) {
+        return SnapshotCodec.getVarInt(in);
+    }
+
+    public static int getFragmentIndex(ByteBuffer in) {
+        return SnapshotCodec.getVarInt(in);
+    }
+
+    /**
+     * Returns the size of every fragment but the last one of a snapshot of the given length
+     */
+    public static int getFragmentSize(int length, int count) {
+        return (length + count - 1) / count;
+    }
+
+    public static void putAck(ByteBuffer out, int roomId, int sequence) {
+        putHeader(out, ACK, roomId);
+        SnapshotCodec.putVarInt(out, sequence);
+    }
+
+    /**
+     * Reads the content of an acknowledgement, returns the acknowledged sequence number
+     */
+    public static int getAck(ByteBuffer in) {
+        return SnapshotCodec.getVarInt(in);
+    }
+
+}
@@ -1,31 +1,79 @@
 package aoop.asteroids.controller.net;
 
 import aoop.asteroids.model.MultiPlayerGame;
+import aoop.asteroids.model.SnapshotCodec;
+import aoop.asteroids.model.SnapshotHistory;
+import aoop.asteroids.model.SnapshotState;
 
-import java.io.*;
+import java.io.IOException;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 
 /**
- * This is the abstract superclass for all servers, it contains the methods to serialize/ deserialize an object
- * Also, the methods for sending, receiving and update the game model
+ * This is the abstract superclass for all servers, it contains the methods for sending, receiving and update the game model
+ * Every server owns a non-blocking DatagramChannel that is served by the NetworkLoop : received messages are read into
+ * one reusable direct buffer and dispatched on their type byte, see Message
  */
-public abstract class Network implements Runnable {
+public abstract class Network {
+
+    /**
+     * Largest message that can be received
+     */
+    public static final int RECEIVE_BUFFER_SIZE = 65507;
 
     protected InetAddress ip;
-    protected DatagramSocket socket;
+    protected DatagramChannel channel;
     protected int port;
-    protected Boolean isRunning;
+    // the room on the host this client belongs to, see RoomManager
+    protected int roomId;
+    protected volatile boolean isRunning;
+    // reused for every received message, and for the messages sent from the loop thread
+    protected final ByteBuffer receiveBuffer;
+    protected final ByteBuffer sendBuffer;
+    // sequence number of the last applied snapshot, the snapshots received before : used by clients
+    private int lastSequence;
+    private boolean hasSnapshot;
+    private SnapshotHistory history;
+    // puts the snapshots together that the host sent in fragments
+    private SnapshotReassembler reassembler;
+
+    // the control channel to the host, null for the host server, and whether the client closes once it is idle
+    private ReliableChannel control;
+    private boolean isClosing;
+    private long closeDeadline;
+
+    /**
+     * Longest time a client waits for its last control message to be acknowledged before it closes, in milliseconds
+     */
+    public static final long CLOSE_TIMEOUT = 2000;
+
+    /**
+     * Port number the host server binds to by default.
+     */
+    public static final int DEFAULT_PORT = 8080;
 
     /**
      * Host server constructor
      */
     public Network() {
+        this(DEFAULT_PORT);
+    }
+
+    /**
+     * Host server constructor : bind to the given port number
+     */
+    public Network(int portNumber) {
+        this.receiveBuffer = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
+        this.sendBuffer = ByteBuffer.allocateDirect(1024);
         try {
-            // bind the host to the local host ip and 8080 port number
-            Address addr = new Address(8080, InetAddress.getLocalHost());
+            // bind the host to the local host ip and the given port number
+            Address addr = new Address(portNumber, InetAddress.getLocalHost());
             this.port = addr.getPortNumber();
             this.ip = addr.getIpAddress();
-            this.socket = new DatagramSocket(port);
+            this.channel = DatagramChannel.open();
+            this.channel.configureBlocking(false);
+            this.channel.bind(new InetSocketAddress(this.port));
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -33,92 +81,249 @@ public abstract class Network implements Runnable {
     }
 
     /**
-     * Join server/ Spectate server constructor
+     * Join server/ Spectate server constructor : only exchange messages with the host at the given address
      */
     public Network(Address address) {
+        this(address, RoomManager.DEFAULT_ROOM);
+    }
+
+    /**
+     * Join server/ Spectate server constructor : only exchange messages with the given room of the host at the given address
+     */
+    public Network(Address address, int roomId) {
+        this.receiveBuffer = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
+        this.sendBuffer = ByteBuffer.allocateDirect(1024);
         this.port = address.getPortNumber();
+        this.roomId = roomId;
         try {
             this.ip = address.getIpAddress();
-            this.socket = new DatagramSocket();
+            this.channel = DatagramChannel.open();
+            this.channel.configureBlocking(false);
+            this.channel.connect(address.getSocketAddress());
         } catch (Exception e) {
             e.printStackTrace();
         }
         isRunning = true;
+        this.history = new SnapshotHistory();
+        this.reassembler = new SnapshotReassembler();
+        this.control = new ReliableChannel(roomId, this::send);
     }
 
     /**
-     * Thread loop : implemented in subclasses
+     * Start serving the channel from the network loop
      */
-    public abstract void run();
+    public void start() {
+        NetworkLoop.getInstance().register(this);
+    }
 
     /**
-     * Method to send a DatagramPacket via a DatagramSocket
+     * Called on the loop thread once the channel is served : i.e. send the join request
      */
-    public void send(byte[] data) {
-        try {
-            socket.send(new DatagramPacket(data, data.length, ip, port));
-        } catch (IOException e) {
-            System.err.println("Outgoing packet was not sent.");
-            e.printStackTrace();
+    protected void onStart() {
+    }
+
+    /**
+     * Called on the loop thread for every received message, positioned at its type byte
+     * the buffer is only valid until the method returns
+     */
+    protected abstract void handle(ByteBuffer message, SocketAddress sender);
+
+    /**
+     * Called on the loop thread at least every NetworkLoop.POLL_INTERVAL milliseconds
+     */
+    protected void poll() {
+    }
+
+    /**
+     * Called on the loop thread after poll() : retransmit the control messages, and close once the last one
+     * was acknowledged when the client is closing, see sendAndClose(...)
+     */
+    void pollControl(long now) {
+        if (this.control == null || !this.isRunning) {
+            return;
+        }
+        this.control.poll(now);
+        if (this.isClosing && (this.control.isIdle() || now - this.closeDeadline >= 0)) {
+            this.close();
         }
     }
 
     /**
-     * Method to receive  a DatagramPacket via a DatagramSocket
+     * Read and handle all messages that are waiting in the channel
      */
-    public byte[] receive(DatagramPacket packet) {
-        try {
-            this.socket.receive(packet);
-        } catch (IOException e) {
-            e.printStackTrace();
+    void receiveAll() {
+        while (this.isRunning) {
+            SocketAddress sender;
+            this.receiveBuffer.clear();
+            try {
+                sender = this.channel.receive(this.receiveBuffer);
+            } catch (IOException e) {
+                // the channel is closed on purpose when the server stops, a client may also get
+                // "port unreachable" errors while the host is not listening yet
+                if (this.isRunning && this.channel.isOpen()) {
+                    System.err.println("Incoming packet was not received: " + e.getMessage());
+                }
+                return;
+            }
+            if (sender == null) {
+                return;
+            }
+            this.receiveBuffer.flip();
+            if (!this.receiveBuffer.hasRemaining()) {
+                continue;
+            }
+            try {
+                this.dispatch(this.receiveBuffer, sender);
+            } catch (RuntimeException e) {
+                System.err.println("Received message of type " + this.receiveBuffer.get(0) + " could not be handled.");
+            }
+        }
+    }
+
+    /**
+     * Handle a received message : control messages and their acknowledgements go to the control channel,
+     * which passes the delivered messages on to handle(...) in order, and fragments to the reassembler,
+     * which passes on the snapshot once it is complete
+     */
+    private void dispatch(ByteBuffer message, SocketAddress sender) {
+        byte type = Message.typeOf(message);
+        if (this.reassembler != null && type == Message.FRAGMENT) {
+            ByteBuffer snapshot = this.reassembler.add(message);
+            if (snapshot != null) {
+                this.handle(snapshot, sender);
+            }
+            return;
+        }
+        if (this.control == null || (type != Message.CONTROL && type != Message.CONTROL_ACK)) {
+            this.handle(message, sender);
+            return;
+        }
+        if (Message.getRoomId(message) != this.roomId) {
+            return;
+        }
+        if (type == Message.CONTROL) {
+            this.control.receive(message, delivered -> this.handle(delivered, sender));
+        } else {
+            this.control.acknowledge(message);
         }
-        return packet.getData();
     }
 
     /**
-     * Method to deserialize a received packet : passed as an array of bytes
-     * returns the created object
+     * Send the remaining content of the buffer to the host on the control channel : it is sent again until
+     * the host acknowledges it, and the host handles it once and in order. Clients only
      */
-    public static Object deserialize(byte[] bytes) {
-        ByteArrayInputStream input = new ByteArrayInputStream(bytes);
-        Object object = null;
+    protected void sendControl(ByteBuffer message) {
+        this.control.send(message);
+    }
 
-        try {
-            ObjectInputStream ois = new ObjectInputStream(input);
-            object = ois.readObject();
-        } catch (Exception e) {
-            System.err.println("Could not deserialize.");
-            e.printStackTrace();
+    /**
+     * Send the last message on the control channel, i.e. "leave" : the client closes once the host acknowledged it,
+     * or after CLOSE_TIMEOUT. Clients only
+     */
+    protected void sendAndClose(ByteBuffer message) {
+        if (!this.isClosing) {
+            this.control.send(message);
+            this.isClosing = true;
+            this.closeDeadline = System.nanoTime() + CLOSE_TIMEOUT * 1000000L;
         }
+    }
 
-        return object;
+    /**
+     * Returns true once sendAndClose(...) was called
+     */
+    protected boolean isClosing() {
+        return this.isClosing;
     }
 
     /**
-     * Method to serialize an object : returns an array of bytes
+     * Method to send a message to the host : clients only
      */
-    public static byte[] serialize(Object object) {
+    public void send(byte[] data) {
+        this.send(ByteBuffer.wrap(data));
+    }
 
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
+    /**
+     * Method to send the remaining content of the buffer to the host : clients only
+     * the position of the buffer is left unchanged
+     */
+    public void send(ByteBuffer data) {
+        int position = data.position();
+        try {
+            this.channel.write(data);
+        } catch (IOException e) {
+            System.err.println("Outgoing packet was not sent: " + e.getMessage());
+        }
+        data.position(position);
+    }
+
+    /**
+     * Returns the send buffer, cleared : only to be used from the loop thread
+     */
+    protected ByteBuffer getSendBuffer() {
+        this.sendBuffer.clear();
+        return this.sendBuffer;
+    }
 
+    /**
+     * Stop serving the channel and close it
+     */
+    public void close() {
+        this.isRunning = false;
         try {
-            ObjectOutputStream oos = new ObjectOutputStream(output);
-            oos.writeObject(object);
+            this.channel.close();
         } catch (IOException e) {
-            System.err.println("Could not serialize.");
             e.printStackTrace();
         }
+    }
 
-        return output.toByteArray();
+    DatagramChannel getChannel() {
+        return this.channel;
     }
 
     /**
-     * Method that casts the received byte string into a MultiPlayerGame object
-     * and updates the local game
+     * Method that decodes the received snapshot, updates the local game and acknowledges the snapshot, see receiveSnapshot(...)
      */
-    protected void updateGame(byte[] receivedData, MultiPlayerGame game) {
-        MultiPlayerGame receivedGame = (MultiPlayerGame) deserialize(receivedData);
-        game.updateGame(receivedGame);
+    protected void updateGame(ByteBuffer snapshot, MultiPlayerGame game) {
+        SnapshotState state = this.receiveSnapshot(snapshot);
+        if (state != null) {
+            game.applyState(state);
+        }
+    }
+
+    /**
+     * Method that decodes the received snapshot and acknowledges it, returns the decoded state or null
+     * the snapshot is received in one packet, or put together from its fragments (see SnapshotReassembler)
+     * snapshots that are older than the last decoded one are dropped, as are truncated ones
+     * and deltas against a snapshot that is no longer kept
+     * the state is kept with the received snapshots (see SnapshotHistory) : it is replaced by a later one
+     */
+    protected SnapshotState receiveSnapshot(ByteBuffer snapshot) {
+        try {
+            if (!SnapshotCodec.isSnapshot(snapshot)) {
+                return null;
+            }
+            int sequence = SnapshotCodec.peekSequence(snapshot);
+            if (this.hasSnapshot && sequence - this.lastSequence <= 0) {
+                return null;
+            }
+            SnapshotState state = SnapshotCodec.decode(snapshot, this.history);
+            if (state == null) {
+                return null;
+            }
+            this.lastSequence = sequence;
+            this.hasSnapshot = true;
+            // fragments of older snapshots are no longer needed
+            this.reassembler.setDelivered(sequence);
+
+            ByteBuffer ack = this.getSendBuffer();
+            Message.putAck(ack, this.roomId, sequence);
+            ack.flip();
+            this.send(ack);
+            return state;
+        } catch (RuntimeException e) {
+            System.err.println("Received snapshot could not be decoded.");
+            return null;
+        }
     }
 
 }
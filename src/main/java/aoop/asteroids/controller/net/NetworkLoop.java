@@ -0,0 +1,116 @@
+package aoop.asteroids.controller.net;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * This class implements the singleton pattern : one thread serves the non-blocking channels
+ * of every Network object of the process (host server, joiner and spectator alike) with a single Selector.
+ * Whenever a channel is readable its Network reads all pending messages, and at least every
+ * POLL_INTERVAL milliseconds every Network gets to do its periodic work, i.e. sending the local actions
+ * and retransmitting the control messages that were not acknowledged.
+ */
+public class NetworkLoop implements Runnable {
+
+    /**
+     * Longest time between two calls to Network.poll(), in milliseconds
+     */
+    public static final long POLL_INTERVAL = 10;
+
+    // the unique object of NetworkLoop, created and started when it is first requested
+    private static NetworkLoop uniqueInstance;
+
+    private final Selector selector;
+    // networks to register, added by any thread and registered by the loop thread
+    private final ConcurrentLinkedQueue<Network> pending;
+
+    /**
+     * Private constructor : this class cannot be instantiated
+     */
+    private NetworkLoop() throws IOException {
+        this.selector = Selector.open();
+        this.pending = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Method to get the only object available, its thread is started on the first request
+     */
+    public static synchronized NetworkLoop getInstance() {
+        if (uniqueInstance == null) {
+            try {
+                uniqueInstance = new NetworkLoop();
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not open a selector", e);
+            }
+            Thread thread = new Thread(uniqueInstance, "network-loop");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return uniqueInstance;
+    }
+
+    /**
+     * Serve the channel of the given network from the loop thread, until the network is closed
+     */
+    public void register(Network network) {
+        this.pending.add(network);
+        this.selector.wakeup();
+    }
+
+    /**
+     * Thread loop : wait for readable channels, dispatch them and poll all networks
+     */
+    public void run() {
+        while (true) {
+            try {
+                this.selector.select(POLL_INTERVAL);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+
+            Network network;
+            while ((network = this.pending.poll()) != null) {
+                try {
+                    network.getChannel().register(this.selector, SelectionKey.OP_READ, network);
+                    network.onStart();
+                } catch (ClosedChannelException e) {
+                    // closed before it could be registered
+                }
+            }
+
+            Iterator<SelectionKey> selected = this.selector.selectedKeys().iterator();
+            while (selected.hasNext()) {
+                SelectionKey key = selected.next();
+                selected.remove();
+                if (key.isValid() && key.isReadable()) {
+                    ((Network) key.attachment()).receiveAll();
+                }
+            }
+
+            // closing a channel cancels its key, it is removed from the key set by the next select
+            long now = System.nanoTime();
+            for (SelectionKey key : this.selector.keys()) {
+                if (key.isValid()) {
+                    // as in dispatch, a failure of one network must not stop the loop of all the others
+                    Network served = (Network) key.attachment();
+                    try {
+                        served.poll();
+                    } catch (RuntimeException e) {
+                        System.err.println("Network could not be polled: " + e);
+                    }
+                    try {
+                        served.pollControl(now);
+                    } catch (RuntimeException e) {
+                        System.err.println("Control channels could not be polled: " + e);
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+package aoop.asteroids.controller.net;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * A reliable, ordered stream of control messages (join, start, leave, ...) between a client and a room of the host,
+ * sent on the same UDP channel as the snapshots and actions, which stay unreliable.
+ * Every message gets a sequence number (see Message.CONTROL) and is sent again until the other side acknowledges it;
+ * an acknowledgement holds the sequence number of the last message that was delivered in order (see Message.CONTROL_ACK).
+ * The receiving side delivers every message once and in order : duplicates are dropped, and messages that arrive
+ * before the ones in front of them are kept until those arrive, at most WINDOW.
+ * <p>
+ * The methods are synchronized : messages are sent from any thread, received and retransmitted on the network loop.
+ */
+public class ReliableChannel {
+
+    /**
+     * Most messages in flight at once, which is also the most messages that are kept when they arrive early
+     */
+    public static final int WINDOW = 32;
+
+    /**
+     * Time before unacknowledged messages are sent again, in nanoseconds
+     * it doubles with every retransmission, up to MAX_RETRANSMIT_TIMEOUT, and is reset by every acknowledgement
+     */
+    public static final long RETRANSMIT_TIMEOUT = 100000000L;
+
+    public static final long MAX_RETRANSMIT_TIMEOUT = 1000000000L;
+
+    private final int roomId;
+    // sends a packet to the other side
+    private final Consumer<ByteBuffer> output;
+
+    // sending side : the packets that were not acknowledged yet, the first one has sequence number acknowledged + 1
+    private final ArrayDeque<byte[]> unacknowledged;
+    private int sent, acknowledged;
+    private long lastTransmission, timeout;
+
+    // receiving side : sequence number of the last delivered message, and the messages that arrived early by sequence number
+    private int delivered;
+    private final byte[][] early;
+    private final ByteBuffer ack;
+
+    // statistics
+    private long retransmissionCount, duplicateCount;
+
+    /**
+     * Constructor
+     *
+     * @param roomId the room the messages belong to, written in every packet.
+     * @param output sends the remaining content of a packet to the other side, leaving its position unchanged.
+     */
+    public ReliableChannel(int roomId, Consumer<ByteBuffer> output) {
+        this.roomId = roomId;
+        this.output = output;
+        this.unacknowledged = new ArrayDeque<>();
+        this.early = new byte[WINDOW][];
+        this.ack = ByteBuffer.allocate(16);
+        this.timeout = RETRANSMIT_TIMEOUT;
+    }
+
+    /**
+     * Sends the remaining content of the buffer as the next message, it is copied
+     * the position of the buffer is left unchanged
+     */
+    public synchronized void send(ByteBuffer message) {
+        ByteBuffer packet = ByteBuffer.allocate(16 + message.remaining());
+        Message.putControl(packet, this.roomId, ++this.sent);
+        packet.put(message.duplicate());
+        byte[] bytes = Arrays.copyOf(packet.array(), packet.position());
+
+        if (this.unacknowledged.isEmpty()) {
+            this.lastTransmission = System.nanoTime();
+            this.timeout = RETRANSMIT_TIMEOUT;
+        }
+        this.unacknowledged.add(bytes);
+        // the ones after the window are sent once the ones in front of them are acknowledged
+        if (this.unacknowledged.size() <= WINDOW) {
+            this.transmit(bytes);
+        }
+    }
+
+    /**
+     * Sends the messages in the window again when they were not acknowledged in time
+     *
+     * @param now the current System.nanoTime().
+     */
+    public synchronized void poll(long now) {
+        if (this.unacknowledged.isEmpty() || now - this.lastTransmission < this.timeout) {
+            return;
+        }
+        Iterator<byte[]> packets = this.unacknowledged.iterator();
+        for (int i = 0; i < WINDOW && packets.hasNext(); i++) {
+            this.transmit(packets.next());
+            this.retransmissionCount++;
+        }
+        this.lastTransmission = now;
+        this.timeout = Math.min(2 * this.timeout, MAX_RETRANSMIT_TIMEOUT);
+    }
+
+    /**
+     * Received an acknowledgement, positioned after its type and room id
+     * the acknowledged messages are dropped, the ones that move into the window are sent
+     */
+    public synchronized void acknowledge(ByteBuffer message) {
+        int sequence = Message.getControlAck(message);
+        int count = sequence - this.acknowledged;
+        if (count <= 0 || sequence - this.sent > 0) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            this.unacknowledged.poll();
+        }
+        this.acknowledged = sequence;
+
+        Iterator<byte[]> packets = this.unacknowledged.iterator();
+        for (int i = 0; i < WINDOW && packets.hasNext(); i++) {
+            byte[] packet = packets.next();
+            if (i >= WINDOW - count) {
+                this.transmit(packet);
+            }
+        }
+        this.lastTransmission = System.nanoTime();
+        this.timeout = RETRANSMIT_TIMEOUT;
+    }
+
+    /**
+     * Received a message, positioned after its type and room id
+     * passes it on to the handler when it is the next one in order, followed by the ones that arrived early behind it;
+     * every received message is acknowledged, duplicates too, since the previous acknowledgement may have been lost
+     *
+     * @param handler handles a delivered message, positioned at its own type byte.
+     */
+    public synchronized void receive(ByteBuffer message, Consumer<ByteBuffer> handler) {
+        int sequence = Message.getControlSequence(message);
+        int ahead = sequence - this.delivered;
+        if (ahead <= 0) {
+            this.duplicateCount++;
+        } else if (ahead == 1) {
+            this.delivered = sequence;
+            handler.accept(message);
+            int slot;
+            while (this.early[slot = (this.delivered + 1) & (WINDOW - 1)] != null) {
+                byte[] next = this.early[slot];
+                this.early[slot] = null;
+                this.delivered++;
+                handler.accept(ByteBuffer.wrap(next));
+            }
+        } else if (ahead <= WINDOW) {
+            int slot = sequence & (WINDOW - 1);
+            if (this.early[slot] == null) {
+                byte[] bytes = new byte[message.remaining()];
+                message.get(bytes);
+                this.early[slot] = bytes;
+            } else {
+                this.duplicateCount++;
+            }
+        }
+        // messages further ahead are not kept : they are sent again
+
+        this.ack.clear();
+        Message.putControlAck(this.ack, this.roomId, this.delivered);
+        this.ack.flip();
+        this.output.accept(this.ack);
+    }
+
+    private void transmit(byte[] packet) {
+        this.output.accept(ByteBuffer.wrap(packet));
+    }
+
+    /**
+     * Returns true when every sent message was acknowledged
+     */
+    public synchronized boolean isIdle() {
+        return this.unacknowledged.isEmpty();
+    }
+
+    /**
+     * Getters : statistics
+     */
+
+    public synchronized long getRetransmissionCount() {
+        return this.retransmissionCount;
+    }
+
+    public synchronized long getDuplicateCount() {
+        return this.duplicateCount;
+    }
+
+}
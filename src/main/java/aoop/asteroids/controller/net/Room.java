@@ -0,0 +1,486 @@
+package aoop.asteroids.controller.net;
+
+import aoop.asteroids.controller.PlayerActions;
+import aoop.asteroids.model.MultiPlayerGame;
+import aoop.asteroids.model.Player;
+import aoop.asteroids.model.SnapshotCodec;
+import aoop.asteroids.model.SnapshotHistory;
+import aoop.asteroids.model.SnapshotState;
+import aoop.asteroids.model.Spaceship;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * A room is one multi-player game hosted by the HostServer, together with its clients
+ * Messages from the clients are routed to their room by the room id they carry (see RoomManager), and update the game accordingly
+ * Whenever the game is updated, a snapshot of it is sent to all clients of the room in order for them to update their local games
+ */
+public class Room implements Observer {
+
+    // holds the snapshots of one update : deltas, and room for a full one that every client can fall back to, see encode(...)
+    // larger ones are split into fragments when they are sent
+    private static final int SNAPSHOT_BUFFER_SIZE = 2 * Message.MAX_SNAPSHOT_SIZE;
+
+    /**
+     * Spectators get every this many snapshots by default, see setSpectatorInterval(...)
+     */
+    public static final int DEFAULT_SPECTATOR_INTERVAL = 2;
+
+    private final int id;
+    // the server that owns the channel
+    private final HostServer server;
+    private MultiPlayerGame gameModel;
+    // written by the network thread, read by the game and send tasks : copy on write
+    private CopyOnWriteArrayList<Address> clientsAddress;
+    // the clients that only watch, and every how many snapshots they get one
+    private Set<Address> spectators;
+    private volatile int spectatorInterval;
+    // sends the snapshots to the clients, and the sequence number of the next snapshot
+    private SnapshotBroadcaster broadcaster;
+    private int snapshotSequence;
+    // the snapshots sent last, and the last one each client acknowledged : written by the network thread
+    private SnapshotHistory history;
+    private ConcurrentHashMap<Address, Integer> acknowledged;
+    // the control channel of every client and of every address that is joining, removed once it leaves
+    private ConcurrentHashMap<SocketAddress, ReliableChannel> controls;
+    // addresses whose join was rejected, with the time until their control channel is kept, see reject(...)
+    private ConcurrentHashMap<SocketAddress, Long> rejected;
+    // baselines a snapshot was written against during the current update, null for a full snapshot
+    private SnapshotState[] encodedBaselines;
+    private int[] encodedOffsets, encodedLengths;
+    private int encodedCount;
+    // amount of snapshots that were not sent because even a full snapshot is larger than Message.MAX_SNAPSHOT_SIZE
+    private long oversizedSnapshots;
+
+    /**
+     * Constructor : the snapshots are sent by tasks on the given executor
+     */
+    public Room(int id, HostServer server, Executor executor) {
+        this.id = id;
+        this.server = server;
+        this.clientsAddress = new CopyOnWriteArrayList<>();
+        this.spectators = ConcurrentHashMap.newKeySet();
+        this.spectatorInterval = DEFAULT_SPECTATOR_INTERVAL;
+        this.broadcaster = new SnapshotBroadcaster(server, executor, SNAPSHOT_BUFFER_SIZE);
+        this.history = new SnapshotHistory();
+        this.acknowledged = new ConcurrentHashMap<>();
+        this.controls = new ConcurrentHashMap<>();
+        this.rejected = new ConcurrentHashMap<>();
+        // at most one full snapshot and one delta per kept baseline
+        this.encodedBaselines = new SnapshotState[SnapshotHistory.CAPACITY + 1];
+        this.encodedOffsets = new int[SnapshotHistory.CAPACITY + 1];
+        this.encodedLengths = new int[SnapshotHistory.CAPACITY + 1];
+    }
+
+    /**
+     * Received a message from a client, choose further action
+     * the buffer is positioned at the content of the message, after its type and room id
+     * join, spectate, leave and disconnect messages are only accepted on the control channel, see handleControl(...)
+     */
+    void handle(byte type, ByteBuffer message, SocketAddress sender) {
+        switch (type) {
+            case Message.ACK:
+                this.acknowledge(message, sender);
+                break;
+            case Message.ACTIONS:
+                this.updateActions(message);
+                break;
+            case Message.CONTROL:
+                this.receiveControl(message, sender);
+                break;
+            case Message.CONTROL_ACK:
+                ReliableChannel control = this.controls.get(sender);
+                if (control != null) {
+                    control.acknowledge(message);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Received a message of a control channel : a channel is only opened for the first message of an address
+     * that joins or spectates, and closed again once the address is not (or no longer) a client of the room.
+     * It still acknowledges the last message first, i.e. "leave"; the channel of a rejected join is kept until
+     * the rejection is acknowledged
+     */
+    private void receiveControl(ByteBuffer message, SocketAddress sender) {
+        ReliableChannel control = this.controls.get(sender);
+        if (control == null) {
+            ByteBuffer first = message.duplicate();
+            if (Message.getControlSequence(first) != 1 || !first.hasRemaining()
+                    || (Message.typeOf(first) != Message.JOIN && Message.typeOf(first) != Message.SPECTATE)) {
+                return;
+            }
+            control = this.getControl(sender);
+        }
+        control.receive(message, delivered -> this.handleControl(delivered, sender));
+        if (this.findClient(sender) == null && !this.rejected.containsKey(sender)) {
+            this.controls.remove(sender);
+        }
+    }
+
+    /**
+     * A message of the control channel of a client was delivered, positioned at its type
+     */
+    private void handleControl(ByteBuffer message, SocketAddress sender) {
+        byte type = Message.typeOf(message);
+        if (Message.getRoomId(message) != this.id) {
+            return;
+        }
+        switch (type) {
+            case Message.JOIN:
+                this.updatePlayer(message, sender);
+                break;
+            case Message.SPECTATE:
+                this.spectate(sender);
+                break;
+            case Message.LEAVE:
+                this.disconnectJoiner(message, sender);
+                break;
+            case Message.DISCONNECT:
+                this.disconnect(sender);
+                break;
+        }
+    }
+
+    /**
+     * Returns the control channel of the given client, opened on its first use : only for clients and joining addresses
+     */
+    private ReliableChannel getControl(SocketAddress client) {
+        return this.controls.computeIfAbsent(client, key -> {
+            Address address = new Address((InetSocketAddress) key);
+            return new ReliableChannel(this.id, data -> this.server.send(data, address));
+        });
+    }
+
+    /**
+     * Retransmit the control messages that the clients did not acknowledge, called on the network loop
+     */
+    void pollControl(long now) {
+        for (ReliableChannel control : this.controls.values()) {
+            control.poll(now);
+        }
+        for (Map.Entry<SocketAddress, Long> entry : this.rejected.entrySet()) {
+            ReliableChannel control = this.controls.get(entry.getKey());
+            if (control == null || control.isIdle() || now - entry.getValue() >= 0) {
+                this.controls.remove(entry.getKey());
+                this.rejected.remove(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Received spectate message, add a new client
+     */
+    private void spectate(SocketAddress sender) {
+        if (this.findClient(sender) == null) {
+            Address address = new Address((InetSocketAddress) sender);
+            this.spectators.add(address);
+            this.clientsAddress.add(address);
+        }
+    }
+
+    /**
+     * Received a new player : it is added to the model with its ship by the thread that steps the game,
+     * which then sends it to all clients (see update). Players cannot join a game that is running
+     */
+    private void updatePlayer(ByteBuffer message, SocketAddress sender) {
+        // this can be interpreted as a "join" request : add the client to the list
+        if (this.findClient(sender) != null) {
+            return;
+        }
+        Player player = Message.getJoin(message);
+        if (this.gameModel.addPlayer(player)) {
+            this.clientsAddress.add(new Address((InetSocketAddress) sender));
+        } else {
+            this.reject(sender);
+        }
+    }
+
+    /**
+     * Tell an address that its join was rejected : its control channel is kept until the rejection is acknowledged,
+     * at most Network.CLOSE_TIMEOUT milliseconds, see pollControl(...)
+     */
+    private void reject(SocketAddress sender) {
+        ByteBuffer reject = ByteBuffer.allocate(1);
+        Message.putEmpty(reject, Message.REJECT);
+        reject.flip();
+        this.rejected.put(sender, System.nanoTime() + Network.CLOSE_TIMEOUT * 1000000L);
+        this.getControl(sender).send(reject);
+    }
+
+    /**
+     * Received the last inputs of one ship
+     * retrieve the ship and link it to a corresponding one in the game model and update its actions
+     * the newest input is applied by the next step, unless the ship received it already; the ship then remembers its
+     * sequence number, which is sent back in the snapshots for the joiner to replay its later inputs.
+     * The older inputs in the message were sent before, but their messages may have been lost :
+     * when one of those that were not applied fires, the ship fires as well, so a short tap is never lost.
+     */
+    private void updateActions(ByteBuffer message) {
+        // retrieve the id number of the spaceship
+        int idNumber = Message.getActionsIdNumber(message);
+        int sequence = Message.getActionSequence(message);
+        int count = Message.getActionCount(message);
+        Spaceship s = this.gameModel.getSpaceShip(idNumber);
+        if (s == null || count == 0) {
+            return;
+        }
+        int missed = sequence - s.getReceivedInputSequence();
+        if (missed <= 0) {
+            return;
+        }
+        int actions = Message.getActionFlags(message, 0);
+        for (int i = 1; i < Math.min(count, missed); i++) {
+            actions |= Message.getActionFlags(message, i) & PlayerActions.FIRE;
+        }
+        // update spaceship's actions at the start of the next step
+        s.setPendingInput(actions, sequence);
+    }
+
+    /**
+     * Received an acknowledgement of a snapshot : the next snapshots for this client are deltas against it
+     * acknowledgements can arrive out of order, only the newest one counts
+     */
+    private void acknowledge(ByteBuffer message, SocketAddress sender) {
+        int sequence = Message.getAck(message);
+        Address address = this.findClient(sender);
+        if (address != null) {
+            this.acknowledged.merge(address, sequence, (last, received) -> received - last > 0 ? received : last);
+        }
+    }
+
+    /**
+     * Received disconnect message, remove the disconnected address from the clients list
+     */
+    private void disconnect(SocketAddress sender) {
+        Address address = this.findClient(sender);
+        if (address != null) {
+            this.clientsAddress.remove(address);
+            this.acknowledged.remove(address);
+            this.spectators.remove(address);
+        }
+    }
+
+    /**
+     * Remove the disconnected address from the clients list
+     * Also remove the player from the current game
+     */
+    private void disconnectJoiner(ByteBuffer message, SocketAddress sender) {
+        this.disconnect(sender);
+        Spaceship s = this.gameModel.getSpaceShip(Message.getLeave(message));
+        if (s != null) {
+            s.destroy();
+        }
+    }
+
+    /**
+     * Returns the address of the client the message was received from, or null for an unknown sender
+     */
+    private Address findClient(SocketAddress sender) {
+        for (Address address : this.clientsAddress) {
+            if (address.getSocketAddress().equals(sender)) {
+                return address;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whenever the model changes, update all clients by sending a snapshot of the updated model
+     * every client gets a delta against the last snapshot it acknowledged, or a full snapshot when it
+     * did not acknowledge any snapshot that is still kept.
+     * The snapshots are written on the thread that steps the game, once per distinct baseline, and sent by a send task
+     * spectators only get every spectatorInterval-th snapshot : they interpolate between them, see SnapshotPlayback
+     * Only the thread that steps the game notifies its observers, so updates never overlap
+     */
+    public void update(Observable o, Object arg) {
+        try {
+            if (this.hasClients()) {
+                int sequence = this.snapshotSequence++;
+                SnapshotState state = this.history.record(this.gameModel, sequence);
+                SnapshotBroadcaster.Batch batch = this.broadcaster.getBackBatch();
+                this.encodedCount = 0;
+                boolean toSpectators = Math.floorMod(sequence, this.spectatorInterval) == 0;
+
+                for (Address address : this.clientsAddress) {
+                    if (!toSpectators && this.spectators.contains(address)) {
+                        continue;
+                    }
+                    Integer ack = this.acknowledged.get(address);
+                    SnapshotState baseline = ack != null ? this.history.get(ack) : null;
+                    if (baseline == state) {
+                        baseline = null;
+                    }
+                    int k;
+                    try {
+                        k = this.encode(state, baseline, batch.getData());
+                    } catch (IllegalStateException e) {
+                        if (this.oversizedSnapshots++ == 0) {
+                            System.err.println(e.getMessage());
+                        }
+                        continue;
+                    }
+                    batch.add(address, this.encodedOffsets[k], this.encodedLengths[k]);
+                }
+                this.broadcaster.publish();
+            }
+        } catch (Exception e) {
+            System.err.println("Server couldn't send updated data of room " + this.id + ".");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the snapshot against the given baseline, unless it was written already during this update
+     * returns the index of the written snapshot
+     * Until the full snapshot is written, deltas leave Message.MAX_SNAPSHOT_SIZE bytes of the buffer free for it :
+     * a delta that does not fit is replaced by the full snapshot, so no client misses the update
+     *
+     * @throws IllegalStateException when the full snapshot is larger than Message.MAX_SNAPSHOT_SIZE.
+     */
+    private int encode(SnapshotState state, SnapshotState baseline, ByteBuffer data) {
+        boolean hasKeyframe = false;
+        for (int k = 0; k < this.encodedCount; k++) {
+            if (this.encodedBaselines[k] == baseline) {
+                return k;
+            }
+            hasKeyframe |= this.encodedBaselines[k] == null;
+        }
+        int offset = data.position();
+        int limit = data.limit();
+        if (baseline != null && !hasKeyframe) {
+            data.limit(Math.max(offset, limit - Message.MAX_SNAPSHOT_SIZE));
+        }
+        try {
+            SnapshotCodec.encode(state, baseline, data);
+        } catch (BufferOverflowException | IndexOutOfBoundsException e) {
+            data.limit(limit);
+            data.position(offset);
+            if (baseline == null) {
+                throw new IllegalStateException("Snapshot of room " + this.id + " is larger than " + Message.MAX_SNAPSHOT_SIZE + " bytes.");
+            }
+            return this.encode(state, null, data);
+        }
+        data.limit(limit);
+        int k = this.encodedCount++;
+        this.encodedBaselines[k] = baseline;
+        this.encodedOffsets[k] = offset;
+        this.encodedLengths[k] = data.position() - offset;
+        return k;
+    }
+
+    /**
+     * Returns the amount of snapshots that were not sent because they were too large
+     */
+    public long getOversizedSnapshots() {
+        return this.oversizedSnapshots;
+    }
+
+    /**
+     * Send the same data to all clients of the room
+     */
+    public void sendToAll(ByteBuffer data) {
+        for (Address address : this.clientsAddress) {
+            this.server.send(data, address);
+        }
+    }
+
+    /**
+     * Tell all clients that the game starts, on their control channels
+     */
+    public void sendStart() {
+        ByteBuffer start = ByteBuffer.allocate(1);
+        Message.putEmpty(start, Message.START);
+        start.flip();
+        for (Address address : this.clientsAddress) {
+            this.getControl(address.getSocketAddress()).send(start);
+        }
+    }
+
+    /**
+     * Replace the game model, add this as its observer
+     * the clients of the previous game are removed
+     */
+    public synchronized void setGame(MultiPlayerGame game) {
+        if (this.gameModel != null) {
+            this.gameModel.deleteObserver(this);
+        }
+        this.clearClients();
+        this.gameModel = game;
+        this.gameModel.addObserver(this);
+    }
+
+    /**
+     * Clear the clients list
+     */
+    public void clearClients() {
+        this.clientsAddress.clear();
+        this.acknowledged.clear();
+        this.spectators.clear();
+        this.controls.clear();
+        this.rejected.clear();
+    }
+
+    /**
+     * Send spectators every given amount of snapshots instead of every snapshot, at least 1
+     */
+    public void setSpectatorInterval(int interval) {
+        this.spectatorInterval = Math.max(1, interval);
+    }
+
+    /**
+     * Send packets of at most the given size in bytes, see SnapshotBroadcaster.setMtu(...)
+     */
+    public void setMtu(int mtu) {
+        this.broadcaster.setMtu(mtu);
+    }
+
+    /**
+     * Stop sending snapshots
+     */
+    void close() {
+        this.broadcaster.stop();
+        if (this.gameModel != null) {
+            this.gameModel.deleteObserver(this);
+        }
+    }
+
+    /**
+     * Checks if there are clients connected to this room
+     */
+    public Boolean hasClients() {
+        return (this.clientsAddress.size() > 0);
+    }
+
+    /**
+     * Getters
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    public MultiPlayerGame getGame() {
+        return this.gameModel;
+    }
+
+    public List<Address> getClientsAddress() {
+        return this.clientsAddress;
+    }
+
+    public int getNumberOfClients() {
+        return this.clientsAddress.size() - this.spectators.size();
+    }
+
+}
@@ -0,0 +1,128 @@
+package aoop.asteroids.controller.net;
+
+import aoop.asteroids.model.MultiPlayerGame;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class keeps the rooms of a HostServer : every room is a multi-player game with its own clients,
+ * all served on the one channel of the server. Messages to the host carry a room id, see Message.
+ * <p>
+ * The games of the rooms are stepped by a shared pool of worker threads instead of a thread per game :
+ * every step of a game schedules the next one when it is due (see Game.advance()), so a node can run
+ * many small matches with a handful of threads. The snapshots of the rooms are sent from the same pool.
+ */
+public class RoomManager {
+
+    /**
+     * Id of the room that is used when a game is hosted from the menu
+     */
+    public static final int DEFAULT_ROOM = 0;
+
+    private final HostServer server;
+    private final ConcurrentHashMap<Integer, Room> rooms;
+    private final ScheduledExecutorService workers;
+
+    /**
+     * Constructor : start the worker pool with the given amount of threads
+     */
+    public RoomManager(HostServer server, int workerThreads) {
+        this.server = server;
+        this.rooms = new ConcurrentHashMap<>();
+        this.workers = Executors.newScheduledThreadPool(workerThreads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "room-worker-" + this.count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the room with the given id, or null if there is no such room
+     */
+    public Room getRoom(int id) {
+        return this.rooms.get(id);
+    }
+
+    /**
+     * Opens a room with the given id for the given game
+     * if the room is open already it gets the new game, the clients of its previous game are removed
+     */
+    public Room openRoom(int id, MultiPlayerGame game) {
+        Room room = this.rooms.computeIfAbsent(id, k -> new Room(k, this.server, this.workers));
+        room.setGame(game);
+        return room;
+    }
+
+    /**
+     * Closes the room with the given id : its clients no longer receive snapshots
+     */
+    public void closeRoom(int id) {
+        Room room = this.rooms.remove(id);
+        if (room != null) {
+            room.close();
+        }
+    }
+
+    /**
+     * Steps the game of the given room on the worker pool until it is over
+     *
+     * @param room     the room to play.
+     * @param whenOver called on the worker pool once the game is over, may be null.
+     */
+    public void play(Room room, Runnable whenOver) {
+        MultiPlayerGame game = room.getGame();
+        game.startLoop();
+        this.schedule(game, whenOver, 0);
+    }
+
+    private void schedule(MultiPlayerGame game, Runnable whenOver, long delay) {
+        this.workers.schedule(() -> {
+            long next;
+            try {
+                next = game.advance();
+            } catch (RuntimeException e) {
+                System.err.println("Game step failed.");
+                e.printStackTrace();
+                next = 1000000000L / game.getTickRate();
+            }
+            if (game.isRunning()) {
+                this.schedule(game, whenOver, next);
+            } else if (whenOver != null) {
+                whenOver.run();
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Close all rooms and stop the worker pool
+     */
+    public void shutdown() {
+        for (Integer id : this.rooms.keySet()) {
+            this.closeRoom(id);
+        }
+        this.workers.shutdownNow();
+    }
+
+    /**
+     * Getters
+     */
+    public Collection<Room> getRooms() {
+        return this.rooms.values();
+    }
+
+    public ScheduledExecutorService getWorkers() {
+        return this.workers;
+    }
+
+}
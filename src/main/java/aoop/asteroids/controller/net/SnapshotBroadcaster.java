@@ -0,0 +1,230 @@
+package aoop.asteroids.controller.net;
+
+import aoop.asteroids.model.SnapshotCodec;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * This class sends the snapshots of a room to its clients on the worker pool of the rooms,
+ * so a slow socket never stalls the thread that steps the game and produces the snapshots.
+ * <p>
+ * The snapshots of one game tick are published together as a batch : a buffer holding every
+ * distinct snapshot (clients that acknowledged the same baseline share one) and the part of it
+ * each client has to receive.
+ * It uses three reusable batches : the game thread writes to the back batch and publishes it,
+ * a send task on the worker pool takes the latest published batch and sends it.
+ * At most one send task of a broadcaster is scheduled at any time, so the batches of a room are sent in order.
+ * When a new batch is published before the previous one was sent, the previous one is dropped :
+ * only the most recent state is worth sending.
+ * <p>
+ * A snapshot larger than the MTU is split into fragments that each fit in one packet (see Message.FRAGMENT),
+ * so it is never fragmented by IP, which loses the whole packet whenever one of its fragments is lost.
+ */
+public class SnapshotBroadcaster {
+
+    /**
+     * Largest packet that is sent by default, in bytes : fits in the minimum IPv6 MTU with its headers
+     */
+    public static final int DEFAULT_MTU = 1200;
+
+    /**
+     * Bounds of the MTU, see setMtu(...)
+     */
+    public static final int MIN_MTU = 256, MAX_MTU = Network.RECEIVE_BUFFER_SIZE;
+
+    // the server that owns the channel, and the pool that runs the send task
+    private final HostServer hostServer;
+    private final Executor executor;
+    // batch the game thread writes to, latest published batch, batch being sent
+    private Batch back, pending, front;
+    // holds true if pending holds a batch that was not sent yet, and if a send task is scheduled
+    private boolean hasPending, isScheduled;
+    // cleared when the room is closed
+    private boolean isRunning;
+    // largest packet that is sent, and the buffer the fragments are written to by the send task
+    private volatile int mtu;
+    private ByteBuffer fragment;
+    // amount of batches that were replaced before they could be sent, and of snapshots that were too large to send
+    private long droppedSnapshots, oversizedSnapshots;
+
+    /**
+     * Constructor : allocate the three batches
+     */
+    public SnapshotBroadcaster(HostServer hostServer, Executor executor, int bufferSize) {
+        this.hostServer = hostServer;
+        this.executor = executor;
+        this.back = new Batch(bufferSize);
+        this.pending = new Batch(bufferSize);
+        this.front = new Batch(bufferSize);
+        this.isRunning = true;
+        this.mtu = DEFAULT_MTU;
+    }
+
+    /**
+     * Returns the batch the next snapshots should be written to, cleared.
+     * Only the thread that publishes may use it, until it calls publish().
+     */
+    public Batch getBackBatch() {
+        this.back.clear();
+        return this.back;
+    }
+
+    /**
+     * Publish the back batch and schedule a send task, unless one is scheduled already
+     */
+    public synchronized void publish() {
+        Batch published = this.back;
+        this.back = this.pending;
+        this.pending = published;
+        if (this.hasPending) {
+            this.droppedSnapshots++;
+        }
+        this.hasPending = true;
+        if (!this.isScheduled && this.isRunning) {
+            this.isScheduled = true;
+            this.executor.execute(this::send);
+        }
+    }
+
+    /**
+     * Send task : send every snapshot of the latest published batch to its client, until no batch is pending
+     */
+    private void send() {
+        while (true) {
+            synchronized (this) {
+                if (!this.hasPending || !this.isRunning) {
+                    this.isScheduled = false;
+                    return;
+                }
+                Batch taken = this.pending;
+                this.pending = this.front;
+                this.front = taken;
+                this.hasPending = false;
+            }
+
+            // send outside of the lock, so the game can publish the next batch meanwhile
+            ByteBuffer data = this.front.data;
+            int mtu = this.mtu;
+            for (int i = 0; i < this.front.count; i++) {
+                data.limit(this.front.offsets[i] + this.front.lengths[i]);
+                data.position(this.front.offsets[i]);
+                if (this.front.lengths[i] <= mtu) {
+                    this.hostServer.send(data, this.front.addresses[i]);
+                } else {
+                    this.sendFragments(data, this.front.addresses[i], mtu);
+                }
+            }
+        }
+    }
+
+    /**
+     * Send the remaining content of the buffer, one snapshot, to the given client in fragments that fit in the MTU
+     * all fragments but the last one are equally large, so the client knows where every fragment goes
+     */
+    private void sendFragments(ByteBuffer data, Address address, int mtu) {
+        int offset = data.position();
+        int length = data.remaining();
+        if (length > Message.MAX_SNAPSHOT_SIZE) {
+            synchronized (this) {
+                this.oversizedSnapshots++;
+            }
+            return;
+        }
+        if (this.fragment == null || this.fragment.capacity() < mtu) {
+            this.fragment = ByteBuffer.allocateDirect(mtu);
+        }
+        int sequence = SnapshotCodec.peekSequence(data);
+        int maxPayload = mtu - Message.MAX_FRAGMENT_HEADER_SIZE;
+        int count = (length + maxPayload - 1) / maxPayload;
+        int size = Message.getFragmentSize(length, count);
+        for (int index = 0; index < count; index++) {
+            int start = offset + index * size;
+            this.fragment.clear();
+            Message.putFragment(this.fragment, sequence, length, count, index);
+            data.limit(Math.min(start + size, offset + length));
+            data.position(start);
+            this.fragment.put(data);
+            this.fragment.flip();
+            this.hostServer.send(this.fragment, address);
+        }
+    }
+
+    /**
+     * Send packets of at most the given size, snapshots that are larger are split into fragments
+     * the MTU is clamped to MIN_MTU and MAX_MTU
+     */
+    public void setMtu(int mtu) {
+        this.mtu = Math.max(MIN_MTU, Math.min(MAX_MTU, mtu));
+    }
+
+    /**
+     * Stop sending, the batch that is being sent is still completed
+     */
+    public synchronized void stop() {
+        this.isRunning = false;
+    }
+
+    /**
+     * Returns the amount of batches that were replaced by a newer one before they could be sent
+     */
+    public synchronized long getDroppedSnapshots() {
+        return this.droppedSnapshots;
+    }
+
+    /**
+     * Returns the amount of snapshots that were not sent because they are larger than Message.MAX_SNAPSHOT_SIZE
+     */
+    public synchronized long getOversizedSnapshots() {
+        return this.oversizedSnapshots;
+    }
+
+    /**
+     * The snapshots of one game tick : write a snapshot to data, then add the clients it is meant for
+     */
+    public static class Batch {
+
+        private final ByteBuffer data;
+        private Address[] addresses;
+        private int[] offsets, lengths;
+        private int count;
+
+        private Batch(int bufferSize) {
+            this.data = ByteBuffer.allocateDirect(bufferSize);
+            this.addresses = new Address[8];
+            this.offsets = new int[8];
+            this.lengths = new int[8];
+        }
+
+        private void clear() {
+            this.data.clear();
+            Arrays.fill(this.addresses, 0, this.count, null);
+            this.count = 0;
+        }
+
+        /**
+         * Returns the buffer to write the snapshots to, one after the other
+         */
+        public ByteBuffer getData() {
+            return this.data;
+        }
+
+        /**
+         * Sends the given part of the buffer to the given client
+         */
+        public void add(Address address, int offset, int length) {
+            if (this.count == this.addresses.length) {
+                this.addresses = Arrays.copyOf(this.addresses, this.count * 2);
+                this.offsets = Arrays.copyOf(this.offsets, this.count * 2);
+                this.lengths = Arrays.copyOf(this.lengths, this.count * 2);
+            }
+            this.addresses[this.count] = address;
+            this.offsets[this.count] = offset;
+            this.lengths[this.count] = length;
+            this.count++;
+        }
+
+    }
+
+}
@@ -0,0 +1,172 @@
+package aoop.asteroids.controller.net;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class puts the snapshots together that the host split into fragments because they are larger than its MTU,
+ * see Message.FRAGMENT : a client passes every received fragment to add(...), which returns the snapshot once all
+ * of its fragments arrived.
+ * <p>
+ * At most SLOTS snapshots are put together at once, each at most Message.MAX_SNAPSHOT_SIZE bytes, and the buffers
+ * are reused. A snapshot is superseded once a newer one is completed or decoded (see setDelivered(...)) : its
+ * fragments are dropped, as are the ones that arrive later. When all slots are taken, the oldest snapshot is dropped.
+ * Only used on the network loop thread.
+ */
+public class SnapshotReassembler {
+
+    /**
+     * Most snapshots that are put together at once
+     */
+    public static final int SLOTS = 4;
+
+    private final Slot[] slots;
+    // sequence number of the newest snapshot that was completed or decoded, older fragments are dropped
+    private int delivered;
+    private boolean hasDelivered;
+    // statistics : snapshots that were dropped before all of their fragments arrived, and malformed fragments
+    private long droppedCount, malformedCount;
+
+    /**
+     * Constructor : no buffers are allocated yet
+     */
+    public SnapshotReassembler() {
+        this.slots = new Slot[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            this.slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * Adds a received fragment, positioned at its type byte
+     *
+     * @return the completed snapshot, positioned at its type byte and only valid until the next call,
+     * or null when fragments of it are still missing or it was superseded.
+     */
+    public ByteBuffer add(ByteBuffer fragment) {
+        fragment.get();
+        int sequence = Message.getFragmentSequence(fragment);
+        int length = Message.getFragmentLength(fragment);
+        int count = Message.getFragmentCount(fragment);
+        int index = Message.getFragmentIndex(fragment);
+        if (length < 1 || length > Message.MAX_SNAPSHOT_SIZE || count < 1 || count > length || index < 0 || index >= count) {
+            this.malformedCount++;
+            return null;
+        }
+        int size = Message.getFragmentSize(length, count);
+        int offset = index * size;
+        if (fragment.remaining() != Math.min(size, length - offset)) {
+            this.malformedCount++;
+            return null;
+        }
+        if (this.hasDelivered && sequence - this.delivered <= 0) {
+            return null;
+        }
+
+        Slot slot = this.findSlot(sequence, length, count);
+        if (slot == null) {
+            return null;
+        }
+        if (!slot.received[index]) {
+            fragment.get(slot.data, offset, fragment.remaining());
+            slot.received[index] = true;
+            slot.receivedCount++;
+        }
+        if (slot.receivedCount < slot.count) {
+            return null;
+        }
+        this.setDelivered(sequence);
+        return ByteBuffer.wrap(slot.data, 0, slot.length);
+    }
+
+    /**
+     * Returns the slot of the given snapshot, taking a free one or the one of the oldest snapshot when it is new
+     * null when the snapshot is older than all snapshots in the slots, or does not match the earlier fragments
+     */
+    private Slot findSlot(int sequence, int length, int count) {
+        Slot free = null, oldest = null;
+        for (Slot slot : this.slots) {
+            if (!slot.isUsed) {
+                free = slot;
+            } else if (slot.sequence == sequence) {
+                if (slot.length != length || slot.count != count) {
+                    this.malformedCount++;
+                    return null;
+                }
+                return slot;
+            } else if (oldest == null || slot.sequence - oldest.sequence < 0) {
+                oldest = slot;
+            }
+        }
+        if (free == null) {
+            if (sequence - oldest.sequence < 0) {
+                this.droppedCount++;
+                return null;
+            }
+            free = oldest;
+            this.droppedCount++;
+        }
+        free.reset(sequence, length, count);
+        return free;
+    }
+
+    /**
+     * A snapshot with the given sequence number was decoded : drop the fragments of it and of older snapshots
+     */
+    public void setDelivered(int sequence) {
+        if (this.hasDelivered && sequence - this.delivered <= 0) {
+            return;
+        }
+        this.delivered = sequence;
+        this.hasDelivered = true;
+        for (Slot slot : this.slots) {
+            if (slot.isUsed && slot.sequence - sequence <= 0) {
+                if (slot.sequence != sequence) {
+                    this.droppedCount++;
+                }
+                slot.isUsed = false;
+            }
+        }
+    }
+
+    /**
+     * Getters : statistics
+     */
+
+    public long getDroppedCount() {
+        return this.droppedCount;
+    }
+
+    public long getMalformedCount() {
+        return this.malformedCount;
+    }
+
+    /**
+     * The fragments of one snapshot received so far
+     */
+    private static class Slot {
+
+        private boolean isUsed;
+        private int sequence, length, count, receivedCount;
+        private byte[] data = new byte[0];
+        private boolean[] received = new boolean[0];
+
+        private void reset(int sequence, int length, int count) {
+            this.isUsed = true;
+            this.sequence = sequence;
+            this.length = length;
+            this.count = count;
+            this.receivedCount = 0;
+            if (this.data.length < length) {
+                this.data = new byte[length];
+            }
+            if (this.received.length < count) {
+                this.received = new boolean[count];
+            } else {
+                Arrays.fill(this.received, 0, count, false);
+            }
+        }
+
+    }
+
+}
@@ -1,60 +1,100 @@
 package aoop.asteroids.controller.net;
 
 import aoop.asteroids.model.MultiPlayerGame;
+import aoop.asteroids.model.SnapshotPlayback;
+import aoop.asteroids.model.SnapshotState;
 
-import java.net.DatagramPacket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 
 /**
  * This class deals with a spectator's networking part
  * It will first send a "spectate" request in order for its address to be added to the client's list in the host server
- * It will also send a disconnect message when the spectator quits the game
+ * It will also send a disconnect message when the spectator quits the game, both on the control channel
  * It will receive an updated game model and update it locally
+ * The game is not simulated locally : the received snapshots go to a jitter buffer, and the game is shown
+ * a short delay behind them, interpolated between the snapshots around that time (see SnapshotPlayback)
  */
 public class SpectateClient extends Network {
 
+    /**
+     * System property with the delay in milliseconds at which the game is shown behind the received snapshots
+     */
+    public static final String DELAY_PROPERTY = "asteroids.spectateDelay";
+
+    /**
+     * Default delay in milliseconds : covers a few snapshots, which spectators get at a lower rate than players
+     */
+    public static final int DEFAULT_DELAY = 150;
+
+    // shortest time between two updates of the game, in nanoseconds
+    private static final long PLAYBACK_INTERVAL = 8000000L;
+
     // the address of the host server : always send information to this one
     protected Address hostAddress;
     // the game that is currently being spectated
     protected MultiPlayerGame game;
+    // the received snapshots, and the time the game was last updated from them
+    private final SnapshotPlayback playback;
+    private long lastPlayback;
 
     /**
      * Constructor
      */
     public SpectateClient(MultiPlayerGame game, Address hostAddress) {
-        super(hostAddress);
+        this(game, hostAddress, RoomManager.DEFAULT_ROOM);
+    }
+
+    /**
+     * Constructor : spectate the given room of the host
+     */
+    public SpectateClient(MultiPlayerGame game, Address hostAddress, int roomId) {
+        super(hostAddress, roomId);
         this.game = game;
         this.hostAddress = hostAddress;
+        this.playback = new SnapshotPlayback(Integer.getInteger(DELAY_PROPERTY, DEFAULT_DELAY) * 1000000L);
     }
 
     /**
-     * Thread loop : sends and receives packages/ messages
+     * Sends spectate request to the server
      */
-    public void run() {
-
-        // sends spectate request to the server
-        super.send("spectate".getBytes());
-        byte[] receivedData;
-
-        while (this.isRunning) {
-
-            byte[] incomingGameData = new byte[6000];
-            DatagramPacket incomingGamePacket = new DatagramPacket(incomingGameData, incomingGameData.length);
-
-            this.receive(incomingGamePacket);
-            receivedData = incomingGamePacket.getData();
-            String receivedMessage = new String(receivedData);
+    @Override
+    protected void onStart() {
+        ByteBuffer spectate = this.getSendBuffer();
+        Message.putHeader(spectate, Message.SPECTATE, this.roomId);
+        spectate.flip();
+        this.sendControl(spectate);
+    }
 
-            //updates the local game according to the received model
-            if (receivedMessage.contains("aoop.asteroids.model.MultiPlayerGame")) {
-                super.updateGame(receivedData, this.game);
+    /**
+     * Adds the received snapshot to the jitter buffer
+     */
+    @Override
+    protected void handle(ByteBuffer message, SocketAddress sender) {
+        if (Message.typeOf(message) == Message.SNAPSHOT) {
+            SnapshotState state = super.receiveSnapshot(message);
+            if (state != null) {
+                this.playback.add(state, System.nanoTime());
             }
+        }
+    }
 
-            // disconnect, stop the thread and close the socket
-            if (!this.game.getIsConnected()) {
-                super.send("disconnect".getBytes());
-                this.isRunning = false;
-                this.socket.close();
-            }
+    /**
+     * Updates the local game from the jitter buffer, disconnect when the spectator quits
+     */
+    @Override
+    protected void poll() {
+        long now = System.nanoTime();
+        if (now - this.lastPlayback >= PLAYBACK_INTERVAL && this.playback.apply(this.game, now)) {
+            this.lastPlayback = now;
+            this.game.updateObservable();
+        }
+
+        if (!this.game.getIsConnected() && !this.isClosing()) {
+            ByteBuffer disconnect = this.getSendBuffer();
+            Message.putHeader(disconnect, Message.DISCONNECT, this.roomId);
+            disconnect.flip();
+            this.sendAndClose(disconnect);
         }
     }
 }
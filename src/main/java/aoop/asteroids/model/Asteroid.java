@@ -2,7 +2,6 @@ package aoop.asteroids.model;
 
 import java.awt.Point;
 import java.util.ArrayList;
-import java.util.Collection;
 
 /**
  * An asteroid is a game object that needs to be destroyed in order to
@@ -28,14 +27,60 @@ public class Asteroid extends GameObject {
         super(location, velocityX, velocityY, radius);
     }
 
+    /**
+     * Constructs a new asteroid at the specified coordinates, with specified
+     * velocities in both X and Y direction and the specified radius.
+     *
+     * @param locationX the location on the X axis.
+     * @param locationY the location on the Y axis.
+     * @param velocityX the velocity in X direction.
+     * @param velocityY the velocity in Y direction.
+     * @param radius    radius of the asteroid.
+     */
+    public Asteroid(double locationX, double locationY, double velocityX, double velocityY, int radius) {
+        super(locationX, locationY, velocityX, velocityY, radius);
+    }
+
     /**
      * Updates location of the asteroid with traveled distance.
      */
     @Override
     public void nextStep() {
         this.stepsTilCollide = Math.max(0, this.stepsTilCollide - 1);
-        this.locationX = (800 + this.locationX + this.velocityX) % 800;
-        this.locationY = (800 + this.locationY + this.velocityY) % 800;
+        this.locationX = (Game.DEFAULT_WORLD_SIZE + this.locationX + this.velocityX) % Game.DEFAULT_WORLD_SIZE;
+        this.locationY = (Game.DEFAULT_WORLD_SIZE + this.locationY + this.velocityY) % Game.DEFAULT_WORLD_SIZE;
+    }
+
+    /**
+     * Creates the asteroid object that matches the given radius, i.e. a
+     * large, medium or small asteroid so that its successors are correct.
+     */
+    public static Asteroid create(double locationX, double locationY, double velocityX, double velocityY, int radius) {
+        switch (radius) {
+            case LargeAsteroid.RADIUS:
+                return new LargeAsteroid(locationX, locationY, velocityX, velocityY);
+            case MediumAsteroid.RADIUS:
+                return new MediumAsteroid(locationX, locationY, velocityX, velocityY);
+            case SmallAsteroid.RADIUS:
+                return new SmallAsteroid(locationX, locationY, velocityX, velocityY);
+            default:
+                return new Asteroid(locationX, locationY, velocityX, velocityY, radius);
+        }
+    }
+
+    /**
+     * Returns the radius of the successors of an asteroid with the given
+     * radius, or 0 if such an asteroid does not produce offspring.
+     */
+    public static int getSuccessorRadius(int radius) {
+        switch (radius) {
+            case LargeAsteroid.RADIUS:
+                return MediumAsteroid.RADIUS;
+            case MediumAsteroid.RADIUS:
+                return SmallAsteroid.RADIUS;
+            default:
+                return 0;
+        }
     }
 
     /**
@@ -52,7 +97,9 @@ public class Asteroid extends GameObject {
      * Creates an exact copy of the asteroid.
      */
     public Asteroid clone() {
-        return new Asteroid(this.getLocation(), this.velocityX, this.velocityY, this.radius);
+        Asteroid a = new Asteroid(this.locationX, this.locationY, this.velocityX, this.velocityY, this.radius);
+        a.setEntityId(this.entityId);
+        return a;
     }
 
 }
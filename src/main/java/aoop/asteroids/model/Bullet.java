@@ -18,6 +18,11 @@ public class Bullet extends GameObject {
      */
     private int stepsLeft;
 
+    /**
+     * The amount of steps a new bullet is allowed to live.
+     */
+    public static final int STEPS_TO_LIVE = 45;
+
     /**
      * Field to know where did the bullet come from in order to assign points
      */
@@ -34,24 +39,39 @@ public class Bullet extends GameObject {
      * @param velocityY velocity of the bullet as projected on the Y-axis.
      */
     public Bullet(int idNumber, Point location, double velocityX, double velocityY) {
-        this(idNumber, location, velocityX, velocityY, 45);
+        this(idNumber, location.x, location.y, velocityX, velocityY, STEPS_TO_LIVE);
+    }
+
+    /**
+     * Constructs a new bullet at the given coordinates, see
+     * {@link #Bullet(int, Point, double, double)}.
+     *
+     * @param idNumber  unique id number of the spaceship that triggered the bullet.
+     * @param locationX location of the bullet on the X-axis.
+     * @param locationY location of the bullet on the Y-axis.
+     * @param velocityX velocity of the bullet as projected on the X-axis.
+     * @param velocityY velocity of the bullet as projected on the Y-axis.
+     */
+    public Bullet(int idNumber, double locationX, double locationY, double velocityX, double velocityY) {
+        this(idNumber, locationX, locationY, velocityX, velocityY, STEPS_TO_LIVE);
     }
 
     /**
      * Constructs a new bullet using the given location and velocity
      * parameters. The amount of steps the bullet gets to live is set to the
      * given value. This constructor is primarily used for the clone ()
-     * method.
+     * method and for creating bullet objects out of the game model.
      *
      * @param idNumber  unique id number of the spaceship that triggered the bullet.
-     * @param location  location of the bullet.
+     * @param locationX location of the bullet on the X-axis.
+     * @param locationY location of the bullet on the Y-axis.
      * @param velocityX velocity of the bullet as projected on the X-axis.
      * @param velocityY velocity of the bullet as projected on the Y-axis.
      * @param stepsLeft amount of steps the bullet is allowed to live.
      * @see #clone()
      */
-    private Bullet(int idNumber, Point location, double velocityX, double velocityY, int stepsLeft) {
-        super(location, velocityX, velocityY, 0);
+    Bullet(int idNumber, double locationX, double locationY, double velocityX, double velocityY, int stepsLeft) {
+        super(locationX, locationY, velocityX, velocityY, 0);
         this.stepsLeft = stepsLeft;
         this.idNumber = idNumber;
     }
@@ -60,13 +80,13 @@ public class Bullet extends GameObject {
      * Method that determines the behaviour of the bullet. The behaviour of a
      * bullet is defined by adding the velocity to its location parameters.
      * The location is then restricted to values between 0 and 800 (size of
-     * the window).
+     * the default world, see Game.DEFAULT_WORLD_SIZE).
      */
     @Override
     public void nextStep() {
         this.stepsTilCollide = Math.max(0, this.stepsTilCollide - 1);
-        this.locationX = (800 + this.locationX + this.velocityX) % 800;
-        this.locationY = (800 + this.locationY + this.velocityY) % 800;
+        this.locationX = (Game.DEFAULT_WORLD_SIZE + this.locationX + this.velocityX) % Game.DEFAULT_WORLD_SIZE;
+        this.locationY = (Game.DEFAULT_WORLD_SIZE + this.locationY + this.velocityY) % Game.DEFAULT_WORLD_SIZE;
         this.stepsLeft--;
 
         if (this.stepsLeft < 0)
@@ -77,7 +97,9 @@ public class Bullet extends GameObject {
      * Clones the bullet into an exact copy.
      */
     public Bullet clone() {
-        return new Bullet(this.idNumber, this.getLocation(), this.velocityX, this.velocityY, this.stepsLeft);
+        Bullet b = new Bullet(this.idNumber, this.locationX, this.locationY, this.velocityX, this.velocityY, this.stepsLeft);
+        b.setEntityId(this.entityId);
+        return b;
     }
 
     /**
@@ -1,93 +1,181 @@
 package aoop.asteroids.model;
 
-import javax.persistence.EntityManager;
-import javax.persistence.EntityManagerFactory;
-import javax.persistence.Persistence;
-import javax.persistence.TypedQuery;
-import javax.swing.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * This is the Database class, which stores the players' highscores by using the ObjectDB.
+ * This is the Database class, which stores the players' highscores in a ScoreStore : an ObjectDB file (*.odb),
+ * or a log file (see LogScoreStore) for any other path.
  * This class can add players to the database, remove them, update their scores or return a player's
  * highscore.
+ * The methods are synchronized, so the games of several rooms can share one database.
+ * Games queue their scores instead of writing them (see queueScore), a ScoreWriter writes them in batches.
+ * <p>
+ * A process opens a file once : open(path) returns the database that is open already, every open(...) is then
+ * followed by a closeDatabaseConnection(), and the last one closes the store.
  */
 
 public class Database {
 
-    private EntityManager em;
+    // the databases opened by path, see open(...); guarded by itself
+    private static final Map<String, Database> OPEN = new HashMap<>();
 
-    private EntityManagerFactory emf;
+    private final ScoreStore store;
 
-    public Database() {
-        this.emf = Persistence.createEntityManagerFactory("./Database.odb");
-        this.em = this.emf.createEntityManager();
+    private final ScoreWriter scoreWriter;
+
+    // the players ordered by score, read from the database once and then kept up to date
+    private Leaderboard leaderboard;
+
+    // the key in OPEN, and the amount of users that did not close it yet; guarded by OPEN
+    private String key;
+    private int users;
+
+    /**
+     * Default path of the database file.
+     */
+    public static final String DEFAULT_PATH = "./Database.odb";
+
+    /**
+     * Use the given store, for this database only.
+     */
+    public Database(ScoreStore store) {
+        this.store = store;
+        this.scoreWriter = new ScoreWriter(this, ScoreWriter.DEFAULT_CAPACITY, ScoreWriter.DEFAULT_FLUSH_DELAY);
+        this.users = 1;
+    }
+
+    /**
+     * Open the database stored in the given file, or return it when it is open already.
+     */
+    public static Database open(String path) {
+        String key;
+        try {
+            key = new File(path).getCanonicalPath();
+        } catch (IOException e) {
+            key = new File(path).getAbsolutePath();
+        }
+        synchronized (OPEN) {
+            Database database = OPEN.get(key);
+            if (database == null) {
+                database = new Database(createStore(path));
+                database.key = key;
+                database.users = 0;
+                OPEN.put(key, database);
+            }
+            database.users++;
+            return database;
+        }
+    }
+
+    /**
+     * Create the store of the given file, chosen by its extension.
+     */
+    public static ScoreStore createStore(String path) {
+        if (path.endsWith(".odb")) {
+            return new ObjectDbScoreStore(path);
+        }
+        return new LogScoreStore(path);
     }
 
     /**
      * Get all players in the database.
      */
-    public List<Player> getPlayers() {
-        TypedQuery<Player> query = em.createQuery("SELECT p FROM Player p", Player.class);
-        return query.getResultList();
+    public synchronized List<Player> getPlayers() {
+        return this.store.getPlayers();
     }
 
     /**
      * Add player to database. Avoid duplicates by searching the database for the player's name.
      */
-    public void addPlayer(Player player) {
-        if (this.em.find(Player.class, player.getName()) == null) {
-            this.em.getTransaction().begin();
-            this.em.persist(player);
-            this.em.getTransaction().commit();
+    public synchronized void addPlayer(Player player) {
+        if (this.store.addPlayer(player) && this.leaderboard != null) {
+            this.leaderboard.update(player.getName(), player.getCurrentScore());
         }
     }
 
     /**
-     * Find a player and its score in the database.
+     * Find a player's highscore in the database, ScoreStore.NO_SCORE when the player is not in it.
      */
-    public void findScore(String name) {
-        Player player = this.em.find(Player.class, name);
-        if (player != null) {
-            JOptionPane.showMessageDialog(null, "Player " + name + " has highscore: " + player.getCurrentScore());
-        } else {
-            JOptionPane.showMessageDialog(null, "Sorry! Player " + name + " is not in the database.");
-        }
+    public synchronized int findScore(String name) {
+        return this.store.findScore(name);
     }
 
     /**
      * Update database once a player obtaines a new highscore.
      */
-    public void updateScore(String name, int score) {
-        Player player = this.em.find(Player.class, name);
-        if (player.getCurrentScore() <= score) {
-            this.em.getTransaction().begin();
-            player.setScore(score);
-            this.em.getTransaction().commit();
+    public synchronized void updateScore(String name, int score) {
+        if (this.store.updateScore(name, score) && this.leaderboard != null) {
+            this.leaderboard.update(name, score);
         }
     }
 
     /**
-     * Delete player from the database.
+     * Update the scores of several players at once, in one transaction : the score of every player by name.
      */
-    public void deletePlayer(String givenName) {
-        List<Player> playerList = getPlayers();
-
-        em.getTransaction().begin();
-        for (Player p : playerList) {
-            if (givenName.equals(p.getName())) {
-                em.remove(p);
+    public synchronized void updateScores(Map<String, Integer> scores) {
+        Map<String, Integer> updated = this.store.updateScores(scores);
+        if (this.leaderboard != null) {
+            for (Map.Entry<String, Integer> entry : updated.entrySet()) {
+                this.leaderboard.update(entry.getKey(), entry.getValue());
             }
         }
-        em.getTransaction().commit();
     }
 
     /**
-     * Close the connection to the database.
+     * Queue a new score of a player, written later on the thread of the ScoreWriter. Does not wait for the database.
+     */
+    public void queueScore(String name, int score) {
+        this.scoreWriter.queue(name, score);
+    }
+
+    /**
+     * Return the players ordered by score. They are read from the database the first time, then kept up to date.
+     */
+    public synchronized Leaderboard getLeaderboard() {
+        if (this.leaderboard == null) {
+            this.leaderboard = new Leaderboard(this.store.getPlayers());
+        }
+        return this.leaderboard;
+    }
+
+    /**
+     * Return the writer of the queued scores, i.e. for its statistics.
+     */
+    public ScoreWriter getScoreWriter() {
+        return this.scoreWriter;
+    }
+
+    /**
+     * Delete player from the database.
+     */
+    public synchronized void deletePlayer(String givenName) {
+        if (this.store.deletePlayer(givenName) && this.leaderboard != null) {
+            this.leaderboard.remove(givenName);
+        }
+    }
+
+    /**
+     * Close the connection to the database, once the queued scores are written.
+     * A database that was opened more than once stays open until every user closed it.
      */
     public void closeDatabaseConnection() {
-        em.close();
-        emf.close();
+        synchronized (OPEN) {
+            if (this.users == 0 || --this.users > 0) {
+                return;
+            }
+            if (this.key != null) {
+                OPEN.remove(this.key);
+            }
+        }
+        // not while holding the lock : the writer needs it to write the last batch
+        this.scoreWriter.close();
+        synchronized (this) {
+            this.store.close();
+        }
     }
 
 }
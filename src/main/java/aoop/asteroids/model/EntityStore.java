@@ -0,0 +1,342 @@
+package aoop.asteroids.model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * EntityStore holds a set of simple game objects (asteroids or bullets) in
+ * parallel primitive arrays instead of a list of objects. Entity i is made up
+ * of the i-th element of every array. Removing an entity moves the last one
+ * into its place, so the arrays stay packed and nothing is allocated per tick.
+ * <p>
+ * The behaviour of the entities is the same as that of their GameObject
+ * counterparts: they move in a straight line over the toroidal world, cannot
+ * collide during their first game ticks and, when they have a time to live,
+ * are destroyed once it drops below 0.
+ */
+public class EntityStore implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Time to live of entities that live until they are destroyed, i.e. asteroids.
+     */
+    public static final int NO_TTL = Integer.MAX_VALUE;
+
+    /**
+     * Amount of game ticks a new entity is not allowed to collide, see GameObject.
+     */
+    public static final int STEPS_TIL_COLLIDE = 3;
+
+    // number of entities in use, and the id the next added entity gets
+    private int size;
+    private int nextId;
+    // location and velocity
+    private transient double[] locationX, locationY, velocityX, velocityY;
+    // unique id of the entity, stays the same for as long as the entity exists
+    private transient int[] id;
+    // radius, game ticks left to live, id of the owner (spaceship that fired a bullet)
+    private transient int[] radius, stepsLeft, owner;
+    // game ticks left until the entity is allowed to collide
+    private transient int[] stepsTilCollide;
+    // holds true if the entity collided with another object
+    private transient boolean[] destroyed;
+
+    /**
+     * Constructs an empty store.
+     */
+    public EntityStore() {
+        this.allocate(32);
+        this.nextId = 1;
+    }
+
+    private void allocate(int capacity) {
+        this.locationX = new double[capacity];
+        this.locationY = new double[capacity];
+        this.velocityX = new double[capacity];
+        this.velocityY = new double[capacity];
+        this.id = new int[capacity];
+        this.radius = new int[capacity];
+        this.stepsLeft = new int[capacity];
+        this.owner = new int[capacity];
+        this.stepsTilCollide = new int[capacity];
+        this.destroyed = new boolean[capacity];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= this.locationX.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, this.locationX.length * 2);
+        this.locationX = Arrays.copyOf(this.locationX, newCapacity);
+        this.locationY = Arrays.copyOf(this.locationY, newCapacity);
+        this.velocityX = Arrays.copyOf(this.velocityX, newCapacity);
+        this.velocityY = Arrays.copyOf(this.velocityY, newCapacity);
+        this.id = Arrays.copyOf(this.id, newCapacity);
+        this.radius = Arrays.copyOf(this.radius, newCapacity);
+        this.stepsLeft = Arrays.copyOf(this.stepsLeft, newCapacity);
+        this.owner = Arrays.copyOf(this.owner, newCapacity);
+        this.stepsTilCollide = Arrays.copyOf(this.stepsTilCollide, newCapacity);
+        this.destroyed = Arrays.copyOf(this.destroyed, newCapacity);
+    }
+
+    /**
+     * Adds a new entity.
+     *
+     * @param locationX location on the X axis.
+     * @param locationY location on the Y axis.
+     * @param velocityX velocity in X direction.
+     * @param velocityY velocity in Y direction.
+     * @param radius    radius of the entity.
+     * @param stepsLeft amount of game ticks the entity lives, or NO_TTL.
+     * @param owner     id number of the owning spaceship, 0 if none.
+     * @return the index of the new entity.
+     */
+    public int add(double locationX, double locationY, double velocityX, double velocityY, int radius, int stepsLeft, int owner) {
+        return this.add(locationX, locationY, velocityX, velocityY, radius, stepsLeft, owner, STEPS_TIL_COLLIDE);
+    }
+
+    /**
+     * Adds a new entity that is not allowed to collide for the given amount of steps.
+     *
+     * @param locationX       location on the X axis.
+     * @param locationY       location on the Y axis.
+     * @param velocityX       velocity in X direction.
+     * @param velocityY       velocity in Y direction.
+     * @param radius          radius of the entity.
+     * @param stepsLeft       amount of game ticks the entity lives, or NO_TTL.
+     * @param owner           id number of the owning spaceship, 0 if none.
+     * @param stepsTilCollide amount of game ticks until the entity is allowed to collide.
+     * @return the index of the new entity, its id is given by getId(index).
+     */
+    public int add(double locationX, double locationY, double velocityX, double velocityY, int radius, int stepsLeft, int owner, int stepsTilCollide) {
+        this.ensureCapacity(this.size + 1);
+        int i = this.size++;
+        this.locationX[i] = locationX;
+        this.locationY[i] = locationY;
+        this.velocityX[i] = velocityX;
+        this.velocityY[i] = velocityY;
+        this.id[i] = this.nextId++;
+        this.radius[i] = radius;
+        this.stepsLeft[i] = stepsLeft;
+        this.owner[i] = owner;
+        this.stepsTilCollide[i] = stepsTilCollide;
+        this.destroyed[i] = false;
+        return i;
+    }
+
+    /**
+     * Removes the entity with the given index by moving the last entity in its place.
+     */
+    public void remove(int i) {
+        int last = --this.size;
+        if (i != last) {
+            this.locationX[i] = this.locationX[last];
+            this.locationY[i] = this.locationY[last];
+            this.velocityX[i] = this.velocityX[last];
+            this.velocityY[i] = this.velocityY[last];
+            this.id[i] = this.id[last];
+            this.radius[i] = this.radius[last];
+            this.stepsLeft[i] = this.stepsLeft[last];
+            this.owner[i] = this.owner[last];
+            this.stepsTilCollide[i] = this.stepsTilCollide[last];
+            this.destroyed[i] = this.destroyed[last];
+        }
+    }
+
+    /**
+     * Removes all destroyed entities.
+     */
+    public void removeDestroyed() {
+        int i = 0;
+        while (i < this.size) {
+            if (this.destroyed[i]) {
+                this.remove(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Removes all entities.
+     */
+    public void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * Replaces the content of this store by a copy of the given store.
+     */
+    public void copyFrom(EntityStore other) {
+        this.ensureCapacity(other.size);
+        this.size = other.size;
+        System.arraycopy(other.locationX, 0, this.locationX, 0, other.size);
+        System.arraycopy(other.locationY, 0, this.locationY, 0, other.size);
+        System.arraycopy(other.velocityX, 0, this.velocityX, 0, other.size);
+        System.arraycopy(other.velocityY, 0, this.velocityY, 0, other.size);
+        System.arraycopy(other.id, 0, this.id, 0, other.size);
+        this.nextId = other.nextId;
+        System.arraycopy(other.radius, 0, this.radius, 0, other.size);
+        System.arraycopy(other.stepsLeft, 0, this.stepsLeft, 0, other.size);
+        System.arraycopy(other.owner, 0, this.owner, 0, other.size);
+        System.arraycopy(other.stepsTilCollide, 0, this.stepsTilCollide, 0, other.size);
+        System.arraycopy(other.destroyed, 0, this.destroyed, 0, other.size);
+    }
+
+    /**
+     * Moves all entities one game tick forward, see Asteroid.nextStep() and
+     * Bullet.nextStep(). Locations are restricted to the given world size.
+     */
+    public void integrate(int width, int height) {
+        this.integrate(width, height, 1.0);
+    }
+
+    /**
+     * Moves all entities one simulation step forward. The velocities are
+     * given in pixels per game tick, the scale is the length of the step in
+     * game ticks (see Game.getStepScale()).
+     */
+    public void integrate(int width, int height, double scale) {
+        final int n = this.size;
+        final double[] x = this.locationX, y = this.locationY, vx = this.velocityX, vy = this.velocityY;
+        final int[] collide = this.stepsTilCollide;
+
+        for (int i = 0; i < n; i++) {
+            x[i] = (width + x[i] + vx[i] * scale) % width;
+            y[i] = (height + y[i] + vy[i] * scale) % height;
+            collide[i] = Math.max(0, collide[i] - 1);
+        }
+
+        final int[] ttl = this.stepsLeft;
+        for (int i = 0; i < n; i++) {
+            if (ttl[i] != NO_TTL && --ttl[i] < 0) {
+                this.destroyed[i] = true;
+            }
+        }
+    }
+
+    /**
+     * Checks whether entity i of this store collides with entity j of the
+     * given store, using the same rules as GameObject.collides(...).
+     */
+    public boolean collides(int i, EntityStore other, int j) {
+        if (this.stepsTilCollide[i] != 0 || other.stepsTilCollide[j] != 0) {
+            return false;
+        }
+        double distX = this.locationX[i] - other.locationX[j];
+        double distY = this.locationY[i] - other.locationY[j];
+        int radii = this.radius[i] + other.radius[j];
+
+        return distX * distX + distY * distY < radii * radii;
+    }
+
+    /**
+     * Checks whether entity i of this store collides with the given game
+     * object, using the same rules as GameObject.collides(...).
+     */
+    public boolean collides(int i, GameObject other) {
+        if (this.stepsTilCollide[i] != 0 || other.stepsTilCollide() != 0) {
+            return false;
+        }
+        double distX = this.locationX[i] - other.getX();
+        double distY = this.locationY[i] - other.getY();
+        int radii = this.radius[i] + other.getRadius();
+
+        return distX * distX + distY * distY < radii * radii;
+    }
+
+    /**
+     * Getters
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public double getX(int i) {
+        return this.locationX[i];
+    }
+
+    public double getY(int i) {
+        return this.locationY[i];
+    }
+
+    public double getVelocityX(int i) {
+        return this.velocityX[i];
+    }
+
+    public double getVelocityY(int i) {
+        return this.velocityY[i];
+    }
+
+    public int getId(int i) {
+        return this.id[i];
+    }
+
+    /**
+     * Gives the entity the id it has in another store, i.e. the one of the host
+     */
+    public void setId(int i, int id) {
+        this.id[i] = id;
+    }
+
+    public int getRadius(int i) {
+        return this.radius[i];
+    }
+
+    public int getStepsLeft(int i) {
+        return this.stepsLeft[i];
+    }
+
+    public int getOwner(int i) {
+        return this.owner[i];
+    }
+
+    public boolean isDestroyed(int i) {
+        return this.destroyed[i];
+    }
+
+    public void destroy(int i) {
+        this.destroyed[i] = true;
+    }
+
+    /**
+     * Only the entities in use are serialized, not the spare capacity.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        for (int i = 0; i < this.size; i++) {
+            out.writeDouble(this.locationX[i]);
+            out.writeDouble(this.locationY[i]);
+            out.writeDouble(this.velocityX[i]);
+            out.writeDouble(this.velocityY[i]);
+            out.writeInt(this.id[i]);
+            out.writeInt(this.radius[i]);
+            out.writeInt(this.stepsLeft[i]);
+            out.writeInt(this.owner[i]);
+            out.writeInt(this.stepsTilCollide[i]);
+            out.writeBoolean(this.destroyed[i]);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.allocate(Math.max(32, this.size));
+        for (int i = 0; i < this.size; i++) {
+            this.locationX[i] = in.readDouble();
+            this.locationY[i] = in.readDouble();
+            this.velocityX[i] = in.readDouble();
+            this.velocityY[i] = in.readDouble();
+            this.id[i] = in.readInt();
+            this.radius[i] = in.readInt();
+            this.stepsLeft[i] = in.readInt();
+            this.owner[i] = in.readInt();
+            this.stepsTilCollide[i] = in.readInt();
+            this.destroyed[i] = in.readBoolean();
+        }
+    }
+
+}
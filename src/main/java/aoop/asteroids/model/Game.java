@@ -2,27 +2,49 @@ package aoop.asteroids.model;
 
 import aoop.asteroids.controller.PlayerActions;
 
-import java.awt.*;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Observable;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public abstract class Game extends Observable implements Runnable, Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    // size of a spatial grid cell : larger than the largest asteroid and ship radius combined
+    private static final int GRID_CELL_SIZE = 80;
+    /**
+     * Tick rate the game mechanics are designed for : all velocities and
+     * durations are expressed in ticks of this rate.
+     */
+    public static final int BASE_TICK_RATE = 25;
+    /**
+     * Default maximum amount of steps simulated at once to catch up with real time.
+     */
+    public static final int DEFAULT_MAX_CATCH_UP_STEPS = 5;
+    /**
+     * Default width and height of the world, the size of the window.
+     */
+    public static final int DEFAULT_WORLD_SIZE = 800;
+
+    // rotation of successor velocities by a quarter turn, 50 percent faster (see LargeAsteroid)
+    private static final double SPLIT_COS = Math.cos(Math.PI / 2) * 1.5, SPLIT_SIN = Math.sin(Math.PI / 2) * 1.5;
+
     // all spaceships : one element in single player
     protected ArrayList<Spaceship> allSpaceships;
     // all players :
     protected ArrayList<Player> allPlayers;
-    protected ArrayList<Bullet> bullets;
-    // list of asteroids
-    protected ArrayList<Asteroid> asteroids;
+    // all bullets, owner is the id number of the ship that fired it
+    protected EntityStore bullets;
+    // all asteroids, the size of an asteroid is given by its radius
+    protected EntityStore asteroids;
     // random number generator
     private static Random rng;
     // game tick counter for spawning random asteroids
     private int cycleCounter;
+    // amount of simulation steps performed since the game was created
+    private int tick;
     // maximum number of asteroids
     protected int asteroidsLimit;
     // indicates whether a new game is about to be started
@@ -39,19 +61,45 @@ public abstract class Game extends Observable implements Runnable, Serializable
     private Boolean isWaiting;
     // is this a spectator
     private Boolean isSpectator;
+    // simulation steps per second, and maximum amount of steps to catch up at once
+    private int tickRate;
+    private int maxCatchUpSteps;
+    // size of the world : objects that leave it at one edge come back at the opposite edge
+    private int worldWidth, worldHeight;
+    // time at which the last simulation step started, for the interpolation factor
+    private transient volatile long lastStepTime;
+    // game loop state : time of the previous iteration and time not simulated yet, in nanoseconds
+    private transient long previousTime, lag;
+    // broad phase for collision detection : rebuilt every tick, never sent over the network
+    private transient SpatialGrid grid;
+    // the views drawing this game, they get a render snapshot at every update
+    private transient CopyOnWriteArrayList<RenderBuffer> renderBuffers;
 
     /**
      * Default constructor : initialises default values
      * called when spectate
      */
     public Game() {
+        this(true);
+    }
+
+    /**
+     * Constructor : initialises default values, without any players
+     * a game that is not spectated spawns asteroids itself (i.e. a dedicated server)
+     */
+    protected Game(Boolean isSpectator) {
         Game.rng = new Random();
         this.allSpaceships = new ArrayList<>();
         this.allPlayers = new ArrayList<>();
         this.isRunning = true;
         this.pointsTo = new ArrayList<>();
+        this.tickRate = BASE_TICK_RATE;
+        this.maxCatchUpSteps = DEFAULT_MAX_CATCH_UP_STEPS;
+        this.worldWidth = DEFAULT_WORLD_SIZE;
+        this.worldHeight = DEFAULT_WORLD_SIZE;
         this.initGameData();
-        this.isSpectator = true;
+        this.isSpectator = isSpectator;
+        this.isWaiting = !isSpectator;
     }
 
     /**
@@ -59,7 +107,7 @@ public abstract class Game extends Observable implements Runnable, Serializable
      * one player and its ship
      */
     public Game(Player player) {
-        this();
+        this(false);
         this.player = player;
         // assign the player a random id number
         this.createPlayerID(player);
@@ -76,8 +124,8 @@ public abstract class Game extends Observable implements Runnable, Serializable
         this.aborted = false;
         this.cycleCounter = 0;
         this.asteroidsLimit = 7;
-        this.bullets = new ArrayList<>();
-        this.asteroids = new ArrayList<>();
+        this.bullets = new EntityStore();
+        this.asteroids = new EntityStore();
         this.reinitShips();
     }
 
@@ -89,33 +137,39 @@ public abstract class Game extends Observable implements Runnable, Serializable
         s.setIdNumber(player.getIdNumber());
         s.setColor(player.getColor());
         s.setName(player.getName());
+        s.setStepsTilCollide(this.ticksToSteps(EntityStore.STEPS_TIL_COLLIDE));
         this.allSpaceships.add(s);
     }
 
     public void reinitShips() {
         for (Spaceship s : this.allSpaceships) {
             s.reinit();
+            s.setStepsTilCollide(this.ticksToSteps(EntityStore.STEPS_TIL_COLLIDE));
         }
     }
 
     /**
-     * Returns a clone of the asteroid set, preserving encapsulation.
+     * Returns a copy of the asteroid set as asteroid objects, preserving encapsulation.
      */
     public ArrayList<Asteroid> getAsteroids() {
         ArrayList<Asteroid> c = new ArrayList<>();
-        for (Asteroid a : this.asteroids) {
-            c.add(a.clone());
+        for (int i = 0; i < this.asteroids.size(); i++) {
+            Asteroid a = Asteroid.create(this.asteroids.getX(i), this.asteroids.getY(i), this.asteroids.getVelocityX(i), this.asteroids.getVelocityY(i), this.asteroids.getRadius(i));
+            a.setEntityId(this.asteroids.getId(i));
+            c.add(a);
         }
         return c;
     }
 
     /**
-     * Returns a clone of the bullet set, preserving encapsulation.
+     * Returns a copy of the bullet set as bullet objects, preserving encapsulation.
      */
     public ArrayList<Bullet> getBullets() {
         ArrayList<Bullet> c = new ArrayList<>();
-        for (Bullet b : this.bullets) {
-            c.add(b.clone());
+        for (int i = 0; i < this.bullets.size(); i++) {
+            Bullet b = new Bullet(this.bullets.getOwner(i), this.bullets.getX(i), this.bullets.getY(i), this.bullets.getVelocityX(i), this.bullets.getVelocityY(i), this.bullets.getStepsLeft(i));
+            b.setEntityId(this.bullets.getId(i));
+            c.add(b);
         }
         return c;
     }
@@ -150,35 +204,41 @@ public abstract class Game extends Observable implements Runnable, Serializable
      * 200th game tick.
      */
     public void update() {
-        for (int i = 0; i < this.asteroids.size(); i++) {
-            this.asteroids.get(i).nextStep();
-        }
-        for (int i = 0; i < this.bullets.size(); i++) {
-            this.bullets.get(i).nextStep();
-        }
+        this.step();
+        this.updateObservable();
+    }
+
+    /**
+     * Performs one simulation step, see {@link #update()}, without notifying
+     * the observers. Every step lasts {@link #getStepScale()} game ticks.
+     */
+    protected void step() {
+        double scale = this.getStepScale();
+        this.tick++;
+        this.asteroids.integrate(this.worldWidth, this.worldHeight, scale);
+        this.bullets.integrate(this.worldWidth, this.worldHeight, scale);
 
         for (int i = 0; i < this.allSpaceships.size(); i++) {
-            if (!this.allSpaceships.get(i).isDestroyed()) {
-                if (this.allSpaceships.get(i).isFiring()) {
-                    double direction = this.allSpaceships.get(i).getDirection();
-                    this.bullets.add(new Bullet(this.allSpaceships.get(i).getIdNumber(), this.allSpaceships.get(i).getLocation(), this.allSpaceships.get(i).getVelocityX() + Math.sin(direction) * 15, this.allSpaceships.get(i).getVelocityY() - Math.cos(direction) * 15));
-                    this.allSpaceships.get(i).setFired();
+            Spaceship s = this.allSpaceships.get(i);
+            if (!s.isDestroyed()) {
+                if (s.isFiring()) {
+                    double direction = s.getDirection();
+                    this.bullets.add(s.getX(), s.getY(), s.getVelocityX() + Math.sin(direction) * 15, s.getVelocityY() - Math.cos(direction) * 15, 0, this.ticksToSteps(Bullet.STEPS_TO_LIVE), s.getIdNumber(), this.ticksToSteps(EntityStore.STEPS_TIL_COLLIDE));
+                    s.setFired(this.ticksToSteps(Spaceship.FIRE_DELAY));
                 }
             }
-            this.allSpaceships.get(i).nextStep();
+            s.nextStep(scale, this.worldWidth, this.worldHeight);
         }
 
 
         this.checkCollisions();
         this.removeDestroyedObjects();
 
-        if (this.cycleCounter == 0 && this.asteroids.size() < this.asteroidsLimit && !this.isSpectator) {
+        if (this.cycleCounter == 0 && this.asteroids.size() < this.asteroidsLimit && !this.isSpectator && !this.allSpaceships.isEmpty()) {
             this.addRandomAsteroid();
         }
         this.cycleCounter++;
-        this.cycleCounter %= 200;
-
-        this.updateObservable();
+        this.cycleCounter %= this.ticksToSteps(200);
     }
 
 
@@ -190,21 +250,25 @@ public abstract class Game extends Observable implements Runnable, Serializable
         int prob = Game.rng.nextInt(3000);
         // add it relatively to a randomly selected ship
         int relativeToShip = Game.rng.nextInt(this.allSpaceships.size());
-        Point loc, shipLoc = this.allSpaceships.get(relativeToShip).getLocation();
-        int x, y;
+        Spaceship relative = this.allSpaceships.get(relativeToShip);
+        int locX, locY;
+        double x, y;
         do {
-            loc = new Point(Game.rng.nextInt(800), Game.rng.nextInt(800));
-            x = loc.x - shipLoc.x;
-            y = loc.y - shipLoc.y;
-        } while (Math.sqrt(x * x + y * y) < 50);
+            locX = Game.rng.nextInt(this.worldWidth);
+            locY = Game.rng.nextInt(this.worldHeight);
+            x = locX - relative.getX();
+            y = locY - relative.getY();
+        } while (x * x + y * y < 50 * 50);
 
+        int radius;
         if (prob < 1000) {
-            this.asteroids.add(new LargeAsteroid(loc, Game.rng.nextDouble() * 6 - 3, Game.rng.nextDouble() * 6 - 3));
+            radius = LargeAsteroid.RADIUS;
         } else if (prob < 2000) {
-            this.asteroids.add(new MediumAsteroid(loc, Game.rng.nextDouble() * 6 - 3, Game.rng.nextDouble() * 6 - 3));
+            radius = MediumAsteroid.RADIUS;
         } else {
-            this.asteroids.add(new SmallAsteroid(loc, Game.rng.nextDouble() * 6 - 3, Game.rng.nextDouble() * 6 - 3));
+            radius = SmallAsteroid.RADIUS;
         }
+        this.asteroids.add(locX, locY, Game.rng.nextDouble() * 6 - 3, Game.rng.nextDouble() * 6 - 3, radius, EntityStore.NO_TTL, 0, this.ticksToSteps(EntityStore.STEPS_TIL_COLLIDE));
     }
 
     /**
@@ -214,60 +278,85 @@ public abstract class Game extends Observable implements Runnable, Serializable
      * bullets etc.
      */
     private void checkCollisions() {
+        SpatialGrid grid = this.getGrid();
+        grid.build(this.asteroids);
         // For all bullets.
         for (int i = 0; i < this.bullets.size(); i++) {
-            // Check all bullet - asteroid combinations.
-            for (int j = 0; j < this.asteroids.size(); j++) {
-                if (this.asteroids.get(j).collides(this.bullets.get(i))) {
-                    this.asteroids.get(j).destroy();
-                    this.bullets.get(i).destroy();
-                    this.pointsTo.add(this.bullets.get(i).getIdNumber());
+            // Check the bullet - asteroid combinations that are close enough to collide.
+            int candidates = grid.query(this.bullets.getX(i), this.bullets.getY(i), this.bullets.getRadius(i));
+            for (int k = 0; k < candidates; k++) {
+                int j = grid.getCandidate(k);
+                if (this.asteroids.collides(j, this.bullets, i)) {
+                    this.asteroids.destroy(j);
+                    this.bullets.destroy(i);
+                    this.pointsTo.add(this.bullets.getOwner(i));
                 }
             }
         }
         checkSpecificCollisions();
     }
 
+    /**
+     * Returns the spatial grid used for the broad phase of the collision
+     * checks, creating it when needed (i.e. after deserialization).
+     */
+    protected SpatialGrid getGrid() {
+        if (this.grid == null) {
+            this.grid = new SpatialGrid(this.worldWidth, this.worldHeight, Game.GRID_CELL_SIZE);
+        }
+        return this.grid;
+    }
+
     /**
      * Removes all destroyed objects. Destroyed asteroids increase the score
      * and spawn two smaller asteroids if it wasn't a small asteroid. New
      * asteroids are faster than their predecessor and travel in opposite
-     * direction.
+     * direction. All removals happen in place, no lists are rebuilt.
      */
     private void removeDestroyedObjects() {
-        ArrayList<Asteroid> newAsts = new ArrayList<>();
-        for (Asteroid a : this.asteroids) {
-            if (a.isDestroyed()) {
+        int i = 0;
+        while (i < this.asteroids.size()) {
+            if (this.asteroids.isDestroyed(i)) {
                 this.increaseScore();
-                ArrayList<Asteroid> successors = a.getSuccessors();
-                newAsts.addAll(successors);
+                this.addSuccessors(i);
+                // the successors are appended at the end, so removing i does not affect them
+                this.asteroids.remove(i);
             } else {
-                newAsts.add(a);
+                i++;
             }
         }
 
-        this.asteroids = newAsts;
-
-        ArrayList<Bullet> newBuls = new ArrayList<>();
-        for (Bullet b : this.bullets) {
-            if (!b.isDestroyed()) {
-                newBuls.add(b);
-            }
-        }
-
-        this.bullets = newBuls;
+        this.bullets.removeDestroyed();
 
         // when a ship is removed, also remove the player
-        ArrayList<Spaceship> newShips = new ArrayList<>();
-        for (Spaceship s : this.allSpaceships) {
+        int kept = 0;
+        for (int j = 0; j < this.allSpaceships.size(); j++) {
+            Spaceship s = this.allSpaceships.get(j);
             if (!s.isDestroyed()) {
-                newShips.add(s);
+                this.allSpaceships.set(kept++, s);
             } else {
                 removePlayer(s.getIdNumber());
             }
         }
+        while (this.allSpaceships.size() > kept) {
+            this.allSpaceships.remove(this.allSpaceships.size() - 1);
+        }
+    }
 
-        this.allSpaceships = newShips;
+    /**
+     * Adds the two successors of the given asteroid, if it has any. They are
+     * the same as the ones returned by Asteroid.getSuccessors().
+     */
+    private void addSuccessors(int i) {
+        int radius = Asteroid.getSuccessorRadius(this.asteroids.getRadius(i));
+        if (radius == 0) {
+            return;
+        }
+        double x = this.asteroids.getX(i), y = this.asteroids.getY(i);
+        double vx = this.asteroids.getVelocityX(i), vy = this.asteroids.getVelocityY(i);
+        int delay = this.ticksToSteps(EntityStore.STEPS_TIL_COLLIDE);
+        this.asteroids.add(x, y, vx * SPLIT_COS - vy * SPLIT_SIN, vx * SPLIT_SIN + vy * SPLIT_COS, radius, EntityStore.NO_TTL, 0, delay);
+        this.asteroids.add(x, y, vx * SPLIT_COS + vy * SPLIT_SIN, -vx * SPLIT_SIN + vy * SPLIT_COS, radius, EntityStore.NO_TTL, 0, delay);
     }
 
     /**
@@ -284,38 +373,27 @@ public abstract class Game extends Observable implements Runnable, Serializable
      * If the game is aborted or the player died, it will wait 100
      * milliseconds before reevaluating and continuing the simulation.
      * <p>
-     * While the game is not aborted and the player is still alive, it will
-     * measure the time it takes the program to perform a game tick and wait
-     * 40 minus execution time milliseconds to do it all over again. This
-     * allows the game to update every 40th millisecond, thus keeping a steady
-     * 25 frames per second.
+     * While the game is not aborted and the player is still alive, it runs a
+     * fixed time step loop : the time that passed since the previous
+     * iteration is measured with System.nanoTime() and as many simulation
+     * steps as fit in that time are performed, so a slow tick is caught up
+     * with afterwards. At most getMaxCatchUpSteps() steps are done at once,
+     * any time left beyond that is dropped. Observers are notified once per
+     * iteration.
+     * <p>
+     * The tick rate can be changed with setTickRate(...) without changing
+     * the speed of the game : every step is scaled to the length of a game
+     * tick at the base rate of 25 ticks per second.
      * <p>
-     * Decrease waiting time to increase fps. Note
-     * however, that all game mechanics will be faster as well. I.e. asteroids
-     * will travel faster, bullets will travel faster and the spaceship may
-     * not be as easy to control.
+     * A game can also be driven without a thread of its own, see startLoop() and advance().
      */
     public void run() {
-        // Update -> sleep -> update -> sleep -> etc...
-        long executionTime, sleepTime;
-        // thread was started, set boolean to false
-        this.isWaiting = false;
+        // step -> sleep -> step -> sleep -> etc...
+        this.startLoop();
         while (this.isRunning) {
-            if (!this.gameOver() && !this.aborted) {
-                executionTime = System.currentTimeMillis();
-                this.update();
-                executionTime -= System.currentTimeMillis();
-                sleepTime = Math.max(0, 40 + executionTime);
-            } else {
-                sleepTime = 100;
-                if (!this.isSpectator) {
-                    endGameUpdates();
-                    this.updateObservable();
-                }
-            }
-
+            long sleepTime = this.advance();
             try {
-                Thread.sleep(sleepTime);
+                Thread.sleep(sleepTime / 1000000L, (int) (sleepTime % 1000000L));
             } catch (InterruptedException e) {
                 System.err.println("Could not perform action: Thread.sleep(...)");
                 System.err.println("The thread that needed to sleep is the game thread, responsible for the game loop (update -> wait -> update -> etc).");
@@ -324,6 +402,150 @@ public abstract class Game extends Observable implements Runnable, Serializable
         }
     }
 
+    /**
+     * Prepares the game loop : to be called once, right before the first call to advance()
+     */
+    public void startLoop() {
+        // thread was started, set boolean to false
+        this.isWaiting = false;
+        // the tick rate may have changed since the ships were added : their spawn protection lasts as long at every rate
+        for (Spaceship s : this.allSpaceships) {
+            s.setStepsTilCollide(this.ticksToSteps(EntityStore.STEPS_TIL_COLLIDE));
+        }
+        this.previousTime = System.nanoTime();
+        this.lastStepTime = this.previousTime;
+        this.lag = 0;
+    }
+
+    /**
+     * Performs one iteration of the game loop, see run() : all the simulation
+     * steps that are due by now, or the end of game updates once it is over.
+     *
+     * @return the time in nanoseconds until the next iteration is due.
+     */
+    public long advance() {
+        // the tick rate may have been changed in the meantime
+        long stepTime = 1000000000L / this.tickRate;
+        long currentTime = System.nanoTime();
+        this.lag += currentTime - this.previousTime;
+        this.previousTime = currentTime;
+
+        if (!this.gameOver() && !this.aborted) {
+            int steps = 0;
+            while (this.lag >= stepTime && steps < this.maxCatchUpSteps) {
+                this.lastStepTime = System.nanoTime();
+                this.step();
+                this.lag -= stepTime;
+                steps++;
+            }
+            if (this.lag >= stepTime) {
+                // too far behind : drop the backlog, but keep the phase
+                this.lag %= stepTime;
+            }
+            if (steps > 0) {
+                this.updateObservable();
+            }
+            return stepTime - this.lag;
+        }
+
+        this.lag = 0;
+        if (!this.isSpectator) {
+            endGameUpdates();
+            this.updateObservable();
+        }
+        return 100000000L;
+    }
+
+    /**
+     * Returns false once the game loop should stop, i.e. the multi-player game is over
+     */
+    public boolean isRunning() {
+        return this.isRunning;
+    }
+
+    /**
+     * Converts a duration in game ticks at the base tick rate to an amount
+     * of simulation steps at the current tick rate.
+     */
+    protected int ticksToSteps(int ticks) {
+        return Math.max(1, Math.round(ticks * (float) this.tickRate / BASE_TICK_RATE));
+    }
+
+    /**
+     * Returns the length of a simulation step in game ticks at the base tick rate.
+     */
+    public double getStepScale() {
+        return BASE_TICK_RATE / (double) this.tickRate;
+    }
+
+    /**
+     * Returns how far the current time is between the last simulation step
+     * and the next one, between 0 and 1. The view can use it to interpolate
+     * the locations of the objects.
+     */
+    public double getInterpolationAlpha() {
+        if (this.lastStepTime == 0) {
+            return 0;
+        }
+        double alpha = (System.nanoTime() - this.lastStepTime) / (1000000000.0 / this.tickRate);
+        return Math.max(0, Math.min(1, alpha));
+    }
+
+    /**
+     * Set the amount of simulation steps per second, does not change the game speed.
+     */
+    public void setTickRate(int tickRate) {
+        if (tickRate < 1) {
+            throw new IllegalArgumentException("Tick rate must be at least 1, got " + tickRate);
+        }
+        this.tickRate = tickRate;
+    }
+
+    public int getTickRate() {
+        return this.tickRate;
+    }
+
+    /**
+     * Set the size of the world, before the game starts : a client gets the size of the host with the snapshots
+     */
+    public void setWorldSize(int width, int height) {
+        if (width < GRID_CELL_SIZE || height < GRID_CELL_SIZE) {
+            throw new IllegalArgumentException("World size must be at least " + GRID_CELL_SIZE + ", got " + width + "x" + height);
+        }
+        if (width != this.worldWidth || height != this.worldHeight) {
+            this.worldWidth = width;
+            this.worldHeight = height;
+            // the grid covers the world
+            this.grid = null;
+        }
+    }
+
+    public int getWorldWidth() {
+        return this.worldWidth;
+    }
+
+    public int getWorldHeight() {
+        return this.worldHeight;
+    }
+
+    /**
+     * Returns the amount of simulation steps performed since the game was created
+     */
+    public int getTick() {
+        return this.tick;
+    }
+
+    /**
+     * Set the maximum amount of simulation steps performed at once to catch up after a slow step.
+     */
+    public void setMaxCatchUpSteps(int maxCatchUpSteps) {
+        this.maxCatchUpSteps = Math.max(1, maxCatchUpSteps);
+    }
+
+    public int getMaxCatchUpSteps() {
+        return this.maxCatchUpSteps;
+    }
+
     /**
      * Create an unique ID for each player
      */
@@ -339,13 +561,48 @@ public abstract class Game extends Observable implements Runnable, Serializable
     }
 
     /**
-     * Notify observers
+     * Publish a render snapshot to the views, notify observers
      */
     public void updateObservable() {
+        if (this.renderBuffers != null) {
+            for (RenderBuffer buffer : this.renderBuffers) {
+                this.publish(buffer);
+            }
+        }
         this.setChanged();
         this.notifyObservers();
     }
 
+    /**
+     * Writes a render snapshot of the current state to the buffer, on the thread that updates the game
+     */
+    protected void publish(RenderBuffer buffer) {
+        buffer.publish(this);
+    }
+
+    /**
+     * Returns a new buffer that gets a render snapshot of this game at every update, starting with the current state
+     * every thread that draws the game needs a buffer of its own
+     */
+    public synchronized RenderBuffer openRenderBuffer() {
+        if (this.renderBuffers == null) {
+            this.renderBuffers = new CopyOnWriteArrayList<>();
+        }
+        RenderBuffer buffer = new RenderBuffer();
+        this.publish(buffer);
+        this.renderBuffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * Stop publishing render snapshots to the given buffer
+     */
+    public synchronized void closeRenderBuffer(RenderBuffer buffer) {
+        if (this.renderBuffers != null) {
+            this.renderBuffers.remove(buffer);
+        }
+    }
+
     /**
      * Set the current ship to the controller
      */
@@ -357,7 +614,7 @@ public abstract class Game extends Observable implements Runnable, Serializable
      * Returns a boolean to check whether the player won the game or not.
      */
     public Boolean isWon() {
-        if (this.allPlayers.size() > 0) {
+        if (this.player != null && this.allPlayers.size() > 0) {
             return this.player.getIdNumber() == this.allPlayers.get(0).getIdNumber();
         }
         // maybe last players died hit by the same asteroid
@@ -50,6 +50,13 @@ public abstract class GameObject implements Serializable {
      */
     protected int stepsTilCollide;
 
+    /**
+     * Unique id of the object among the objects of its kind (asteroids or
+     * bullets), see EntityStore. Spaceships are identified by their id
+     * number instead.
+     */
+    protected int entityId;
+
     /**
      * Constructs a new game object with the specified location, velocity and
      * radius.
@@ -60,8 +67,22 @@ public abstract class GameObject implements Serializable {
      * @param radius    radius of the object.
      */
     protected GameObject(Point location, double velocityX, double velocityY, int radius) {
-        this.locationX = location.x;
-        this.locationY = location.y;
+        this(location.x, location.y, velocityX, velocityY, radius);
+    }
+
+    /**
+     * Constructs a new game object with the specified location, velocity and
+     * radius, without going through a java.awt.Point.
+     *
+     * @param locationX location on the X axis.
+     * @param locationY location on the Y axis.
+     * @param velocityX velocity in X direction.
+     * @param velocityY velocity in Y direction.
+     * @param radius    radius of the object.
+     */
+    protected GameObject(double locationX, double locationY, double velocityX, double velocityY, int radius) {
+        this.locationX = locationX;
+        this.locationY = locationY;
         this.velocityX = velocityX;
         this.velocityY = velocityY;
         this.radius = radius;
@@ -99,6 +120,26 @@ public abstract class GameObject implements Serializable {
         return new Point((int) this.locationX, (int) this.locationY);
     }
 
+    /**
+     * Returns the location on the X axis. Unlike {@link #getLocation()} this
+     * does not allocate and does not truncate the location.
+     *
+     * @return the location on the X axis.
+     */
+    public double getX() {
+        return this.locationX;
+    }
+
+    /**
+     * Returns the location on the Y axis. Unlike {@link #getLocation()} this
+     * does not allocate and does not truncate the location.
+     *
+     * @return the location on the Y axis.
+     */
+    public double getY() {
+        return this.locationY;
+    }
+
     /**
      * Returns the velocity in X direction.
      *
@@ -130,18 +171,38 @@ public abstract class GameObject implements Serializable {
      * Given some other game object, this method checks whether the current
      * object and the given object collide with each other. It does this by
      * measuring the distance between the objects and checking whether it is
-     * larger than the sum of the radii. Furthermore both objects should be
+     * larger than the sum of the radii. Both distances are compared squared,
+     * so no square root is needed. Furthermore both objects should be
      * allowed to collide.
      *
      * @param other the other object that it may collide with.
      * @return true if object collides with given object, false otherwise.
      */
     public boolean collides(GameObject other) {
-        double distX = this.locationX - other.getLocation().x;
-        double distY = this.locationY - other.getLocation().y;
-        double distance = Math.sqrt(distX * distX + distY * distY);
+        if (this.stepsTilCollide() != 0 || other.stepsTilCollide() != 0) {
+            return false;
+        }
+        double distX = this.locationX - other.locationX;
+        double distY = this.locationY - other.locationY;
+        int radii = this.getRadius() + other.getRadius();
+
+        return distX * distX + distY * distY < radii * radii;
+    }
 
-        return distance < this.getRadius() + other.getRadius() && this.stepsTilCollide() == 0 && other.stepsTilCollide() == 0;
+    /**
+     * Returns the unique id of the object among the objects of its kind.
+     *
+     * @return the entity id, 0 if the object does not have one.
+     */
+    public int getEntityId() {
+        return this.entityId;
+    }
+
+    /**
+     * Sets the unique id of the object among the objects of its kind.
+     */
+    void setEntityId(int entityId) {
+        this.entityId = entityId;
     }
 
     /**
@@ -0,0 +1,63 @@
+package aoop.asteroids.model;
+
+/**
+ * InputHistory keeps the action flags (see PlayerActions) of the last
+ * simulation steps of the local ship by sequence number, in a ring. A joiner
+ * records an input every step and replays the ones the host did not apply
+ * yet on top of every received state, see MultiPlayerGame.applyState(...).
+ */
+public class InputHistory {
+
+    /**
+     * Amount of inputs that are kept : at 25 ticks per second, a round trip
+     * of about five seconds.
+     */
+    public static final int CAPACITY = 128;
+
+    private final int[] flags;
+    // sequence number of the newest input, 0 before the first one
+    private volatile int newest;
+
+    /**
+     * Constructor : no inputs yet
+     */
+    public InputHistory() {
+        this.flags = new int[CAPACITY];
+    }
+
+    /**
+     * Records the input with the next sequence number, replacing the input
+     * that is CAPACITY steps older.
+     *
+     * @return the sequence number of the recorded input.
+     */
+    public int record(int actionFlags) {
+        int sequence = this.newest + 1;
+        this.flags[sequence & (CAPACITY - 1)] = actionFlags;
+        // written last : a reader that sees the sequence number sees the flags
+        this.newest = sequence;
+        return sequence;
+    }
+
+    /**
+     * Returns the flags of the input with the given sequence number, between getOldest() and getNewest()
+     */
+    public int getFlags(int sequence) {
+        return this.flags[sequence & (CAPACITY - 1)];
+    }
+
+    /**
+     * Returns the sequence number of the newest input, 0 before the first one
+     */
+    public int getNewest() {
+        return this.newest;
+    }
+
+    /**
+     * Returns the sequence number of the oldest input that is kept
+     */
+    public int getOldest() {
+        return Math.max(1, this.newest - CAPACITY + 1);
+    }
+
+}
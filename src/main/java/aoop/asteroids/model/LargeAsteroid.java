@@ -11,6 +11,11 @@ import java.util.ArrayList;
  */
 public class LargeAsteroid extends Asteroid {
 
+    /**
+     * Radius of a large asteroid.
+     */
+    public static final int RADIUS = 40;
+
     /**
      * Constructs a new large asteroid. I.e. the radius will be 40 pixels.
      *
@@ -19,7 +24,19 @@ public class LargeAsteroid extends Asteroid {
      * @param velocityY velocity in Y direction.
      */
     public LargeAsteroid(Point location, double velocityX, double velocityY) {
-        super(location, velocityX, velocityY, 40);
+        super(location, velocityX, velocityY, RADIUS);
+    }
+
+    /**
+     * Constructs a new large asteroid at the given coordinates.
+     *
+     * @param locationX location on the X axis.
+     * @param locationY location on the Y axis.
+     * @param velocityX velocity in X direction.
+     * @param velocityY velocity in Y direction.
+     */
+    public LargeAsteroid(double locationX, double locationY, double velocityX, double velocityY) {
+        super(locationX, locationY, velocityX, velocityY, RADIUS);
     }
 
     /**
@@ -34,9 +51,9 @@ public class LargeAsteroid extends Asteroid {
     @Override
     public ArrayList<Asteroid> getSuccessors() {
         ArrayList<Asteroid> list = new ArrayList<>();
-        list.add(new MediumAsteroid(this.getLocation(), this.getVelocityX() * Math.cos(Math.PI / 2) * 1.5 - this.getVelocityY() * Math.sin(Math.PI / 2) * 1.5,
+        list.add(new MediumAsteroid(this.getX(), this.getY(), this.getVelocityX() * Math.cos(Math.PI / 2) * 1.5 - this.getVelocityY() * Math.sin(Math.PI / 2) * 1.5,
                 this.getVelocityX() * Math.sin(Math.PI / 2) * 1.5 + this.getVelocityY() * Math.cos(Math.PI / 2) * 1.5));
-        list.add(new MediumAsteroid(this.getLocation(), this.getVelocityX() * Math.cos(-Math.PI / 2) * 1.5 - this.getVelocityY() * Math.sin(-Math.PI / 2) * 1.5,
+        list.add(new MediumAsteroid(this.getX(), this.getY(), this.getVelocityX() * Math.cos(-Math.PI / 2) * 1.5 - this.getVelocityY() * Math.sin(-Math.PI / 2) * 1.5,
                 this.getVelocityX() * Math.sin(-Math.PI / 2) * 1.5 + this.getVelocityY() * Math.cos(-Math.PI / 2) * 1.5));
         return list;
     }
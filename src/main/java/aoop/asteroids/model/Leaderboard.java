@@ -0,0 +1,274 @@
+package aoop.asteroids.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The players of a Database ordered by score, highest first, players with the same score by name.
+ * <p>
+ * The order is kept in a treap (a binary search tree balanced by random priorities) in which every node knows the
+ * size of its subtree, so the player at a rank and the rank of a player are both found in logarithmic time,
+ * as well as changing the score of a player. A page of the leaderboard then takes logarithmic time plus its size.
+ * <p>
+ * The methods are synchronized : the database updates the scores while a view reads them.
+ */
+public class Leaderboard {
+
+    private static class Node {
+        final String name;
+        final int score, priority;
+        int size;
+        Node left, right;
+
+        Node(String name, int score, int priority) {
+            this.name = name;
+            this.score = score;
+            this.priority = priority;
+            this.size = 1;
+        }
+    }
+
+    private final Random random = new Random();
+    // the root of the tree, and the node of every player by name
+    private Node root;
+    private final Map<String, Node> nodes = new HashMap<>();
+    // increased with every change, see getVersion()
+    private long version;
+
+    /**
+     * Constructor : an empty leaderboard
+     */
+    public Leaderboard() {
+    }
+
+    /**
+     * Constructor : a leaderboard of the given players
+     */
+    public Leaderboard(List<Player> players) {
+        for (Player p : players) {
+            this.update(p.getName(), p.getCurrentScore());
+        }
+    }
+
+    /**
+     * Set the score of a player, the player is added when it is not on the leaderboard yet
+     */
+    public synchronized void update(String name, int score) {
+        Node node = this.nodes.get(name);
+        if (node != null) {
+            if (node.score == score) {
+                return;
+            }
+            this.root = remove(this.root, node);
+        }
+        node = new Node(name, score, this.random.nextInt());
+        this.root = insert(this.root, node);
+        this.nodes.put(name, node);
+        this.version++;
+    }
+
+    /**
+     * Remove a player from the leaderboard
+     */
+    public synchronized void remove(String name) {
+        Node node = this.nodes.remove(name);
+        if (node != null) {
+            this.root = remove(this.root, node);
+            this.version++;
+        }
+    }
+
+    /**
+     * Returns the rank of a player, 0 for the highest score, or -1 when the player is not on the leaderboard
+     */
+    public synchronized int getRank(String name) {
+        Node node = this.nodes.get(name);
+        if (node == null) {
+            return -1;
+        }
+        int rank = 0;
+        Node current = this.root;
+        while (current != node) {
+            if (compare(node, current) < 0) {
+                current = current.left;
+            } else {
+                rank += size(current.left) + 1;
+                current = current.right;
+            }
+        }
+        return rank + size(node.left);
+    }
+
+    /**
+     * Returns the player at the given rank, with its name and score only
+     */
+    public synchronized Player get(int rank) {
+        if (rank < 0 || rank >= size(this.root)) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + size(this.root));
+        }
+        Node current = this.root;
+        while (true) {
+            int leftSize = size(current.left);
+            if (rank < leftSize) {
+                current = current.left;
+            } else if (rank == leftSize) {
+                return toPlayer(current);
+            } else {
+                rank -= leftSize + 1;
+                current = current.right;
+            }
+        }
+    }
+
+    /**
+     * Returns the players with the k highest scores, highest first
+     */
+    public List<Player> getTop(int k) {
+        return this.getRange(0, k);
+    }
+
+    /**
+     * Returns page n (from 0) of the leaderboard, when divided into pages of the given size
+     */
+    public List<Player> getPage(int n, int pageSize) {
+        return this.getRange(n * pageSize, pageSize);
+    }
+
+    /**
+     * Returns at most count players, from the given rank on
+     */
+    public synchronized List<Player> getRange(int first, int count) {
+        List<Player> players = new ArrayList<>(Math.max(0, Math.min(count, size(this.root) - first)));
+        if (first >= 0 && count > 0) {
+            collect(this.root, first, first + count, 0, players);
+        }
+        return players;
+    }
+
+    public synchronized int size() {
+        return size(this.root);
+    }
+
+    /**
+     * Returns a number that changes whenever the leaderboard changes, i.e. for a view to see whether to refresh
+     */
+    public synchronized long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Add the players of the subtree with ranks in [from, to) to the list, offset being the rank of its first node
+     */
+    private static void collect(Node node, int from, int to, int offset, List<Player> players) {
+        while (node != null && offset < to) {
+            int rank = offset + size(node.left);
+            if (from < rank) {
+                collect(node.left, from, to, offset, players);
+            }
+            if (rank >= from && rank < to) {
+                players.add(toPlayer(node));
+            }
+            // continue with the right subtree
+            offset = rank + 1;
+            node = node.right;
+        }
+    }
+
+    private static Player toPlayer(Node node) {
+        Player player = new Player(node.name, null);
+        player.setScore(node.score);
+        return player;
+    }
+
+    /**
+     * Order of the nodes : higher score first, then by name
+     */
+    private static int compare(Node a, Node b) {
+        if (a.score != b.score) {
+            return a.score > b.score ? -1 : 1;
+        }
+        return a.name.compareTo(b.name);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void resize(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    private static Node insert(Node root, Node node) {
+        if (root == null) {
+            return node;
+        }
+        if (compare(node, root) < 0) {
+            root.left = insert(root.left, node);
+            if (root.left.priority > root.priority) {
+                root = rotateRight(root);
+            }
+        } else {
+            root.right = insert(root.right, node);
+            if (root.right.priority > root.priority) {
+                root = rotateLeft(root);
+            }
+        }
+        resize(root);
+        return root;
+    }
+
+    private static Node remove(Node root, Node node) {
+        if (root == node) {
+            return merge(root.left, root.right);
+        }
+        if (compare(node, root) < 0) {
+            root.left = remove(root.left, node);
+        } else {
+            root.right = remove(root.right, node);
+        }
+        resize(root);
+        return root;
+    }
+
+    /**
+     * Merge two subtrees, every node of the left one ordered before every node of the right one
+     */
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            resize(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        resize(right);
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        resize(node);
+        resize(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        resize(node);
+        resize(right);
+        return right;
+    }
+
+}
@@ -0,0 +1,332 @@
+package aoop.asteroids.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Stores the players' highscores in a log file : every change is a record appended to the file, which is mapped
+ * into memory. The current score of every player is kept in a map, read from the log when the store is opened.
+ * <p>
+ * A record holds a type (put or delete), a score, the name of the player and a checksum. Opening the store
+ * replays the records up to the first one that is incomplete, i.e. the one being written when the process died;
+ * every call is forced to disk before it returns, a batch of scores at once.
+ * <p>
+ * Every put of a score makes the previous record of that player garbage : once the log holds twice as many
+ * records as there are players (and at least MIN_COMPACTION_RECORDS), it is compacted, i.e. rewritten to a new file
+ * with one record per player that then replaces the log.
+ */
+public class LogScoreStore implements ScoreStore {
+
+    /**
+     * The log is not compacted before it holds this many records
+     */
+    public static final int MIN_COMPACTION_RECORDS = 1024;
+
+    // file header : magic number ("ASTL") and version
+    private static final int MAGIC = 0x4153544c, VERSION = 1, HEADER_SIZE = 8;
+    // record : type, score, length of the name, the name in UTF-8, checksum of everything before it
+    private static final byte PUT = 1, DELETE = 2;
+    private static final int RECORD_HEADER_SIZE = 7, CHECKSUM_SIZE = 4;
+    private static final int INITIAL_SIZE = 1 << 16;
+
+    private final File file;
+    private FileChannel channel;
+    private MappedByteBuffer log;
+    // where the next record is written, and the amount of records before it
+    private int end, recordCount;
+    // the score of every player by name
+    private final Map<String, Integer> scores = new LinkedHashMap<>();
+    private final CRC32 checksum = new CRC32();
+    // set when a compaction failed : the log keeps growing instead of failing every later write
+    private boolean isCompactionDisabled;
+
+    /**
+     * Open the log at the given path, created when it does not exist.
+     */
+    public LogScoreStore(String path) {
+        this.file = new File(path);
+        try {
+            this.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Score log " + path + " could not be opened", e);
+        }
+    }
+
+    /**
+     * Map the file and replay its records
+     */
+    private void open() throws IOException {
+        this.channel = new RandomAccessFile(this.file, "rw").getChannel();
+        boolean isNew = this.channel.size() == 0;
+        this.log = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(this.channel.size(), INITIAL_SIZE));
+        this.scores.clear();
+        this.recordCount = 0;
+        if (isNew) {
+            this.log.putInt(0, MAGIC);
+            this.log.putInt(4, VERSION);
+            this.end = HEADER_SIZE;
+            this.log.force();
+            return;
+        }
+        if (this.log.getInt(0) != MAGIC || this.log.getInt(4) != VERSION) {
+            this.channel.close();
+            throw new IOException(this.file + " is not a score log");
+        }
+
+        int position = HEADER_SIZE;
+        int length;
+        while ((length = this.readRecord(position)) > 0) {
+            position += length;
+            this.recordCount++;
+        }
+        this.end = position;
+        // clear what is left of an incomplete record, so it is not mistaken for a record after the next one
+        for (int i = this.end; i < this.log.capacity(); i++) {
+            if (this.log.get(i) != 0) {
+                this.log.put(i, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Apply the record at the given position to the scores
+     *
+     * @return the length of the record, or 0 when there is no complete record at the position.
+     */
+    private int readRecord(int position) {
+        int capacity = this.log.capacity();
+        if (position + RECORD_HEADER_SIZE + CHECKSUM_SIZE > capacity) {
+            return 0;
+        }
+        byte type = this.log.get(position);
+        if (type != PUT && type != DELETE) {
+            return 0;
+        }
+        int score = this.log.getInt(position + 1);
+        int nameLength = this.log.getShort(position + 5) & 0xffff;
+        int length = RECORD_HEADER_SIZE + nameLength + CHECKSUM_SIZE;
+        if (position + length > capacity) {
+            return 0;
+        }
+        byte[] bytes = new byte[RECORD_HEADER_SIZE + nameLength];
+        ByteBuffer source = this.log.duplicate();
+        source.position(position);
+        source.get(bytes);
+        this.checksum.reset();
+        this.checksum.update(bytes, 0, bytes.length);
+        if ((int) this.checksum.getValue() != this.log.getInt(position + bytes.length)) {
+            return 0;
+        }
+
+        String name = new String(bytes, RECORD_HEADER_SIZE, nameLength, StandardCharsets.UTF_8);
+        if (type == PUT) {
+            this.scores.put(name, score);
+        } else {
+            this.scores.remove(name);
+        }
+        return length;
+    }
+
+    /**
+     * Returns the bytes of a record
+     */
+    private byte[] encode(byte type, String name, int score) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > 0xffff) {
+            throw new IllegalArgumentException("Name of player is too long: " + nameBytes.length + " bytes");
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + nameBytes.length + CHECKSUM_SIZE);
+        record.put(type).putInt(score).putShort((short) nameBytes.length).put(nameBytes);
+        this.checksum.reset();
+        this.checksum.update(record.array(), 0, record.position());
+        record.putInt((int) this.checksum.getValue());
+        return record.array();
+    }
+
+    /**
+     * Append a record to the log, the mapping is grown when it is full. Not forced to disk yet, see commit().
+     */
+    private void append(byte type, String name, int score) {
+        byte[] record = this.encode(type, name, score);
+        if (this.end + record.length > this.log.capacity()) {
+            long size = Math.max(2L * this.log.capacity(), this.end + record.length);
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Score log " + this.file + " is full");
+            }
+            try {
+                this.log.force();
+                this.log = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Score log " + this.file + " could not be grown", e);
+            }
+        }
+        ByteBuffer target = this.log.duplicate();
+        target.position(this.end);
+        target.put(record);
+        this.end += record.length;
+        this.recordCount++;
+    }
+
+    /**
+     * Force the appended records to disk, and compact the log when it holds enough garbage
+     */
+    private void commit() {
+        this.log.force();
+        if (!this.isCompactionDisabled && this.recordCount >= MIN_COMPACTION_RECORDS && this.recordCount > 2 * this.scores.size()) {
+            this.compact();
+        }
+    }
+
+    /**
+     * Rewrite the log with one record per player : to a new file, which then replaces the log.
+     * When that fails (i.e. a mapped file cannot be replaced on Windows) the log is opened again as it was,
+     * and it is no longer compacted by this store
+     */
+    private void compact() {
+        File compacted = new File(this.file.getPath() + ".compact");
+        try {
+            try (FileChannel out = new RandomAccessFile(compacted, "rw").getChannel()) {
+                out.truncate(0);
+                ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+                buffer.putInt(MAGIC).putInt(VERSION);
+                for (Map.Entry<String, Integer> entry : this.scores.entrySet()) {
+                    byte[] record = this.encode(PUT, entry.getKey(), entry.getValue());
+                    if (buffer.remaining() < record.length) {
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            out.write(buffer);
+                        }
+                        buffer.clear();
+                    }
+                    if (record.length > buffer.capacity()) {
+                        out.write(ByteBuffer.wrap(record));
+                    } else {
+                        buffer.put(record);
+                    }
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+            this.channel.close();
+            Files.move(compacted.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            this.isCompactionDisabled = true;
+            try {
+                Files.deleteIfExists(compacted.toPath());
+                if (!this.channel.isOpen()) {
+                    this.open();
+                }
+            } catch (IOException reopen) {
+                e.addSuppressed(reopen);
+            }
+            throw new UncheckedIOException("Score log " + this.file + " could not be compacted", e);
+        }
+        try {
+            this.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Compacted score log " + this.file + " could not be opened", e);
+        }
+    }
+
+    public List<Player> getPlayers() {
+        List<Player> players = new ArrayList<>(this.scores.size());
+        for (Map.Entry<String, Integer> entry : this.scores.entrySet()) {
+            Player player = new Player(entry.getKey(), null);
+            player.setScore(entry.getValue());
+            players.add(player);
+        }
+        return players;
+    }
+
+    public boolean addPlayer(Player player) {
+        if (this.scores.containsKey(player.getName())) {
+            return false;
+        }
+        this.append(PUT, player.getName(), player.getCurrentScore());
+        this.scores.put(player.getName(), player.getCurrentScore());
+        this.commit();
+        return true;
+    }
+
+    public int findScore(String name) {
+        Integer score = this.scores.get(name);
+        return score != null ? score : NO_SCORE;
+    }
+
+    public boolean updateScore(String name, int score) {
+        Integer current = this.scores.get(name);
+        if (current == null || current > score) {
+            return false;
+        }
+        this.append(PUT, name, score);
+        this.scores.put(name, score);
+        this.commit();
+        return true;
+    }
+
+    /**
+     * The records of the scores are forced to disk at once; when the process dies while they are being written,
+     * the ones that were written completely are kept.
+     */
+    public Map<String, Integer> updateScores(Map<String, Integer> scores) {
+        Map<String, Integer> updated = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+            Integer current = this.scores.get(entry.getKey());
+            if (current != null && current <= entry.getValue()) {
+                this.append(PUT, entry.getKey(), entry.getValue());
+                this.scores.put(entry.getKey(), entry.getValue());
+                updated.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (!updated.isEmpty()) {
+            this.commit();
+        }
+        return updated;
+    }
+
+    public boolean deletePlayer(String name) {
+        if (!this.scores.containsKey(name)) {
+            return false;
+        }
+        this.append(DELETE, name, 0);
+        this.scores.remove(name);
+        this.commit();
+        return true;
+    }
+
+    /**
+     * Close the file. The mapping itself is released once it is garbage collected.
+     */
+    public void close() {
+        this.log.force();
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            System.err.println("Score log could not be closed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the amount of records in the log, including the ones that are garbage
+     */
+    public int getRecordCount() {
+        return this.recordCount;
+    }
+
+}
@@ -4,6 +4,7 @@ import aoop.asteroids.controller.PlayerActions;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class MultiPlayerGame extends Game {
 
@@ -12,6 +13,14 @@ public class MultiPlayerGame extends Game {
     private PlayerActions controller;
     private Boolean shouldEnd, isConnected, isHost;
     private transient Database database;
+    // joiner : the inputs of the local ship, replayed on top of every state received from the host
+    private transient InputHistory inputs;
+    // guards the objects of the game : stepped by the game thread, replaced by the network thread
+    private final transient Object stateLock = new Object();
+    // host : players that joined over the network, added by the game thread when the game starts
+    private final transient ConcurrentLinkedQueue<Player> joined = new ConcurrentLinkedQueue<>();
+    // joiner : set when the host rejected the join, its game was running already
+    private transient volatile boolean isRejected;
 
     /**
      * Default constructor : for spectate game
@@ -24,6 +33,18 @@ public class MultiPlayerGame extends Game {
 
     }
 
+    /**
+     * Constructor for a dedicated server : there is no local player,
+     * all players join over the network and are stored in the given database
+     */
+    public MultiPlayerGame(Database database) {
+        super(false);
+        this.shouldEnd = false;
+        this.isConnected = true;
+        this.isHost = true;
+        this.database = database;
+    }
+
     /**
      * Constructor : call the superclass constructor
      */
@@ -39,42 +60,156 @@ public class MultiPlayerGame extends Game {
         // assign this to false : see gameOver method
         this.shouldEnd = false;
         if (this.isHost) {
-            this.database = new Database();
+            this.database = Database.open(Database.DEFAULT_PATH);
             this.database.addPlayer(this.getLocalPlayer());
         } else {
             this.database = null;
+            this.inputs = new InputHistory();
+        }
+
+    }
+
+    /**
+     * A player joined over the network : it is queued, and added with its ship by the thread that steps the game,
+     * so the players and ships are never changed while they are being stepped or sent
+     *
+     * @return false once the game started : players can only join a game that is waiting to start.
+     */
+    public boolean addPlayer(Player player) {
+        synchronized (this.stateLock) {
+            if (!this.getIsWaiting()) {
+                return false;
+            }
+            this.joined.add(player);
+            return true;
+        }
+    }
+
+    /**
+     * Add the players that joined, on the thread that steps the game
+     */
+    private void addJoinedPlayers() {
+        Player player;
+        while ((player = this.joined.poll()) != null) {
+            this.allPlayers.add(player);
+            this.addShip(player);
+            this.database.addPlayer(player);
         }
+    }
 
+    /**
+     * The players that joined are added before the first step : no player can join afterwards
+     */
+    @Override
+    public void startLoop() {
+        synchronized (this.stateLock) {
+            super.startLoop();
+            this.addJoinedPlayers();
+        }
     }
 
-    public void addPlayer(Player player) {
-        this.allPlayers.add(player);
-        this.addShip(player);
-        this.database.addPlayer(player);
-        this.setChanged();
-        this.notifyObservers();
+    /**
+     * A joiner records the input of the local player before every step, and applies it to its ship right away :
+     * the ship is predicted instead of waiting for the host to send it back.
+     * The host applies the inputs it received from the other players since the previous step
+     */
+    @Override
+    protected void step() {
+        synchronized (this.stateLock) {
+            this.addJoinedPlayers();
+            if (this.isHost) {
+                for (Spaceship s : this.allSpaceships) {
+                    s.applyPendingInput();
+                }
+            }
+            if (this.inputs != null && this.controller != null) {
+                int flags = this.controller.getActionFlags();
+                this.inputs.record(flags);
+                if (this.ship != null) {
+                    setActions(this.ship, flags);
+                }
+            }
+            super.step();
+        }
+    }
+
+    /**
+     * Replace the objects of the game by a state received from the host.
+     * A joiner then replays the inputs of its ship the host had not applied yet when it sent the state
+     * (server reconciliation), so its ship stays where it was predicted unless the host disagrees.
+     * The fire delay of the ship is replayed from the one in the state as well; the bullets it fires are not
+     * predicted, they appear once the host sends them.
+     */
+    public void applyState(SnapshotState state) {
+        synchronized (this.stateLock) {
+            state.applyTo(this);
+            if (this.inputs != null && this.ship != null && !this.ship.isDestroyed()) {
+                int first = Math.max(this.ship.getInputSequence() + 1, this.inputs.getOldest());
+                int newest = this.inputs.getNewest();
+                double scale = this.getStepScale();
+                for (int sequence = first; sequence <= newest; sequence++) {
+                    setActions(this.ship, this.inputs.getFlags(sequence));
+                    if (this.ship.isFiring()) {
+                        this.ship.setFired(this.ticksToSteps(Spaceship.FIRE_DELAY));
+                    }
+                    this.ship.nextStep(scale, this.getWorldWidth(), this.getWorldHeight());
+                }
+                if (this.controller != null) {
+                    setActions(this.ship, this.controller.getActionFlags());
+                }
+            }
+        }
+    }
+
+    /**
+     * A joiner replaces the objects of the game on the network thread (see applyState(...)) :
+     * a render snapshot is only taken while they are not being replaced
+     */
+    @Override
+    protected void publish(RenderBuffer buffer) {
+        synchronized (this.stateLock) {
+            super.publish(buffer);
+        }
+    }
+
+    private static void setActions(Spaceship ship, int flags) {
+        ship.setActions((flags & PlayerActions.UP) != 0, (flags & PlayerActions.LEFT) != 0,
+                (flags & PlayerActions.RIGHT) != 0, (flags & PlayerActions.FIRE) != 0);
+    }
+
+    /**
+     * Returns the inputs of the local player of a joiner, null for other games
+     */
+    public InputHistory getInputs() {
+        return this.inputs;
     }
 
     public void checkSpecificCollisions() {
-        // check all asteroids collision with all ships
+        SpatialGrid grid = this.getGrid();
+        grid.build(this.allSpaceships);
+        // check all asteroids collision with the ships close to them
         for (int i = 0; i < this.asteroids.size(); i++) {
-            for (int j = 0; j < this.allSpaceships.size(); j++) {
-                if (this.asteroids.get(i).collides(this.allSpaceships.get(j))) {
+            int candidates = grid.query(this.asteroids.getX(i), this.asteroids.getY(i), this.asteroids.getRadius(i));
+            for (int k = 0; k < candidates; k++) {
+                int j = grid.getCandidate(k);
+                if (this.asteroids.collides(i, this.allSpaceships.get(j))) {
                     // destroy both objects
-                    this.asteroids.get(i).destroy();
+                    this.asteroids.destroy(i);
                     this.allSpaceships.get(j).destroy();
                 }
             }
         }
-        // check all bullets collision with all ships
+        // check all bullets collision with the ships close to them
         for (int i = 0; i < this.bullets.size(); i++) {
-            for (int j = 0; j < this.allSpaceships.size(); j++) {
-                if (this.bullets.get(i).collides(this.allSpaceships.get(j))) {
+            int candidates = grid.query(this.bullets.getX(i), this.bullets.getY(i), this.bullets.getRadius(i));
+            for (int k = 0; k < candidates; k++) {
+                int j = grid.getCandidate(k);
+                if (this.bullets.collides(i, this.allSpaceships.get(j))) {
                     // destroy both objects
-                    this.bullets.get(i).destroy();
+                    this.bullets.destroy(i);
                     this.allSpaceships.get(j).destroy();
                     // award point
-                    this.pointsTo.add(this.bullets.get(i).getIdNumber());
+                    this.pointsTo.add(this.bullets.getOwner(i));
                     this.increaseScore();
                 }
             }
@@ -89,7 +224,7 @@ public class MultiPlayerGame extends Game {
         if (this.isWon()) {
             this.pointsTo.add(this.player.getIdNumber());
             this.increaseScore();
-        } else {
+        } else if (!this.allPlayers.isEmpty()) {
             this.pointsTo.add(this.allPlayers.get(0).getIdNumber());
             this.increaseScore();
         }
@@ -137,18 +272,6 @@ public class MultiPlayerGame extends Game {
         return found;
     }
 
-    /**
-     * Method to update the current local game based on received game model
-     */
-    public void updateGame(MultiPlayerGame game) {
-        this.asteroids = game.getAsteroids();
-        this.bullets = game.getBullets();
-        this.allSpaceships = game.getSpaceships();
-        this.allPlayers = game.getPlayers();
-        this.pointsTo = game.pointsTo;
-        this.shouldEnd = true;
-    }
-
     /**
      * Remove player that has a destroyed ship
      */
@@ -163,7 +286,7 @@ public class MultiPlayerGame extends Game {
             // increase score by one
             getPlayer(id).increaseScore();
             if (this.isHost) {
-                this.database.updateScore(getPlayer(id).getName(), getPlayer(id).getCurrentScore());
+                this.database.queueScore(getPlayer(id).getName(), getPlayer(id).getCurrentScore());
             }
             c.add(id);
         }
@@ -191,6 +314,20 @@ public class MultiPlayerGame extends Game {
         this.isConnected = false;
     }
 
+    /**
+     * The host rejected the join of a joiner because its game is running already : the game will never start,
+     * the views show why (see RenderSnapshot.isRejected())
+     */
+    public void reject() {
+        this.isRejected = true;
+        this.disconnect();
+        this.updateObservable();
+    }
+
+    public boolean isRejected() {
+        return this.isRejected;
+    }
+
     public PlayerActions getController() {
         return this.controller;
     }
@@ -0,0 +1,100 @@
+package aoop.asteroids.model;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the players' highscores in an ObjectDB file, one Player entity per player.
+ */
+public class ObjectDbScoreStore implements ScoreStore {
+
+    private EntityManager em;
+
+    private EntityManagerFactory emf;
+
+    /**
+     * Open the ObjectDB file at the given path, created when it does not exist.
+     */
+    public ObjectDbScoreStore(String path) {
+        this.emf = Persistence.createEntityManagerFactory(path);
+        this.em = this.emf.createEntityManager();
+    }
+
+    public List<Player> getPlayers() {
+        TypedQuery<Player> query = this.em.createQuery("SELECT p FROM Player p", Player.class);
+        return new ArrayList<>(query.getResultList());
+    }
+
+    /**
+     * Avoid duplicates by searching the database for the player's name.
+     */
+    public boolean addPlayer(Player player) {
+        if (this.em.find(Player.class, player.getName()) != null) {
+            return false;
+        }
+        this.em.getTransaction().begin();
+        // store a copy : the player of the game keeps changing, the stored one only through updateScore
+        this.em.persist(player.clone());
+        this.em.getTransaction().commit();
+        return true;
+    }
+
+    public int findScore(String name) {
+        Player player = this.em.find(Player.class, name);
+        return player != null ? player.getCurrentScore() : NO_SCORE;
+    }
+
+    public boolean updateScore(String name, int score) {
+        Player player = this.em.find(Player.class, name);
+        if (player == null || player.getCurrentScore() > score) {
+            return false;
+        }
+        this.em.getTransaction().begin();
+        player.setScore(score);
+        this.em.getTransaction().commit();
+        return true;
+    }
+
+    public Map<String, Integer> updateScores(Map<String, Integer> scores) {
+        Map<String, Integer> updated = new LinkedHashMap<>();
+        this.em.getTransaction().begin();
+        try {
+            for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+                Player player = this.em.find(Player.class, entry.getKey());
+                if (player != null && player.getCurrentScore() <= entry.getValue()) {
+                    player.setScore(entry.getValue());
+                    updated.put(entry.getKey(), entry.getValue());
+                }
+            }
+            this.em.getTransaction().commit();
+        } finally {
+            if (this.em.getTransaction().isActive()) {
+                this.em.getTransaction().rollback();
+            }
+        }
+        return updated;
+    }
+
+    public boolean deletePlayer(String name) {
+        Player player = this.em.find(Player.class, name);
+        if (player == null) {
+            return false;
+        }
+        this.em.getTransaction().begin();
+        this.em.remove(player);
+        this.em.getTransaction().commit();
+        return true;
+    }
+
+    public void close() {
+        this.em.close();
+        this.emf.close();
+    }
+
+}
@@ -0,0 +1,54 @@
+package aoop.asteroids.model;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands the render snapshots of a game from the thread that updates the game to the one thread that draws it.
+ * <p>
+ * The game writes a snapshot into the back buffer and swaps it with the middle one, the view swaps the middle
+ * buffer with its front buffer whenever a newer snapshot is there, by the sequence numbers of the snapshots.
+ * Both swaps are atomic, so neither side ever waits for the other, and the front buffer is never written while the
+ * view draws it. The game only reads the snapshot it published last, to take the previous locations from.
+ */
+public class RenderBuffer {
+
+    private RenderSnapshot back, front;
+    // the snapshot published last, until the view takes it
+    private final AtomicReference<RenderSnapshot> middle;
+    // the snapshot published last, owned by the view or still in the middle : only read by the game
+    private RenderSnapshot published;
+    // sequence number of the snapshot published last
+    private long sequence;
+
+    /**
+     * Constructor : the view starts with an empty snapshot
+     */
+    RenderBuffer() {
+        this.back = new RenderSnapshot();
+        this.front = new RenderSnapshot();
+        this.middle = new AtomicReference<>(new RenderSnapshot());
+    }
+
+    /**
+     * Writes the state of the game into the back buffer and publishes it : to be called by one thread at a time
+     */
+    synchronized void publish(Game game) {
+        this.back.capture(game, this.published);
+        this.back.setSequence(++this.sequence);
+        this.published = this.back;
+        this.back = this.middle.getAndSet(this.back);
+    }
+
+    /**
+     * Returns the last published snapshot : to be called by the thread that draws the game only
+     * the snapshot stays unchanged until the next call
+     */
+    public RenderSnapshot acquire() {
+        // the middle buffer can only be replaced by a newer snapshot meanwhile
+        if (this.middle.get().getSequence() > this.front.getSequence()) {
+            this.front = this.middle.getAndSet(this.front);
+        }
+        return this.front;
+    }
+
+}
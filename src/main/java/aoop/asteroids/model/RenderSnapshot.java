@@ -0,0 +1,442 @@
+package aoop.asteroids.model;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * What the view needs to draw one update of a game, in flat arrays : the players, the ships, the asteroids and the bullets,
+ * with the location every object had in the update before, so a frame can be drawn anywhere between the two.
+ * <p>
+ * Snapshots are written by the game when it notifies its observers and handed to the view through a RenderBuffer,
+ * see Game.openRenderBuffer(). A snapshot that is handed to the view is never written again while the view holds it,
+ * so to the view it is immutable. The arrays are reused : they only grow when the game has more objects than before.
+ */
+public class RenderSnapshot {
+
+    // an object that wrapped around the edge of the world moved more than this, it is not interpolated
+    private static final double MAX_INTERPOLATION_DISTANCE = 400;
+
+    /**
+     * Local ship id of a game without local player
+     */
+    public static final int NO_SHIP = -1;
+
+    // order in which the snapshots were published, see RenderBuffer
+    private long sequence;
+    private int tick;
+    // time at which the snapshot was written, and the time since the previous one in nanoseconds
+    private long time, interval;
+    private boolean isWaiting, isSpectator, isWon, isRejected;
+    private int localScore;
+    // id number of the ship of the local player, NO_SHIP without local player
+    private int localShipId;
+    private int worldWidth, worldHeight;
+
+    private int playerCount;
+    private int[] playerIds = new int[4], playerScores = new int[4];
+    private String[] playerNames = new String[4];
+    private Color[] playerColors = new Color[4];
+
+    private int shipCount;
+    private int[] shipIds = new int[4];
+    private double[] shipX = new double[4], shipY = new double[4], shipDirection = new double[4];
+    private double[] shipPreviousX = new double[4], shipPreviousY = new double[4], shipPreviousDirection = new double[4];
+    private boolean[] shipAccelerating = new boolean[4], shipDestroyed = new boolean[4];
+    private String[] shipNames = new String[4];
+    private Color[] shipColors = new Color[4];
+
+    private int asteroidCount;
+    private int[] asteroidIds = new int[16], asteroidRadius = new int[16];
+    private double[] asteroidX = new double[16], asteroidY = new double[16], asteroidPreviousX = new double[16], asteroidPreviousY = new double[16];
+
+    private int bulletCount;
+    private int[] bulletIds = new int[16];
+    private double[] bulletX = new double[16], bulletY = new double[16], bulletPreviousX = new double[16], bulletPreviousY = new double[16];
+
+    // open addressing tables from id to row + 1, to find the previous location of an object
+    private int[] shipIndex = new int[8], asteroidIndex = new int[32], bulletIndex = new int[32];
+
+    /**
+     * Writes the current state of the game into this snapshot
+     *
+     * @param previous the snapshot written before, to take the previous locations from, may be null.
+     */
+    void capture(Game game, RenderSnapshot previous) {
+        this.tick = game.getTick();
+        this.time = System.nanoTime();
+        long tickTime = 1000000000L / game.getTickRate();
+        // the time between updates is measured : a client gets them at the rate of the host
+        this.interval = previous != null ? Math.max(1000000L, Math.min(this.time - previous.time, 4 * tickTime)) : tickTime;
+        this.isWaiting = game.getIsWaiting();
+        this.isSpectator = game.getIsSpectator();
+        this.isWon = game.isWon();
+        this.isRejected = game instanceof MultiPlayerGame && ((MultiPlayerGame) game).isRejected();
+        Player local = game.getLocalPlayer() != null ? game.getPlayer(game.getLocalPlayer().getIdNumber()) : null;
+        this.localScore = local != null ? local.getCurrentScore() : 0;
+        this.localShipId = game.getLocalPlayer() != null ? game.getLocalPlayer().getIdNumber() : NO_SHIP;
+        this.worldWidth = game.getWorldWidth();
+        this.worldHeight = game.getWorldHeight();
+
+        this.capturePlayers(game.allPlayers);
+        this.captureShips(game.allSpaceships, previous);
+        this.captureAsteroids(game.asteroids, previous);
+        this.captureBullets(game.bullets, previous);
+    }
+
+    private void capturePlayers(ArrayList<Player> players) {
+        int n = players.size();
+        if (this.playerIds.length < n) {
+            int capacity = Math.max(n, 2 * this.playerIds.length);
+            this.playerIds = Arrays.copyOf(this.playerIds, capacity);
+            this.playerScores = Arrays.copyOf(this.playerScores, capacity);
+            this.playerNames = Arrays.copyOf(this.playerNames, capacity);
+            this.playerColors = Arrays.copyOf(this.playerColors, capacity);
+        }
+        for (int i = 0; i < n; i++) {
+            Player p = players.get(i);
+            this.playerIds[i] = p.getIdNumber();
+            this.playerScores[i] = p.getCurrentScore();
+            this.playerNames[i] = p.getName();
+            this.playerColors[i] = p.getColor();
+        }
+        // do not keep references to players that left
+        if (this.playerCount > n) {
+            Arrays.fill(this.playerNames, n, this.playerCount, null);
+            Arrays.fill(this.playerColors, n, this.playerCount, null);
+        }
+        this.playerCount = n;
+    }
+
+    private void captureShips(ArrayList<Spaceship> ships, RenderSnapshot previous) {
+        int n = ships.size();
+        if (this.shipIds.length < n) {
+            int capacity = Math.max(n, 2 * this.shipIds.length);
+            this.shipIds = Arrays.copyOf(this.shipIds, capacity);
+            this.shipX = Arrays.copyOf(this.shipX, capacity);
+            this.shipY = Arrays.copyOf(this.shipY, capacity);
+            this.shipDirection = Arrays.copyOf(this.shipDirection, capacity);
+            this.shipPreviousX = Arrays.copyOf(this.shipPreviousX, capacity);
+            this.shipPreviousY = Arrays.copyOf(this.shipPreviousY, capacity);
+            this.shipPreviousDirection = Arrays.copyOf(this.shipPreviousDirection, capacity);
+            this.shipAccelerating = Arrays.copyOf(this.shipAccelerating, capacity);
+            this.shipDestroyed = Arrays.copyOf(this.shipDestroyed, capacity);
+            this.shipNames = Arrays.copyOf(this.shipNames, capacity);
+            this.shipColors = Arrays.copyOf(this.shipColors, capacity);
+        }
+        for (int i = 0; i < n; i++) {
+            Spaceship s = ships.get(i);
+            this.shipIds[i] = s.getIdNumber();
+            this.shipX[i] = s.getX();
+            this.shipY[i] = s.getY();
+            this.shipDirection[i] = s.getDirection();
+            this.shipAccelerating[i] = s.isAccelerating();
+            this.shipDestroyed[i] = s.isDestroyed();
+            this.shipNames[i] = s.getName();
+            this.shipColors[i] = s.getColor();
+
+            int row = previous != null ? find(previous.shipIndex, previous.shipIds, s.getIdNumber()) : -1;
+            if (row >= 0 && isNear(previous.shipX[row], previous.shipY[row], this.shipX[i], this.shipY[i])) {
+                this.shipPreviousX[i] = previous.shipX[row];
+                this.shipPreviousY[i] = previous.shipY[row];
+                this.shipPreviousDirection[i] = previous.shipDirection[row];
+            } else {
+                this.shipPreviousX[i] = this.shipX[i];
+                this.shipPreviousY[i] = this.shipY[i];
+                this.shipPreviousDirection[i] = this.shipDirection[i];
+            }
+        }
+        if (this.shipCount > n) {
+            Arrays.fill(this.shipNames, n, this.shipCount, null);
+            Arrays.fill(this.shipColors, n, this.shipCount, null);
+        }
+        this.shipCount = n;
+        this.shipIndex = index(this.shipIndex, this.shipIds, n);
+    }
+
+    private void captureAsteroids(EntityStore asteroids, RenderSnapshot previous) {
+        int n = asteroids.size();
+        if (this.asteroidIds.length < n) {
+            int capacity = Math.max(n, 2 * this.asteroidIds.length);
+            this.asteroidIds = Arrays.copyOf(this.asteroidIds, capacity);
+            this.asteroidRadius = Arrays.copyOf(this.asteroidRadius, capacity);
+            this.asteroidX = Arrays.copyOf(this.asteroidX, capacity);
+            this.asteroidY = Arrays.copyOf(this.asteroidY, capacity);
+            this.asteroidPreviousX = Arrays.copyOf(this.asteroidPreviousX, capacity);
+            this.asteroidPreviousY = Arrays.copyOf(this.asteroidPreviousY, capacity);
+        }
+        for (int i = 0; i < n; i++) {
+            this.asteroidIds[i] = asteroids.getId(i);
+            this.asteroidRadius[i] = asteroids.getRadius(i);
+            this.asteroidX[i] = asteroids.getX(i);
+            this.asteroidY[i] = asteroids.getY(i);
+
+            int row = previous != null ? find(previous.asteroidIndex, previous.asteroidIds, this.asteroidIds[i]) : -1;
+            boolean found = row >= 0 && isNear(previous.asteroidX[row], previous.asteroidY[row], this.asteroidX[i], this.asteroidY[i]);
+            this.asteroidPreviousX[i] = found ? previous.asteroidX[row] : this.asteroidX[i];
+            this.asteroidPreviousY[i] = found ? previous.asteroidY[row] : this.asteroidY[i];
+        }
+        this.asteroidCount = n;
+        this.asteroidIndex = index(this.asteroidIndex, this.asteroidIds, n);
+    }
+
+    private void captureBullets(EntityStore bullets, RenderSnapshot previous) {
+        int n = bullets.size();
+        if (this.bulletIds.length < n) {
+            int capacity = Math.max(n, 2 * this.bulletIds.length);
+            this.bulletIds = Arrays.copyOf(this.bulletIds, capacity);
+            this.bulletX = Arrays.copyOf(this.bulletX, capacity);
+            this.bulletY = Arrays.copyOf(this.bulletY, capacity);
+            this.bulletPreviousX = Arrays.copyOf(this.bulletPreviousX, capacity);
+            this.bulletPreviousY = Arrays.copyOf(this.bulletPreviousY, capacity);
+        }
+        for (int i = 0; i < n; i++) {
+            this.bulletIds[i] = bullets.getId(i);
+            this.bulletX[i] = bullets.getX(i);
+            this.bulletY[i] = bullets.getY(i);
+
+            int row = previous != null ? find(previous.bulletIndex, previous.bulletIds, this.bulletIds[i]) : -1;
+            boolean found = row >= 0 && isNear(previous.bulletX[row], previous.bulletY[row], this.bulletX[i], this.bulletY[i]);
+            this.bulletPreviousX[i] = found ? previous.bulletX[row] : this.bulletX[i];
+            this.bulletPreviousY[i] = found ? previous.bulletY[row] : this.bulletY[i];
+        }
+        this.bulletCount = n;
+        this.bulletIndex = index(this.bulletIndex, this.bulletIds, n);
+    }
+
+    /**
+     * Returns false when an object moved too far to be interpolated, i.e. it wrapped around the edge of the world
+     */
+    private static boolean isNear(double previousX, double previousY, double x, double y) {
+        return Math.abs(x - previousX) <= MAX_INTERPOLATION_DISTANCE && Math.abs(y - previousY) <= MAX_INTERPOLATION_DISTANCE;
+    }
+
+    /**
+     * Fills the table from id to row + 1 for the first n ids, the table is replaced by a larger one when needed
+     * the table is at least twice as large as the amount of ids, a power of two
+     */
+    private static int[] index(int[] table, int[] ids, int n) {
+        int capacity = table.length;
+        while (capacity < 2 * n) {
+            capacity *= 2;
+        }
+        if (capacity != table.length) {
+            table = new int[capacity];
+        } else {
+            Arrays.fill(table, 0);
+        }
+        int mask = capacity - 1;
+        for (int row = 0; row < n; row++) {
+            int slot = hash(ids[row]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = row + 1;
+        }
+        return table;
+    }
+
+    /**
+     * Returns the row of the given id, or -1 if there is no such id
+     */
+    private static int find(int[] table, int[] ids, int id) {
+        int mask = table.length - 1;
+        int slot = hash(id) & mask;
+        while (table[slot] != 0) {
+            int row = table[slot] - 1;
+            if (ids[row] == id) {
+                return row;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    long getSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * Getters : the state of the game
+     */
+
+    public int getTick() {
+        return this.tick;
+    }
+
+    public long getTime() {
+        return this.time;
+    }
+
+    public long getInterval() {
+        return this.interval;
+    }
+
+    /**
+     * Returns how far the given time is between the previous snapshot and this one, between 0 and 1
+     */
+    public double getInterpolationAlpha(long now) {
+        double alpha = (now - this.time) / (double) this.interval;
+        return Math.max(0, Math.min(1, alpha));
+    }
+
+    public boolean isWaiting() {
+        return this.isWaiting;
+    }
+
+    /**
+     * Returns true when the host rejected the join of this joiner, see MultiPlayerGame.reject()
+     */
+    public boolean isRejected() {
+        return this.isRejected;
+    }
+
+    public boolean isSpectator() {
+        return this.isSpectator;
+    }
+
+    public boolean isWon() {
+        return this.isWon;
+    }
+
+    /**
+     * Returns the id number of the ship of the local player, NO_SHIP without local player
+     */
+    public int getLocalShipId() {
+        return this.localShipId;
+    }
+
+    public int getWorldWidth() {
+        return this.worldWidth;
+    }
+
+    public int getWorldHeight() {
+        return this.worldHeight;
+    }
+
+    /**
+     * Returns the score of the local player, 0 without local player
+     */
+    public int getLocalScore() {
+        return this.localScore;
+    }
+
+    /**
+     * Getters : the players
+     */
+
+    public int getPlayerCount() {
+        return this.playerCount;
+    }
+
+    public int getPlayerId(int i) {
+        return this.playerIds[i];
+    }
+
+    public String getPlayerName(int i) {
+        return this.playerNames[i];
+    }
+
+    public Color getPlayerColor(int i) {
+        return this.playerColors[i];
+    }
+
+    public int getPlayerScore(int i) {
+        return this.playerScores[i];
+    }
+
+    /**
+     * Getters : the ships, the locations and directions are interpolated by alpha between the previous snapshot (0) and this one (1)
+     */
+
+    public int getShipCount() {
+        return this.shipCount;
+    }
+
+    public int getShipId(int i) {
+        return this.shipIds[i];
+    }
+
+    /**
+     * Returns the row of the ship with the given id number, or -1 if there is no such ship
+     */
+    public int findShip(int id) {
+        return this.shipCount > 0 ? find(this.shipIndex, this.shipIds, id) : -1;
+    }
+
+    public double getShipX(int i, double alpha) {
+        return this.shipPreviousX[i] + (this.shipX[i] - this.shipPreviousX[i]) * alpha;
+    }
+
+    public double getShipY(int i, double alpha) {
+        return this.shipPreviousY[i] + (this.shipY[i] - this.shipPreviousY[i]) * alpha;
+    }
+
+    public double getShipDirection(int i, double alpha) {
+        // turn the shortest way
+        double turn = Math.IEEEremainder(this.shipDirection[i] - this.shipPreviousDirection[i], 2 * Math.PI);
+        return this.shipPreviousDirection[i] + turn * alpha;
+    }
+
+    public boolean isShipAccelerating(int i) {
+        return this.shipAccelerating[i];
+    }
+
+    public boolean isShipDestroyed(int i) {
+        return this.shipDestroyed[i];
+    }
+
+    public String getShipName(int i) {
+        return this.shipNames[i];
+    }
+
+    public Color getShipColor(int i) {
+        return this.shipColors[i];
+    }
+
+    /**
+     * Getters : the asteroids
+     */
+
+    public int getAsteroidCount() {
+        return this.asteroidCount;
+    }
+
+    public int getAsteroidRadius(int i) {
+        return this.asteroidRadius[i];
+    }
+
+    public double getAsteroidX(int i, double alpha) {
+        return this.asteroidPreviousX[i] + (this.asteroidX[i] - this.asteroidPreviousX[i]) * alpha;
+    }
+
+    public double getAsteroidY(int i, double alpha) {
+        return this.asteroidPreviousY[i] + (this.asteroidY[i] - this.asteroidPreviousY[i]) * alpha;
+    }
+
+    /**
+     * Getters : the bullets
+     */
+
+    public int getBulletCount() {
+        return this.bulletCount;
+    }
+
+    public double getBulletX(int i, double alpha) {
+        return this.bulletPreviousX[i] + (this.bulletX[i] - this.bulletPreviousX[i]) * alpha;
+    }
+
+    public double getBulletY(int i, double alpha) {
+        return this.bulletPreviousY[i] + (this.bulletY[i] - this.bulletPreviousY[i]) * alpha;
+    }
+
+}
@@ -0,0 +1,62 @@
+package aoop.asteroids.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the Database keeps the highscores of the players : ObjectDbScoreStore or LogScoreStore.
+ * <p>
+ * A store only stores : the Database calls it with its lock held, so a store is used by one thread at a time,
+ * and the Database adds the write-behind of the scores and the leaderboard on top of it.
+ */
+public interface ScoreStore {
+
+    /**
+     * Score returned by findScore for a player that is not stored
+     */
+    int NO_SCORE = -1;
+
+    /**
+     * Get all stored players, with their name and highscore.
+     */
+    List<Player> getPlayers();
+
+    /**
+     * Store a player, unless a player with the same name is stored already.
+     *
+     * @return true when the player was added.
+     */
+    boolean addPlayer(Player player);
+
+    /**
+     * Return the highscore of a player, or NO_SCORE when the player is not stored.
+     */
+    int findScore(String name);
+
+    /**
+     * Store a new highscore of a player : only when the player is stored and the score is not lower than the stored one.
+     *
+     * @return true when the score was stored.
+     */
+    boolean updateScore(String name, int score);
+
+    /**
+     * Same as updateScore for the score of every player by name, all in one transaction.
+     *
+     * @return the scores that were stored.
+     */
+    Map<String, Integer> updateScores(Map<String, Integer> scores);
+
+    /**
+     * Delete a player.
+     *
+     * @return true when the player was stored.
+     */
+    boolean deletePlayer(String name);
+
+    /**
+     * Close the store, it cannot be used afterwards.
+     */
+    void close();
+
+}
@@ -0,0 +1,301 @@
+package aoop.asteroids.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Write-behind of the scores of a Database : the game only queues a score, a thread of its own writes the queued
+ * scores to the database in batches, one transaction per batch.
+ * <p>
+ * The queue holds one entry per player name. A player scoring again before the entry is written only raises it,
+ * so a batch holds the last score of every player that scored since the previous one.
+ * The queue is bounded : when as many players as its capacity are waiting to be written, queueing the score of
+ * another player waits until the next batch is taken (backpressure). How often and how long that happened is
+ * counted, together with the other statistics below.
+ * <p>
+ * close() writes the scores that are still queued before it returns; until then a shutdown hook does the same when
+ * the virtual machine exits, so no score that was queued is lost.
+ */
+public class ScoreWriter implements Runnable {
+
+    /**
+     * Default amount of players whose scores can be queued
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Default time in milliseconds a score is queued before its batch is written, to let more scores join it
+     */
+    public static final int DEFAULT_FLUSH_DELAY = 250;
+
+    private final Database database;
+    private final int capacity;
+    private final int flushDelay;
+
+    // queued scores by player name, in the order they were first queued; guarded by this
+    private Map<String, Integer> queued = new LinkedHashMap<>();
+    private boolean isClosed;
+    // holds true while the writer thread writes a batch that was taken from the queue
+    private boolean isWriting;
+    // amount of threads waiting in flush() : the writer does not wait for the flush delay then
+    private int flushingCount;
+    private Thread thread, shutdownHook;
+
+    // statistics, guarded by this
+    private long queuedCount, coalescedCount, writtenCount, batchCount;
+    private long stallCount, stallTime, lastBatchTime;
+    private int maxQueueSize;
+
+    /**
+     * Constructor
+     *
+     * @param database   the database the scores are written to.
+     * @param capacity   the amount of players whose scores can be queued.
+     * @param flushDelay the time in milliseconds a score is queued before its batch is written.
+     */
+    public ScoreWriter(Database database, int capacity, int flushDelay) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1, got " + capacity);
+        }
+        this.database = database;
+        this.capacity = capacity;
+        this.flushDelay = Math.max(0, flushDelay);
+    }
+
+    /**
+     * Queue the score of a player, written later unless a higher score of the same player is queued before that.
+     * Only waits when the queue is full.
+     */
+    public synchronized void queue(String name, int score) {
+        if (this.isClosed) {
+            throw new IllegalStateException("Score writer is closed");
+        }
+        this.start();
+        this.queuedCount++;
+        Integer previous = this.queued.get(name);
+        if (previous != null) {
+            this.coalescedCount++;
+            if (score > previous) {
+                this.queued.put(name, score);
+            }
+            return;
+        }
+
+        if (this.queued.size() >= this.capacity) {
+            long start = System.nanoTime();
+            this.stallCount++;
+            boolean isInterrupted = false;
+            while (this.queued.size() >= this.capacity && !this.isClosed) {
+                try {
+                    this.wait();
+                } catch (InterruptedException e) {
+                    // keep waiting, the score would be lost otherwise
+                    isInterrupted = true;
+                }
+            }
+            this.stallTime += System.nanoTime() - start;
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (this.isClosed) {
+                // closed while waiting : the writer is gone, write it directly
+                this.database.updateScore(name, score);
+                this.writtenCount++;
+                return;
+            }
+        }
+        this.queued.put(name, score);
+        this.maxQueueSize = Math.max(this.maxQueueSize, this.queued.size());
+        // the writer only waits for the first score of a batch, or for a full queue during the flush delay
+        if (this.queued.size() == 1 || this.queued.size() >= this.capacity) {
+            this.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until every score that was queued before this call is written
+     */
+    public synchronized void flush() throws InterruptedException {
+        this.flushingCount++;
+        try {
+            while ((!this.queued.isEmpty() || this.isWriting) && this.thread != null && this.thread.isAlive()) {
+                this.notifyAll();
+                this.wait();
+            }
+        } finally {
+            this.flushingCount--;
+        }
+    }
+
+    /**
+     * Write the queued scores and stop the writer thread. Scores cannot be queued afterwards.
+     */
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (this.isClosed) {
+                return;
+            }
+            this.isClosed = true;
+            thread = this.thread;
+            this.notifyAll();
+        }
+        if (thread != null && thread != Thread.currentThread()) {
+            boolean isInterrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    isInterrupted = true;
+                }
+            }
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.removeShutdownHook();
+    }
+
+    /**
+     * Start the writer thread with the first queued score
+     */
+    private void start() {
+        if (this.thread != null) {
+            return;
+        }
+        this.thread = new Thread(this, "score-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+        this.shutdownHook = new Thread(this::close, "score-writer-shutdown");
+        Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+    }
+
+    private synchronized void removeShutdownHook() {
+        if (this.shutdownHook == null || Thread.currentThread() == this.shutdownHook) {
+            return;
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+        } catch (IllegalStateException e) {
+            // the virtual machine is shutting down already
+        }
+        this.shutdownHook = null;
+    }
+
+    /**
+     * Writer loop : wait for a score, give others the flush delay to join it, write them all in one batch
+     */
+    public void run() {
+        while (true) {
+            Map<String, Integer> batch;
+            synchronized (this) {
+                try {
+                    while (this.queued.isEmpty() && !this.isClosed) {
+                        this.wait();
+                    }
+                    // other notifications (i.e. more scores) do not end the delay, only a reason to write now does
+                    long until = System.nanoTime() + this.flushDelay * 1000000L;
+                    long left;
+                    while (!this.isClosed && this.flushingCount == 0 && this.queued.size() < this.capacity
+                            && (left = until - System.nanoTime()) > 0) {
+                        this.wait(left / 1000000L, (int) (left % 1000000L));
+                    }
+                } catch (InterruptedException e) {
+                    // write what is queued, then stop
+                    this.isClosed = true;
+                }
+                if (this.queued.isEmpty()) {
+                    if (this.isClosed) {
+                        this.notifyAll();
+                        return;
+                    }
+                    continue;
+                }
+                batch = this.queued;
+                this.queued = new LinkedHashMap<>();
+                this.isWriting = true;
+                // there is room in the queue again
+                this.notifyAll();
+            }
+
+            long start = System.nanoTime();
+            try {
+                this.database.updateScores(batch);
+            } catch (RuntimeException e) {
+                System.err.println("Scores could not be written: " + e.getMessage());
+            }
+            synchronized (this) {
+                this.isWriting = false;
+                this.lastBatchTime = System.nanoTime() - start;
+                this.writtenCount += batch.size();
+                this.batchCount++;
+                this.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Getters : statistics
+     */
+
+    public synchronized int getQueueSize() {
+        return this.queued.size();
+    }
+
+    public synchronized int getMaxQueueSize() {
+        return this.maxQueueSize;
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Returns the amount of scores queued, including the ones that replaced a queued score of the same player
+     */
+    public synchronized long getQueuedCount() {
+        return this.queuedCount;
+    }
+
+    public synchronized long getCoalescedCount() {
+        return this.coalescedCount;
+    }
+
+    public synchronized long getWrittenCount() {
+        return this.writtenCount;
+    }
+
+    public synchronized long getBatchCount() {
+        return this.batchCount;
+    }
+
+    /**
+     * Returns how often queueing a score had to wait for room in the queue
+     */
+    public synchronized long getStallCount() {
+        return this.stallCount;
+    }
+
+    /**
+     * Returns the total time spent waiting for room in the queue, in nanoseconds
+     */
+    public synchronized long getStallTime() {
+        return this.stallTime;
+    }
+
+    /**
+     * Returns the time it took to write the last batch, in nanoseconds
+     */
+    public synchronized long getLastBatchTime() {
+        return this.lastBatchTime;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "queued " + this.queuedCount + " (" + this.coalescedCount + " coalesced), written " + this.writtenCount
+                + " in " + this.batchCount + " batches, queue " + this.queued.size() + "/" + this.capacity
+                + " (max " + this.maxQueueSize + "), " + this.stallCount + " stalls ("
+                + this.stallTime / 1000000L + " ms)";
+    }
+
+}
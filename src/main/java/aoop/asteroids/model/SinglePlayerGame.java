@@ -23,9 +23,9 @@ public class SinglePlayerGame extends Game {
     public void checkSpecificCollisions() {
         // for all asteroids check if they collide with the ship
         for (int i = 0; i < this.asteroids.size(); i++) {
-            if (this.asteroids.get(i).collides(this.ship)) {
+            if (this.asteroids.collides(i, this.ship)) {
                 // destroy both objects
-                this.asteroids.get(i).destroy();
+                this.asteroids.destroy(i);
                 this.ship.destroy();
             }
         }
@@ -50,8 +50,7 @@ public class SinglePlayerGame extends Game {
         this.ship = this.allSpaceships.get(0);
         this.initGameData();
         this.linkController(controller);
-        this.setChanged();
-        this.notifyObservers();
+        this.updateObservable();
     }
 
     /**
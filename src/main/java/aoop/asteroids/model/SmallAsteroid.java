@@ -10,6 +10,11 @@ import java.awt.Point;
  */
 public class SmallAsteroid extends Asteroid {
 
+    /**
+     * Radius of a small asteroid.
+     */
+    public static final int RADIUS = 10;
+
     /**
      * Constructs a new small asteroid. I.e. the radius will be 10 pixels.
      *
@@ -18,7 +23,19 @@ public class SmallAsteroid extends Asteroid {
      * @param velocityY velocity in Y direction.
      */
     public SmallAsteroid(Point location, double velocityX, double velocityY) {
-        super(location, velocityX, velocityY, 10);
+        super(location, velocityX, velocityY, RADIUS);
+    }
+
+    /**
+     * Constructs a new small asteroid at the given coordinates.
+     *
+     * @param locationX location on the X axis.
+     * @param locationY location on the Y axis.
+     * @param velocityX velocity in X direction.
+     * @param velocityY velocity in Y direction.
+     */
+    public SmallAsteroid(double locationX, double locationY, double velocityX, double velocityY) {
+        super(locationX, locationY, velocityX, velocityY, RADIUS);
     }
 
 }
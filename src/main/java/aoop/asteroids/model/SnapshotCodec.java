@@ -0,0 +1,360 @@
+package aoop.asteroids.model;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * SnapshotCodec writes the state of a game to a compact binary snapshot and
+ * reads a received snapshot back. It replaces sending the whole Java
+ * serialized MultiPlayerGame to every client.
+ * <p>
+ * A snapshot starts with a header of a message type byte, a version byte,
+ * the sequence number, the game tick, tick rate and world size of the host and a flags
+ * byte. A delta snapshot then holds the distance to the sequence number of
+ * its baseline : a snapshot the client acknowledged. It is followed
+ * by a table of players, spaceships, asteroids and bullets and the points
+ * that still have to be awarded.
+ * <p>
+ * Every table lists the ids that are no longer present in the baseline, and
+ * the rows that are new or differ from what the baseline predicts (see
+ * SnapshotState.predict(...)), with a bit mask of the columns that are sent.
+ * As asteroids move in a straight line, most asteroid rows match the
+ * prediction and are not sent; they are sent when they appear, and again
+ * when quantization drift or wrapping around the world makes them differ.
+ * A full snapshot is a delta against an empty baseline.
+ * A spaceship row also holds the sequence number of the last input of its
+ * player the host applied and the steps until it can fire again, so a joiner
+ * can replay the later inputs (see InputHistory).
+ * Counts, ids and values are written as variable length integers.
+ */
+public final class SnapshotCodec {
+
+    /**
+     * Message type of a snapshot, never the first byte of a text message.
+     */
+    public static final byte SNAPSHOT = 1;
+
+    /**
+     * Version of the snapshot format, increase it whenever the format changes.
+     */
+    public static final byte VERSION = 6;
+
+    // snapshot flags
+    private static final int FLAG_DELTA = 1;
+
+    /**
+     * Utility class : cannot be instantiated
+     */
+    private SnapshotCodec() {
+    }
+
+    /**
+     * Checks whether the message at the current position of the buffer is a snapshot this version can read.
+     */
+    public static boolean isSnapshot(ByteBuffer in) {
+        int p = in.position();
+        return in.remaining() >= 3 && in.get(p) == SNAPSHOT && in.get(p + 1) == VERSION;
+    }
+
+    /**
+     * Writes a snapshot of the given state at the current position of the buffer.
+     *
+     * @param state    the state to write.
+     * @param baseline the state the receiver already has, null to write a full snapshot.
+     * @param out      the buffer to write to, must be large enough.
+     */
+    public static void encode(SnapshotState state, SnapshotState baseline, ByteBuffer out) {
+        out.put(SNAPSHOT);
+        out.put(VERSION);
+        putVarInt(out, state.sequence);
+        putVarInt(out, state.tick);
+        putVarInt(out, state.tickRate);
+        putVarInt(out, state.worldWidth);
+        putVarInt(out, state.worldHeight);
+        if (baseline == null) {
+            out.put((byte) 0);
+        } else {
+            out.put((byte) FLAG_DELTA);
+            putVarInt(out, state.sequence - baseline.sequence);
+        }
+
+        for (int table = 0; table < SnapshotState.TABLES; table++) {
+            encodeTable(table, state, baseline, out);
+        }
+
+        putVarInt(out, state.pointCount);
+        for (int i = 0; i < state.pointCount; i++) {
+            putVarInt(out, state.pointsTo[i]);
+        }
+    }
+
+    private static void encodeTable(int index, SnapshotState state, SnapshotState baseline, ByteBuffer out) {
+        SnapshotState.Table table = state.tables[index];
+        SnapshotState.Table base = baseline != null ? baseline.tables[index] : null;
+        int baseSize = base != null ? base.size : 0;
+        int steps = baseline != null ? state.tick - baseline.tick : 0;
+
+        // ids of the baseline that are gone, both tables are sorted by id
+        int countPosition = out.position();
+        out.put((byte) 0);
+        int count = 0;
+        for (int j = 0, i = 0; j < baseSize; j++) {
+            int id = base.ids[j];
+            while (i < table.size && table.ids[i] < id) {
+                i++;
+            }
+            if (i == table.size || table.ids[i] != id) {
+                putVarInt(out, id);
+                count++;
+            }
+        }
+        putVarIntAt(out, countPosition, count);
+
+        // rows that are new or differ from the prediction of the baseline
+        countPosition = out.position();
+        out.put((byte) 0);
+        count = 0;
+        for (int i = 0, j = 0; i < table.size; i++) {
+            int id = table.ids[i];
+            while (j < baseSize && base.ids[j] < id) {
+                j++;
+            }
+            int mask = 0;
+            if (j < baseSize && base.ids[j] == id) {
+                for (int c = 0; c < table.columns; c++) {
+                    if (table.get(i, c) != baseline.predict(index, j, c, steps)) {
+                        mask |= 1 << c;
+                    }
+                }
+                if (table.names != null && !table.names[i].equals(base.names[j])) {
+                    mask |= 1 << table.columns;
+                }
+            } else {
+                mask = table.fullMask();
+            }
+            if (mask == 0) {
+                continue;
+            }
+
+            putVarInt(out, id);
+            putVarInt(out, mask);
+            for (int c = 0; c < table.columns; c++) {
+                if ((mask & (1 << c)) != 0) {
+                    putSignedVarInt(out, table.get(i, c));
+                }
+            }
+            if ((mask & (1 << table.columns)) != 0) {
+                putString(out, table.names[i]);
+            }
+            count++;
+        }
+        putVarIntAt(out, countPosition, count);
+    }
+
+    /**
+     * Returns the sequence number of the snapshot at the current position of
+     * the buffer, without moving the position.
+     */
+    public static int peekSequence(ByteBuffer in) {
+        ByteBuffer header = in.duplicate();
+        header.position(header.position() + 2);
+        return getVarInt(header);
+    }
+
+    /**
+     * Reads a snapshot from the buffer into the history. A delta snapshot is
+     * applied to its baseline, which has to be in the history.
+     *
+     * @param in      the buffer to read from, positioned at the start of the snapshot.
+     * @param history the states received before, the decoded state is added to it.
+     * @return the decoded state, or null if the baseline is no longer in the history.
+     * @throws java.nio.BufferUnderflowException if the snapshot is truncated.
+     * @throws IllegalArgumentException          if the snapshot is malformed.
+     */
+    public static SnapshotState decode(ByteBuffer in, SnapshotHistory history) {
+        if (in.get() != SNAPSHOT || in.get() != VERSION) {
+            throw new IllegalArgumentException("Not a snapshot of version " + VERSION);
+        }
+        int sequence = getVarInt(in);
+        int tick = getVarInt(in);
+        int tickRate = getVarInt(in);
+        int worldWidth = getVarInt(in);
+        int worldHeight = getVarInt(in);
+        int flags = in.get();
+
+        SnapshotState baseline = null;
+        if ((flags & FLAG_DELTA) != 0) {
+            int distance = getVarInt(in);
+            if (distance <= 0 || distance >= SnapshotHistory.CAPACITY) {
+                throw new IllegalArgumentException("Invalid baseline distance " + distance);
+            }
+            baseline = history.get(sequence - distance);
+            if (baseline == null) {
+                return null;
+            }
+        }
+
+        SnapshotState state = history.prepare(sequence);
+        state.tick = tick;
+        state.tickRate = tickRate;
+        state.worldWidth = worldWidth;
+        state.worldHeight = worldHeight;
+        for (int table = 0; table < SnapshotState.TABLES; table++) {
+            decodeTable(table, state, baseline, in);
+        }
+
+        state.pointCount = 0;
+        int pointCount = getVarInt(in);
+        for (int i = 0; i < pointCount; i++) {
+            state.addPoint(getVarInt(in));
+        }
+        state.isComplete = true;
+        return state;
+    }
+
+    private static void decodeTable(int index, SnapshotState state, SnapshotState baseline, ByteBuffer in) {
+        SnapshotState.Table table = state.tables[index];
+        SnapshotState.Table base = baseline != null ? baseline.tables[index] : null;
+        int baseSize = base != null ? base.size : 0;
+        int steps = baseline != null ? state.tick - baseline.tick : 0;
+        table.clear();
+
+        // keep the predicted rows of the baseline, except for the removed ones (sent in the same order)
+        int removedLeft = getVarInt(in);
+        int removedId = removedLeft > 0 ? getVarInt(in) : 0;
+        for (int j = 0; j < baseSize; j++) {
+            if (removedLeft > 0 && base.ids[j] == removedId) {
+                if (--removedLeft > 0) {
+                    removedId = getVarInt(in);
+                }
+                continue;
+            }
+            int row = table.addRow(base.ids[j]);
+            for (int c = 0; c < table.columns; c++) {
+                table.set(row, c, baseline.predict(index, j, c, steps));
+            }
+            if (table.names != null) {
+                table.names[row] = base.names[j];
+            }
+        }
+        if (removedLeft > 0) {
+            throw new IllegalArgumentException("Removed id " + removedId + " is not in the baseline");
+        }
+
+        // overwrite the changed columns, append the new rows
+        int changedCount = getVarInt(in);
+        boolean appended = false;
+        for (int k = 0; k < changedCount; k++) {
+            int id = getVarInt(in);
+            int mask = getVarInt(in);
+            int row = table.indexOf(id);
+            if (row < 0) {
+                if (mask != table.fullMask()) {
+                    throw new IllegalArgumentException("New id " + id + " is not sent completely");
+                }
+                row = table.addRow(id);
+                appended = true;
+            }
+            for (int c = 0; c < table.columns; c++) {
+                if ((mask & (1 << c)) != 0) {
+                    table.set(row, c, getSignedVarInt(in));
+                }
+            }
+            if ((mask & (1 << table.columns)) != 0) {
+                table.names[row] = getString(in);
+            }
+        }
+        if (appended) {
+            table.sortById();
+        }
+    }
+
+    /**
+     * Writes an int as unsigned variable length integer : 7 bits per byte,
+     * the highest bit tells whether another byte follows.
+     */
+    public static void putVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Writes a count in front of the items written after it, at the given position where one byte was reserved
+     * for it : the items are moved back when the count needs more bytes.
+     */
+    private static void putVarIntAt(ByteBuffer out, int position, int value) {
+        int size = 1;
+        while ((value >>> (7 * size)) != 0 && size < 5) {
+            size++;
+        }
+        int end = out.position();
+        if (size > 1) {
+            if (end + size - 1 > out.limit()) {
+                throw new BufferOverflowException();
+            }
+            // last byte first, the ranges overlap
+            for (int p = end - 1; p > position; p--) {
+                out.put(p + size - 1, out.get(p));
+            }
+            out.position(end + size - 1);
+        }
+        for (int i = 0; i < size - 1; i++) {
+            out.put(position + i, (byte) (((value >>> (7 * i)) & 0x7F) | 0x80));
+        }
+        out.put(position + size - 1, (byte) (value >>> (7 * (size - 1))));
+    }
+
+    /**
+     * Reads an int written by putVarInt(...).
+     */
+    public static int getVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Variable length integer is too long");
+    }
+
+    /**
+     * Writes a signed int as variable length integer, zig-zag encoded so small negative values stay small.
+     */
+    private static void putSignedVarInt(ByteBuffer out, int value) {
+        putVarInt(out, (value << 1) ^ (value >> 31));
+    }
+
+    private static int getSignedVarInt(ByteBuffer in) {
+        int value = getVarInt(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes a string as its UTF-8 length followed by its UTF-8 bytes.
+     */
+    public static void putString(ByteBuffer out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        putVarInt(out, bytes.length);
+        out.put(bytes);
+    }
+
+    /**
+     * Reads a string written by putString(...).
+     */
+    public static String getString(ByteBuffer in) {
+        int length = getVarInt(in);
+        if (length > in.remaining()) {
+            throw new IllegalArgumentException("String length " + length + " exceeds the snapshot");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,65 @@
+package aoop.asteroids.model;
+
+/**
+ * SnapshotHistory keeps the last snapshot states by sequence number, in a
+ * ring of reused states. The host keeps the states it sent, to encode deltas
+ * against the ones acknowledged by its clients. A client keeps the states it
+ * received, to apply those deltas.
+ */
+public class SnapshotHistory {
+
+    /**
+     * Amount of states that are kept : a delta can only be encoded against a
+     * state that is less than this amount of snapshots old.
+     */
+    public static final int CAPACITY = 32;
+
+    private final SnapshotState[] states;
+
+    /**
+     * Constructor : allocate all states
+     */
+    public SnapshotHistory() {
+        this.states = new SnapshotState[CAPACITY];
+        for (int i = 0; i < CAPACITY; i++) {
+            this.states[i] = new SnapshotState();
+        }
+    }
+
+    /**
+     * Captures the state of the given game as the snapshot with the given
+     * sequence number, replacing the state that is CAPACITY snapshots older.
+     *
+     * @return the captured state.
+     */
+    public SnapshotState record(Game game, int sequence) {
+        SnapshotState state = this.slot(sequence);
+        state.capture(game, sequence);
+        return state;
+    }
+
+    /**
+     * Returns the state with the given sequence number, or null if it is no
+     * longer (or was never) kept.
+     */
+    public SnapshotState get(int sequence) {
+        SnapshotState state = this.slot(sequence);
+        return state.isComplete && state.sequence == sequence ? state : null;
+    }
+
+    /**
+     * Returns the state to write the snapshot with the given sequence number
+     * to, marked incomplete until it is written completely
+     */
+    SnapshotState prepare(int sequence) {
+        SnapshotState state = this.slot(sequence);
+        state.isComplete = false;
+        state.sequence = sequence;
+        return state;
+    }
+
+    private SnapshotState slot(int sequence) {
+        return this.states[Math.floorMod(sequence, CAPACITY)];
+    }
+
+}
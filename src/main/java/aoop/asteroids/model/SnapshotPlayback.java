@@ -0,0 +1,135 @@
+package aoop.asteroids.model;
+
+/**
+ * SnapshotPlayback shows a game as received from the host without simulating it : the received states are kept in
+ * a jitter buffer, and the game is shown a fixed delay behind the newest one, interpolated between the two states
+ * around that time. Snapshots that arrive late or irregularly then still play smoothly, as long as the delay
+ * covers the time between two snapshots and their jitter. Used by spectators, see SpectateClient.
+ * <p>
+ * The time of a state is its game tick. It is mapped to the local clock by the earliest arrival seen so far,
+ * which moves up slowly when the snapshots keep arriving later (i.e. when the latency grows or the clocks drift).
+ */
+public class SnapshotPlayback {
+
+    /**
+     * Amount of states kept in the jitter buffer
+     */
+    public static final int CAPACITY = 16;
+
+    // the states in order of their tick, in a ring starting at first
+    private final SnapshotState[] states;
+    private int first, count;
+    // the state that is applied to the game
+    private final SnapshotState shown;
+    // how far the game is shown behind the arrival of its states, in nanoseconds
+    private final long delay;
+    // local time at which tick 0 would have arrived, see the class comment
+    private double tickZeroTime;
+    private boolean hasClock;
+
+    // statistics : states dropped because they arrived after a newer one, and frames without a newer state
+    private long lateCount, underrunCount;
+
+    /**
+     * Constructor
+     *
+     * @param delay how far behind the received states the game is shown, in nanoseconds.
+     */
+    public SnapshotPlayback(long delay) {
+        this.delay = delay;
+        this.states = new SnapshotState[CAPACITY];
+        for (int i = 0; i < CAPACITY; i++) {
+            this.states[i] = new SnapshotState();
+        }
+        this.shown = new SnapshotState();
+    }
+
+    /**
+     * Adds a received state to the buffer, it is copied. States older than the newest one are dropped,
+     * as is the oldest state when the buffer is full.
+     *
+     * @param arrivalTime the System.nanoTime() at which the state was received.
+     */
+    public void add(SnapshotState state, long arrivalTime) {
+        if (this.count > 0 && state.tick - this.get(this.count - 1).tick <= 0) {
+            this.lateCount++;
+            return;
+        }
+        double tickZeroTime = arrivalTime - state.tick * getTickTime(state);
+        if (!this.hasClock || tickZeroTime < this.tickZeroTime) {
+            this.tickZeroTime = tickZeroTime;
+            this.hasClock = true;
+        } else {
+            this.tickZeroTime += (tickZeroTime - this.tickZeroTime) / 64;
+        }
+
+        if (this.count == CAPACITY) {
+            this.first = (this.first + 1) % CAPACITY;
+            this.count--;
+        }
+        this.get(this.count).copyFrom(state);
+        this.count++;
+    }
+
+    /**
+     * Applies the state at the given time minus the delay to the game
+     *
+     * @param now the current System.nanoTime().
+     * @return false when no state was received yet.
+     */
+    public boolean apply(MultiPlayerGame game, long now) {
+        if (this.count == 0) {
+            return false;
+        }
+        SnapshotState newest = this.get(this.count - 1);
+        double tick = (now - this.delay - this.tickZeroTime) / getTickTime(newest);
+
+        if (tick >= newest.tick) {
+            // nothing newer arrived in time : hold the newest state
+            if (tick > newest.tick + 1) {
+                this.underrunCount++;
+            }
+            this.shown.copyFrom(newest);
+        } else {
+            // drop the states before the one at the given time, the last one is kept for interpolating
+            while (this.count > 1 && this.get(1).tick <= tick) {
+                this.first = (this.first + 1) % CAPACITY;
+                this.count--;
+            }
+            SnapshotState from = this.get(0);
+            if (this.count == 1 || tick <= from.tick) {
+                this.shown.copyFrom(from);
+            } else {
+                SnapshotState to = this.get(1);
+                this.shown.interpolate(from, to, (tick - from.tick) / (to.tick - from.tick));
+            }
+        }
+        game.applyState(this.shown);
+        return true;
+    }
+
+    private SnapshotState get(int i) {
+        return this.states[(this.first + i) % CAPACITY];
+    }
+
+    private static double getTickTime(SnapshotState state) {
+        return 1000000000.0 / Math.max(1, state.tickRate);
+    }
+
+    /**
+     * Getters : statistics
+     */
+
+    public int getBufferedCount() {
+        return this.count;
+    }
+
+    public long getLateCount() {
+        return this.lateCount;
+    }
+
+    public long getUnderrunCount() {
+        return this.underrunCount;
+    }
+
+}
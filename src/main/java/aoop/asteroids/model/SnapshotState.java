@@ -0,0 +1,489 @@
+package aoop.asteroids.model;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * SnapshotState is the state of a multi-player game as it is sent in one
+ * snapshot : every value is quantized to an int, exactly as it goes over the
+ * network. The host keeps the states it sent and the clients keep the states
+ * they received (see SnapshotHistory), so both sides can compute the same
+ * delta between two of them, see SnapshotCodec.
+ * <p>
+ * Every kind of object (players, spaceships, asteroids, bullets) is held in a
+ * table of rows sorted by id. The first four columns of the moving objects
+ * are their location and velocity.
+ */
+public class SnapshotState {
+
+    // tables
+    static final int PLAYERS = 0;
+    static final int SHIPS = 1;
+    static final int ASTEROIDS = 2;
+    static final int BULLETS = 3;
+    static final int TABLES = 4;
+
+    // columns of the moving objects
+    static final int X = 0;
+    static final int Y = 1;
+    static final int VX = 2;
+    static final int VY = 3;
+
+    // kind specific columns
+    static final int PLAYER_SCORE = 0;
+    static final int PLAYER_COLOR = 1;
+    static final int SHIP_DIRECTION = 4;
+    static final int SHIP_FLAGS = 5;
+    static final int SHIP_INPUT = 6;
+    static final int SHIP_FIRE_DELAY = 7;
+    static final int ASTEROID_RADIUS = 4;
+    static final int BULLET_STEPS_LEFT = 4;
+    static final int BULLET_OWNER = 5;
+
+    // quantization of locations, velocities and directions
+    private static final double LOCATION_SCALE = 16.0;
+    private static final double VELOCITY_SCALE = 256.0;
+    private static final double DIRECTION_SCALE = 65536.0 / (2 * Math.PI);
+
+    // spaceship flags
+    private static final int FLAG_ACCELERATING = 1;
+    private static final int FLAG_DESTROYED = 2;
+
+    // sequence number of the snapshot, game tick and tick rate of the host
+    int sequence;
+    int tick;
+    int tickRate;
+    // size of the world of the host
+    int worldWidth, worldHeight;
+    // holds true once the state is completely written
+    boolean isComplete;
+
+    final Table[] tables;
+
+    // ids of the players that still have to be awarded points
+    int[] pointsTo;
+    int pointCount;
+
+    /**
+     * Constructs an empty state
+     */
+    public SnapshotState() {
+        this.tables = new Table[TABLES];
+        this.tables[PLAYERS] = new Table(2, true);
+        this.tables[SHIPS] = new Table(8, false);
+        this.tables[ASTEROIDS] = new Table(5, false);
+        this.tables[BULLETS] = new Table(6, false);
+        this.pointsTo = new int[8];
+    }
+
+    /**
+     * Replaces this state by the quantized state of the given game
+     *
+     * @param game     the game to capture, only to be called from its own thread.
+     * @param sequence the sequence number of the snapshot.
+     */
+    void capture(Game game, int sequence) {
+        this.isComplete = false;
+        this.sequence = sequence;
+        this.tick = game.getTick();
+        this.tickRate = game.getTickRate();
+        this.worldWidth = game.getWorldWidth();
+        this.worldHeight = game.getWorldHeight();
+
+        Table players = this.tables[PLAYERS];
+        players.clear();
+        for (Player p : game.allPlayers) {
+            int row = players.addRow(p.getIdNumber());
+            players.set(row, PLAYER_SCORE, p.getCurrentScore());
+            players.set(row, PLAYER_COLOR, p.getColor().getRGB());
+            players.names[row] = p.getName();
+        }
+        players.sortById();
+
+        Table ships = this.tables[SHIPS];
+        ships.clear();
+        for (Spaceship s : game.allSpaceships) {
+            int row = ships.addRow(s.getIdNumber());
+            this.setMotion(ships, row, s.getX(), s.getY(), s.getVelocityX(), s.getVelocityY());
+            ships.set(row, SHIP_DIRECTION, (int) Math.round(s.getDirection() * DIRECTION_SCALE) & 0xFFFF);
+            ships.set(row, SHIP_FLAGS, (s.isAccelerating() ? FLAG_ACCELERATING : 0) | (s.isDestroyed() ? FLAG_DESTROYED : 0));
+            ships.set(row, SHIP_INPUT, s.getInputSequence());
+            ships.set(row, SHIP_FIRE_DELAY, s.getStepsTillFire());
+        }
+        ships.sortById();
+
+        Table asteroids = this.tables[ASTEROIDS];
+        asteroids.clear();
+        EntityStore asteroidStore = game.asteroids;
+        for (int i = 0; i < asteroidStore.size(); i++) {
+            int row = asteroids.addRow(asteroidStore.getId(i));
+            this.setMotion(asteroids, row, asteroidStore.getX(i), asteroidStore.getY(i), asteroidStore.getVelocityX(i), asteroidStore.getVelocityY(i));
+            asteroids.set(row, ASTEROID_RADIUS, asteroidStore.getRadius(i));
+        }
+        asteroids.sortById();
+
+        Table bullets = this.tables[BULLETS];
+        bullets.clear();
+        EntityStore bulletStore = game.bullets;
+        for (int i = 0; i < bulletStore.size(); i++) {
+            int row = bullets.addRow(bulletStore.getId(i));
+            this.setMotion(bullets, row, bulletStore.getX(i), bulletStore.getY(i), bulletStore.getVelocityX(i), bulletStore.getVelocityY(i));
+            bullets.set(row, BULLET_STEPS_LEFT, Math.max(0, bulletStore.getStepsLeft(i)));
+            bullets.set(row, BULLET_OWNER, bulletStore.getOwner(i));
+        }
+        bullets.sortById();
+
+        this.pointCount = 0;
+        for (Integer id : game.pointsTo) {
+            this.addPoint(id);
+        }
+        this.isComplete = true;
+    }
+
+    private void setMotion(Table table, int row, double x, double y, double velocityX, double velocityY) {
+        table.set(row, X, Math.floorMod((int) Math.round(x * LOCATION_SCALE), this.getQuantizedSize(X)));
+        table.set(row, Y, Math.floorMod((int) Math.round(y * LOCATION_SCALE), this.getQuantizedSize(Y)));
+        table.set(row, VX, (int) Math.round(velocityX * VELOCITY_SCALE));
+        table.set(row, VY, (int) Math.round(velocityY * VELOCITY_SCALE));
+    }
+
+    void addPoint(int id) {
+        if (this.pointCount == this.pointsTo.length) {
+            this.pointsTo = Arrays.copyOf(this.pointsTo, this.pointCount * 2);
+        }
+        this.pointsTo[this.pointCount++] = id;
+    }
+
+    /**
+     * Predicts the value a column of a row of this state has the given amount
+     * of game ticks later, when nothing but time changes : objects keep
+     * moving in a straight line, bullets lose time to live and ships get closer to firing again.
+     * Both the host and the clients use this prediction, an object only has to
+     * be sent again when it differs from it.
+     */
+    int predict(int table, int row, int column, int steps) {
+        Table t = this.tables[table];
+        int value = t.get(row, column);
+        if (table == PLAYERS || steps == 0) {
+            return value;
+        }
+        if (column == X || column == Y) {
+            int velocity = t.get(row, column + 2);
+            double scale = Game.BASE_TICK_RATE / (double) this.tickRate;
+            double distance = velocity * (steps * scale) * (LOCATION_SCALE / VELOCITY_SCALE);
+            return Math.floorMod(value + (int) Math.round(distance), this.getQuantizedSize(column));
+        }
+        if ((table == BULLETS && column == BULLET_STEPS_LEFT) || (table == SHIPS && column == SHIP_FIRE_DELAY)) {
+            return Math.max(0, value - steps);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the size of the world along the X or Y column, in quantized locations
+     */
+    private int getQuantizedSize(int column) {
+        return (int) ((column == X ? this.worldWidth : this.worldHeight) * LOCATION_SCALE);
+    }
+
+    /**
+     * Replaces this state by a copy of the given one
+     */
+    void copyFrom(SnapshotState other) {
+        this.sequence = other.sequence;
+        this.tick = other.tick;
+        this.tickRate = other.tickRate;
+        this.worldWidth = other.worldWidth;
+        this.worldHeight = other.worldHeight;
+        for (int table = 0; table < TABLES; table++) {
+            this.tables[table].copyFrom(other.tables[table]);
+        }
+        this.pointCount = 0;
+        for (int i = 0; i < other.pointCount; i++) {
+            this.addPoint(other.pointsTo[i]);
+        }
+        this.isComplete = other.isComplete;
+    }
+
+    /**
+     * Replaces this state by the state between two others : the objects of from, with their locations and the
+     * directions of the ships moved the given part of the way to those in to. The shortest way is taken,
+     * i.e. across the edge of the world for an object that wrapped around it.
+     *
+     * @param alpha between 0 (from) and 1 (to).
+     */
+    void interpolate(SnapshotState from, SnapshotState to, double alpha) {
+        this.copyFrom(from);
+        for (int table = SHIPS; table < TABLES; table++) {
+            Table t = this.tables[table];
+            Table target = to.tables[table];
+            for (int row = 0; row < t.size; row++) {
+                int other = target.indexOf(t.ids[row]);
+                if (other < 0) {
+                    continue;
+                }
+                for (int column = X; column <= Y; column++) {
+                    int size = this.getQuantizedSize(column);
+                    int value = t.get(row, column);
+                    int distance = target.get(other, column) - value;
+                    if (distance > size / 2) {
+                        distance -= size;
+                    } else if (distance < -size / 2) {
+                        distance += size;
+                    }
+                    t.set(row, column, Math.floorMod(value + (int) Math.round(distance * alpha), size));
+                }
+                if (table == SHIPS) {
+                    int value = t.get(row, SHIP_DIRECTION);
+                    int distance = (short) (target.get(other, SHIP_DIRECTION) - value);
+                    t.set(row, SHIP_DIRECTION, (value + (int) Math.round(distance * alpha)) & 0xFFFF);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the state of the given game by this state. Spaceship and player
+     * objects with the same id number are reused, so the local ship stays
+     * linked to its controller.
+     */
+    public void applyTo(MultiPlayerGame game) {
+        Table playerTable = this.tables[PLAYERS];
+        ArrayList<Player> players = new ArrayList<>(playerTable.size);
+        for (int row = 0; row < playerTable.size; row++) {
+            int id = playerTable.ids[row];
+            int rgb = playerTable.get(row, PLAYER_COLOR);
+            String name = playerTable.names[row];
+
+            Player p = findPlayer(game.allPlayers, id);
+            if (p == null || !p.getName().equals(name) || p.getColor().getRGB() != rgb) {
+                p = new Player(name, new Color(rgb, true));
+                p.setIdNumber(id);
+            }
+            p.setScore(playerTable.get(row, PLAYER_SCORE));
+            players.add(p);
+        }
+
+        Table shipTable = this.tables[SHIPS];
+        ArrayList<Spaceship> ships = new ArrayList<>(shipTable.size);
+        for (int row = 0; row < shipTable.size; row++) {
+            int id = shipTable.ids[row];
+            int flags = shipTable.get(row, SHIP_FLAGS);
+
+            Spaceship s = findShip(game.allSpaceships, id);
+            if (s == null) {
+                s = new Spaceship();
+                s.setIdNumber(id);
+                Player p = findPlayer(players, id);
+                s.setColor(p != null ? p.getColor() : Color.white);
+                s.setName(p != null ? p.getName() : "");
+            }
+            s.setState(shipTable.get(row, X) / LOCATION_SCALE, shipTable.get(row, Y) / LOCATION_SCALE,
+                    shipTable.get(row, VX) / VELOCITY_SCALE, shipTable.get(row, VY) / VELOCITY_SCALE,
+                    shipTable.get(row, SHIP_DIRECTION) / DIRECTION_SCALE,
+                    (flags & FLAG_ACCELERATING) != 0, (flags & FLAG_DESTROYED) != 0);
+            s.setInputSequence(shipTable.get(row, SHIP_INPUT));
+            s.setFired(shipTable.get(row, SHIP_FIRE_DELAY));
+            ships.add(s);
+        }
+
+        EntityStore asteroids = game.asteroids;
+        asteroids.clear();
+        Table asteroidTable = this.tables[ASTEROIDS];
+        for (int row = 0; row < asteroidTable.size; row++) {
+            int i = asteroids.add(asteroidTable.get(row, X) / LOCATION_SCALE, asteroidTable.get(row, Y) / LOCATION_SCALE,
+                    asteroidTable.get(row, VX) / VELOCITY_SCALE, asteroidTable.get(row, VY) / VELOCITY_SCALE,
+                    asteroidTable.get(row, ASTEROID_RADIUS), EntityStore.NO_TTL, 0);
+            asteroids.setId(i, asteroidTable.ids[row]);
+        }
+
+        EntityStore bullets = game.bullets;
+        bullets.clear();
+        Table bulletTable = this.tables[BULLETS];
+        for (int row = 0; row < bulletTable.size; row++) {
+            int i = bullets.add(bulletTable.get(row, X) / LOCATION_SCALE, bulletTable.get(row, Y) / LOCATION_SCALE,
+                    bulletTable.get(row, VX) / VELOCITY_SCALE, bulletTable.get(row, VY) / VELOCITY_SCALE,
+                    0, bulletTable.get(row, BULLET_STEPS_LEFT), bulletTable.get(row, BULLET_OWNER));
+            bullets.setId(i, bulletTable.ids[row]);
+        }
+
+        ArrayList<Integer> pointsTo = new ArrayList<>(this.pointCount);
+        for (int i = 0; i < this.pointCount; i++) {
+            pointsTo.add(this.pointsTo[i]);
+        }
+
+        game.setWorldSize(this.worldWidth, this.worldHeight);
+        game.allPlayers = players;
+        game.allSpaceships = ships;
+        game.pointsTo = pointsTo;
+        game.setShouldEnd();
+    }
+
+    private static Player findPlayer(ArrayList<Player> players, int id) {
+        for (Player p : players) {
+            if (p.getIdNumber() == id) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    private static Spaceship findShip(ArrayList<Spaceship> ships, int id) {
+        for (Spaceship s : ships) {
+            if (s.getIdNumber() == id) {
+                return s;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Getters
+     */
+    public int getSequence() {
+        return this.sequence;
+    }
+
+    public int getTick() {
+        return this.tick;
+    }
+
+    public int getTickRate() {
+        return this.tickRate;
+    }
+
+    /**
+     * Rows of one kind of object : an id and a fixed amount of int columns
+     * per row, and a name per row for players. All storage is reused.
+     */
+    static final class Table {
+
+        final int columns;
+        int size;
+        int[] ids;
+        int[] values;
+        String[] names;
+        // reused by sortById() : the ids with their rows, and the rows in sorted order
+        private long[] sortKeys;
+        private int[] sortedIds, sortedValues;
+        private String[] sortedNames;
+
+        Table(int columns, boolean hasNames) {
+            this.columns = columns;
+            this.ids = new int[16];
+            this.values = new int[16 * columns];
+            this.names = hasNames ? new String[16] : null;
+        }
+
+        void clear() {
+            this.size = 0;
+        }
+
+        void copyFrom(Table other) {
+            if (this.ids.length < other.size) {
+                this.ids = new int[other.ids.length];
+                this.values = new int[other.ids.length * this.columns];
+                if (this.names != null) {
+                    this.names = new String[other.ids.length];
+                }
+            }
+            this.size = other.size;
+            System.arraycopy(other.ids, 0, this.ids, 0, other.size);
+            System.arraycopy(other.values, 0, this.values, 0, other.size * this.columns);
+            if (this.names != null) {
+                System.arraycopy(other.names, 0, this.names, 0, other.size);
+            }
+        }
+
+        /**
+         * Adds a row with the given id, its columns are to be set by the caller
+         */
+        int addRow(int id) {
+            if (this.size == this.ids.length) {
+                int capacity = this.size * 2;
+                this.ids = Arrays.copyOf(this.ids, capacity);
+                this.values = Arrays.copyOf(this.values, capacity * this.columns);
+                if (this.names != null) {
+                    this.names = Arrays.copyOf(this.names, capacity);
+                }
+            }
+            this.ids[this.size] = id;
+            return this.size++;
+        }
+
+        int get(int row, int column) {
+            return this.values[row * this.columns + column];
+        }
+
+        void set(int row, int column, int value) {
+            this.values[row * this.columns + column] = value;
+        }
+
+        /**
+         * Returns the row with the given id, or a negative number if there is none
+         */
+        int indexOf(int id) {
+            return Arrays.binarySearch(this.ids, 0, this.size, id);
+        }
+
+        /**
+         * Bit mask with a bit for every column, and one for the name
+         */
+        int fullMask() {
+            return (1 << (this.names != null ? this.columns + 1 : this.columns)) - 1;
+        }
+
+        /**
+         * Sorts the rows by id. The rows of an EntityStore are not sorted : a removal moves its last entity
+         * into the gap. The ids are sorted together with their rows (id in the high half of a long, row in the
+         * low half), then the rows are copied once in that order. Rows that are sorted already are left alone.
+         */
+        void sortById() {
+            int n = this.size;
+            int i = 1;
+            while (i < n && this.ids[i - 1] <= this.ids[i]) {
+                i++;
+            }
+            if (i >= n) {
+                return;
+            }
+
+            if (this.sortKeys == null || this.sortKeys.length < n) {
+                this.sortKeys = new long[this.ids.length];
+            }
+            for (int row = 0; row < n; row++) {
+                this.sortKeys[row] = ((long) this.ids[row] << 32) | row;
+            }
+            Arrays.sort(this.sortKeys, 0, n);
+
+            if (this.sortedIds == null || this.sortedIds.length != this.ids.length) {
+                this.sortedIds = new int[this.ids.length];
+                this.sortedValues = new int[this.values.length];
+                this.sortedNames = this.names != null ? new String[this.ids.length] : null;
+            }
+            for (int k = 0; k < n; k++) {
+                int row = (int) this.sortKeys[k];
+                this.sortedIds[k] = this.ids[row];
+                System.arraycopy(this.values, row * this.columns, this.sortedValues, k * this.columns, this.columns);
+                if (this.names != null) {
+                    this.sortedNames[k] = this.names[row];
+                }
+            }
+            // swap the arrays : the old ones are reused by the next sort
+            int[] ids = this.ids;
+            this.ids = this.sortedIds;
+            this.sortedIds = ids;
+            int[] values = this.values;
+            this.values = this.sortedValues;
+            this.sortedValues = values;
+            if (this.names != null) {
+                String[] names = this.names;
+                this.names = this.sortedNames;
+                this.sortedNames = names;
+            }
+        }
+
+    }
+
+}
@@ -1,5 +1,7 @@
 package aoop.asteroids.model;
 
+import aoop.asteroids.controller.PlayerActions;
+
 import java.awt.*;
 
 /**
@@ -18,7 +20,7 @@ public class Spaceship extends GameObject {
 
     // direction of the spaceship
     private double direction;
-    // amount of game ticks left, until the spaceship can fire again
+    // amount of simulation steps left, until the spaceship can fire again
     private int stepsTillFire;
     // current action of the ship */
     private Boolean isFiring;
@@ -31,19 +33,30 @@ public class Spaceship extends GameObject {
     // color and name from the player : view purposes
     private Color color;
     private String name;
+    // sequence number of the last input of the player applied to the ship, see InputHistory
+    private int inputSequence;
+    // host : the newest input received from the player and its sequence number, not applied yet; guarded by this
+    private transient int pendingActions, pendingSequence;
+    private transient boolean hasPendingInput;
+
+    /**
+     * Amount of game ticks the spaceship has to wait before it can fire again,
+     * converted to simulation steps by the game (see Game.ticksToSteps(...)).
+     */
+    public static final int FIRE_DELAY = 20;
 
     /**
      * Constructs a new spaceship with default values
      */
     public Spaceship() {
-        this(new Point(400, 400), 0, 0, 15, 0, false);
+        this(400, 400, 0, 0, 15, 0, false);
     }
 
     /**
      * Constructs a new spaceship with specified values
      */
-    private Spaceship(Point location, double velocityX, double velocityY, int radius, double direction, boolean up) {
-        super(location, velocityX, velocityY, radius);
+    private Spaceship(double locationX, double locationY, double velocityX, double velocityY, int radius, double direction, boolean up) {
+        super(locationX, locationY, velocityX, velocityY, radius);
         this.direction = direction;
         this.up = up;
         this.isFiring = false;
@@ -79,6 +92,59 @@ public class Spaceship extends GameObject {
         this.setIsFiring(isFiring);
     }
 
+    /**
+     * Received an input of the player over the network, on the network thread : it is applied at the start of
+     * the next step (see applyPendingInput()), so the input sequence sent in a snapshot always belongs to an input
+     * that was simulated. When an earlier input is still pending, its FIRE is kept, so a short tap is never lost.
+     *
+     * @param actions  the PlayerActions flags of the input.
+     * @param sequence its sequence number, ignored unless it is newer than getReceivedInputSequence().
+     */
+    public synchronized void setPendingInput(int actions, int sequence) {
+        if (sequence - this.getReceivedInputSequence() <= 0) {
+            return;
+        }
+        if (this.hasPendingInput) {
+            actions |= this.pendingActions & PlayerActions.FIRE;
+        }
+        this.pendingActions = actions;
+        this.pendingSequence = sequence;
+        this.hasPendingInput = true;
+    }
+
+    /**
+     * Applies the input received last, if any, on the thread that steps the game
+     */
+    public synchronized void applyPendingInput() {
+        if (!this.hasPendingInput) {
+            return;
+        }
+        this.setActions((this.pendingActions & PlayerActions.UP) != 0, (this.pendingActions & PlayerActions.LEFT) != 0,
+                (this.pendingActions & PlayerActions.RIGHT) != 0, (this.pendingActions & PlayerActions.FIRE) != 0);
+        this.inputSequence = this.pendingSequence;
+        this.hasPendingInput = false;
+    }
+
+    /**
+     * Returns the sequence number of the newest input received from the player : pending or applied
+     */
+    public synchronized int getReceivedInputSequence() {
+        return this.hasPendingInput ? this.pendingSequence : this.inputSequence;
+    }
+
+    /**
+     * Set the state of the ship as received from the host : used for snapshots
+     */
+    void setState(double locationX, double locationY, double velocityX, double velocityY, double direction, boolean up, boolean destroyed) {
+        this.locationX = locationX;
+        this.locationY = locationY;
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        this.direction = direction;
+        this.up = up;
+        this.destroyed = destroyed;
+    }
+
     /**
      * Defines the behaviour of the spaceship. In each game tick the ship
      * turns when a turn button is pressed. The speed at which it turns is 2%
@@ -90,25 +156,48 @@ public class Spaceship extends GameObject {
      */
     @Override
     public void nextStep() {
+        this.nextStep(1.0);
+    }
+
+    /**
+     * Same as {@link #nextStep()}, but for a simulation step that lasts the
+     * given amount of game ticks. Turning, acceleration, movement and
+     * traction are scaled so the ship behaves the same at every tick rate.
+     *
+     * @param scale length of the step in game ticks.
+     */
+    public void nextStep(double scale) {
+        this.nextStep(scale, Game.DEFAULT_WORLD_SIZE, Game.DEFAULT_WORLD_SIZE);
+    }
+
+    /**
+     * Same as {@link #nextStep(double)}, in a world of the given size : the location wraps around its edges.
+     *
+     * @param scale       length of the step in game ticks.
+     * @param worldWidth  width of the world.
+     * @param worldHeight height of the world.
+     */
+    public void nextStep(double scale, int worldWidth, int worldHeight) {
         this.stepsTilCollide = Math.max(0, this.stepsTilCollide - 1);
 
         // Update direction if turning.
-        if (this.left) this.direction -= 0.04 * Math.PI;
-        if (this.right) this.direction += 0.04 * Math.PI;
+        if (this.left) this.direction -= 0.04 * Math.PI * scale;
+        if (this.right) this.direction += 0.04 * Math.PI * scale;
 
         if (this.up) {
             // Update speed if accelerating, but constrain values.
-            this.velocityX = Math.max(-10, Math.min(10, this.velocityX + Math.sin(direction) * 0.4));
-            this.velocityY = Math.max(-10, Math.min(10, this.velocityY - Math.cos(direction) * 0.4));
+            this.velocityX = Math.max(-10, Math.min(10, this.velocityX + Math.sin(direction) * 0.4 * scale));
+            this.velocityY = Math.max(-10, Math.min(10, this.velocityY - Math.cos(direction) * 0.4 * scale));
         }
 
         // Update location.
-        this.locationX = (800 + this.locationX + this.velocityX) % 800;
-        this.locationY = (800 + this.locationY + this.velocityY) % 800;
+        this.locationX = (worldWidth + this.locationX + this.velocityX * scale) % worldWidth;
+        this.locationY = (worldHeight + this.locationY + this.velocityY * scale) % worldHeight;
 
         // Decrease speed due to traction.
-        this.velocityX *= 0.99;
-        this.velocityY *= 0.99;
+        double traction = scale == 1.0 ? 0.99 : Math.pow(0.99, scale);
+        this.velocityX *= traction;
+        this.velocityY *= traction;
 
         // Decrease firing step counter.
         if (this.stepsTillFire != 0) {
@@ -121,7 +210,7 @@ public class Spaceship extends GameObject {
      * Returns a copy of the spaceship : call second constructor with exact current values
      */
     public Spaceship clone() {
-        Spaceship s = new Spaceship(this.getLocation(), this.velocityX, this.velocityY, this.radius, this.direction, this.up);
+        Spaceship s = new Spaceship(this.locationX, this.locationY, this.velocityX, this.velocityY, this.radius, this.direction, this.up);
         s.setIdNumber(this.idNumber);
         s.setColor(this.color);
         s.setName(this.name);
@@ -151,6 +240,14 @@ public class Spaceship extends GameObject {
         return this.name;
     }
 
+    public int getInputSequence() {
+        return this.inputSequence;
+    }
+
+    public int getStepsTillFire() {
+        return this.stepsTillFire;
+    }
+
     /**
      * setters
      */
@@ -158,8 +255,18 @@ public class Spaceship extends GameObject {
         return this.direction;
     }
 
-    public void setFired() {
-        this.stepsTillFire = 20;
+    /**
+     * Sets the amount of steps the ship has to wait before it can fire again.
+     */
+    public void setFired(int steps) {
+        this.stepsTillFire = steps;
+    }
+
+    /**
+     * Sets the amount of steps until the ship can collide : it is protected right after it spawns.
+     */
+    public void setStepsTilCollide(int steps) {
+        this.stepsTilCollide = steps;
     }
 
     public void setIdNumber(int idNumber) {
@@ -174,6 +281,10 @@ public class Spaceship extends GameObject {
         this.name = name;
     }
 
+    public void setInputSequence(int inputSequence) {
+        this.inputSequence = inputSequence;
+    }
+
     /**
      * setters for fields : up, left, right, isFiring
      */
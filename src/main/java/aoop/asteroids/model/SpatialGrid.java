@@ -0,0 +1,175 @@
+package aoop.asteroids.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SpatialGrid is a uniform grid over the toroidal game world, used as a broad
+ * phase for collision detection. Objects of one kind are inserted by their
+ * index in the list they belong to, after which the grid can be queried for
+ * all indices that are close enough to possibly collide with a given object.
+ * <p>
+ * Cells at the edges of the world wrap around, so the neighbourhood of a cell
+ * at the right border also contains the cells at the left border. The grid
+ * only narrows down the candidates: the actual test is still done with
+ * {@link EntityStore#collides(int, EntityStore, int)}, so the results are identical to
+ * testing every pair.
+ * <p>
+ * All storage is reused between ticks, rebuilding the grid does not allocate
+ * unless more objects are inserted than ever before.
+ */
+public class SpatialGrid {
+
+    // size of a single cell, in pixels
+    private final int cellSize;
+    // number of cells in both directions
+    private final int columns, rows;
+    // first inserted index of every cell, -1 for an empty cell
+    private final int[] cellHead;
+    // next inserted index in the same cell, -1 at the end of the chain
+    private int[] next;
+    // largest radius of all inserted objects
+    private int maxRadius;
+    // candidates found by the last query
+    private int[] candidates;
+    private int candidateCount;
+
+    /**
+     * Constructs an empty grid for a world of the given size.
+     *
+     * @param width    width of the world.
+     * @param height   height of the world.
+     * @param cellSize size of a cell, should be around the largest collision distance.
+     */
+    public SpatialGrid(int width, int height, int cellSize) {
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (width + cellSize - 1) / cellSize);
+        this.rows = Math.max(1, (height + cellSize - 1) / cellSize);
+        this.cellHead = new int[this.columns * this.rows];
+        this.next = new int[64];
+        this.candidates = new int[64];
+        this.clear();
+    }
+
+    /**
+     * Removes all objects from the grid.
+     */
+    public void clear() {
+        Arrays.fill(this.cellHead, -1);
+        this.maxRadius = 0;
+        this.candidateCount = 0;
+    }
+
+    /**
+     * Clears the grid and inserts all the given objects, using their position in the list as index.
+     */
+    public void build(List<? extends GameObject> objects) {
+        this.clear();
+        for (int i = 0; i < objects.size(); i++) {
+            this.insert(i, objects.get(i));
+        }
+    }
+
+    /**
+     * Clears the grid and inserts all the entities of the given store, using their index.
+     */
+    public void build(EntityStore store) {
+        this.clear();
+        for (int i = 0; i < store.size(); i++) {
+            this.insert(i, store.getX(i), store.getY(i), store.getRadius(i));
+        }
+    }
+
+    /**
+     * Inserts the object with the given index in the cell that holds its location.
+     */
+    public void insert(int index, GameObject object) {
+        this.insert(index, object.getX(), object.getY(), object.getRadius());
+    }
+
+    /**
+     * Inserts an object with the given index, location and radius.
+     */
+    public void insert(int index, double x, double y, int radius) {
+        if (index >= this.next.length) {
+            this.next = Arrays.copyOf(this.next, Math.max(index + 1, this.next.length * 2));
+        }
+        int cell = this.cellOf(x, y);
+        this.next[index] = this.cellHead[cell];
+        this.cellHead[cell] = index;
+        this.maxRadius = Math.max(this.maxRadius, radius);
+    }
+
+    /**
+     * Collects the indices of all inserted objects that may collide with the
+     * given object. The indices are sorted in ascending order, so iterating
+     * over them visits the objects in the same order as iterating over the
+     * original list.
+     *
+     * @param object the object to find collision candidates for.
+     * @return the number of candidates, see {@link #getCandidate(int)}.
+     */
+    public int query(GameObject object) {
+        return this.query(object.getX(), object.getY(), object.getRadius());
+    }
+
+    /**
+     * Collects the indices of all inserted objects that may collide with an
+     * object at the given location with the given radius, see {@link #query(GameObject)}.
+     */
+    public int query(double x, double y, int radius) {
+        this.candidateCount = 0;
+
+        int reach = radius + this.maxRadius;
+        int ring = (reach + this.cellSize - 1) / this.cellSize;
+
+        int column = this.columnOf(x);
+        int row = this.rowOf(y);
+
+        // when the neighbourhood spans the whole grid, visit every cell exactly once
+        int firstColumn = 2 * ring + 1 >= this.columns ? 0 : column - ring;
+        int lastColumn = 2 * ring + 1 >= this.columns ? this.columns - 1 : column + ring;
+        int firstRow = 2 * ring + 1 >= this.rows ? 0 : row - ring;
+        int lastRow = 2 * ring + 1 >= this.rows ? this.rows - 1 : row + ring;
+
+        for (int r = firstRow; r <= lastRow; r++) {
+            int wrappedRow = Math.floorMod(r, this.rows);
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                int wrappedColumn = Math.floorMod(c, this.columns);
+                for (int i = this.cellHead[wrappedRow * this.columns + wrappedColumn]; i != -1; i = this.next[i]) {
+                    this.addCandidate(i);
+                }
+            }
+        }
+
+        Arrays.sort(this.candidates, 0, this.candidateCount);
+        return this.candidateCount;
+    }
+
+    /**
+     * Returns the k-th candidate index of the last query.
+     */
+    public int getCandidate(int k) {
+        return this.candidates[k];
+    }
+
+    private void addCandidate(int index) {
+        if (this.candidateCount == this.candidates.length) {
+            this.candidates = Arrays.copyOf(this.candidates, this.candidates.length * 2);
+        }
+        this.candidates[this.candidateCount++] = index;
+    }
+
+    private int cellOf(double x, double y) {
+        return this.rowOf(y) * this.columns + this.columnOf(x);
+    }
+
+    private int columnOf(double x) {
+        return Math.floorMod((int) Math.floor(x / this.cellSize), this.columns);
+    }
+
+    private int rowOf(double y) {
+        return Math.floorMod((int) Math.floor(y / this.cellSize), this.rows);
+    }
+
+}
@@ -2,6 +2,7 @@ package aoop.asteroids.view;
 
 
 import aoop.asteroids.controller.PlayerActions;
+import aoop.asteroids.model.Game;
 import aoop.asteroids.model.MultiPlayerGame;
 import aoop.asteroids.model.SinglePlayerGame;
 
@@ -11,16 +12,30 @@ import java.awt.event.WindowListener;
 
 import javax.swing.*;
 
+/**
+ * The window a game is played or spectated in.
+ * By default the game is drawn by an AsteroidsPanel, repainted by Swing whenever the game is updated.
+ * When the system property asteroids.refreshRate is set (i.e. -Dasteroids.refreshRate=120) the game is drawn
+ * by a GameCanvas instead : actively, at that amount of frames per second, interpolated between the updates.
+ */
 public class AsteroidsFrame extends JFrame {
 
     public static final long serialVersionUID = 1L;
 
     public static final int FRAME_WIDTH = 800, FRAME_HEIGHT = 800;
 
+    /**
+     * System property with the refresh rate of the active rendering mode, the panel is used when it is not set
+     */
+    public static final String REFRESH_RATE_PROPERTY = "asteroids.refreshRate";
+
     // the controller
     private PlayerActions controller;
-    // the panel
+    // draws the game
+    private GameRenderer renderer;
+    // the panel, or the canvas in active rendering mode
     private AsteroidsPanel ap;
+    private GameCanvas canvas;
 
     /**
      * Constructor for the single-player mode
@@ -28,9 +43,7 @@ public class AsteroidsFrame extends JFrame {
     public AsteroidsFrame(SinglePlayerGame game, PlayerActions controller) {
         this.controller = controller;
 
-        this.ap = new AsteroidsPanel(game);
-
-        createFrame();
+        createFrame(game, false);
 
         WindowListener exitListener = new WindowAdapter() {
 
@@ -56,15 +69,13 @@ public class AsteroidsFrame extends JFrame {
     public AsteroidsFrame(MultiPlayerGame multiplayerGame, PlayerActions controller) {
 
         this.controller = controller;
-        this.ap = new AsteroidsPanel(multiplayerGame);
-
-        createFrame();
+        createFrame(multiplayerGame, true);
 
         WindowListener exitListener = new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
-                // do not let the host/ joiner exit the game, unless the game is over/ game has started
-                if (!multiplayerGame.getIsHost() && !multiplayerGame.getIsWaiting()) {
+                // do not let the host/ joiner exit the game, unless the game is over/ game has started/ join was rejected
+                if (!multiplayerGame.getIsHost() && (!multiplayerGame.getIsWaiting() || multiplayerGame.isRejected())) {
                     closeFrame(multiplayerGame);
                 } else if (multiplayerGame.getSpaceships().size() == 1) {
                     closeFrame(multiplayerGame);
@@ -77,7 +88,14 @@ public class AsteroidsFrame extends JFrame {
         this.addWindowListener(exitListener);
     }
 
-    private void createFrame() {
+    private void createFrame(Game game, boolean isMultiPlayer) {
+        this.renderer = new GameRenderer(game, isMultiPlayer);
+        int refreshRate = Integer.getInteger(REFRESH_RATE_PROPERTY, 0);
+        if (refreshRate > 0) {
+            this.canvas = new GameCanvas(this.renderer, refreshRate);
+        } else {
+            this.ap = new AsteroidsPanel(game, this.renderer);
+        }
 
         this.setTitle("Asteroids");
         this.setSize(FRAME_WIDTH, FRAME_HEIGHT);
@@ -87,9 +105,27 @@ public class AsteroidsFrame extends JFrame {
 
         this.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
 
-        this.add(this.ap);
+        this.add(this.canvas != null ? this.canvas : this.ap);
 
         this.setVisible(true);
+
+        if (this.canvas != null) {
+            this.canvas.start();
+        }
+    }
+
+    /**
+     * Stop the render thread and the render snapshots when the frame is closed
+     */
+    @Override
+    public void dispose() {
+        if (this.canvas != null) {
+            this.canvas.stop();
+        }
+        if (this.renderer != null) {
+            this.renderer.close();
+        }
+        super.dispose();
     }
 
     public void closeFrame(MultiPlayerGame multiplayerGame) {
@@ -0,0 +1,119 @@
+package aoop.asteroids.view;
+
+import aoop.asteroids.model.RenderSnapshot;
+
+/**
+ * The part of the world that is drawn, and at which scale.
+ * <p>
+ * A world that fits in the frame is drawn as a whole, from its top left corner. In a larger world the camera follows
+ * the ship of the local player at full scale, and stays where it was once that ship is destroyed; without local player
+ * (i.e. a spectator) the whole world is scaled down to fit the frame.
+ * <p>
+ * The world wraps around its edges : an object near an edge can be seen at the opposite side of the view as well.
+ * project(...) returns every location at which an object is visible, so objects outside the view are culled
+ * and the ones that wrap around are drawn twice.
+ */
+public class Camera {
+
+    // top left corner of the view in the world, and screen pixels per world unit
+    private double left, top, zoom;
+    // size of the world, and the part of it that is visible, in world units
+    private int worldWidth, worldHeight;
+    private double visibleWidth, visibleHeight;
+    // holds true once the local ship was followed
+    private boolean hasFollowed;
+
+    // the screen locations of the last projected object
+    private final double[] screenX = new double[4], screenY = new double[4];
+
+    /**
+     * Constructor : a camera at the top left corner of the world, at full scale
+     */
+    public Camera() {
+        this.zoom = 1;
+    }
+
+    /**
+     * Moves the camera for a frame of the given size
+     *
+     * @param alpha the interpolation factor the frame is drawn with, see RenderSnapshot.
+     */
+    public void update(RenderSnapshot snapshot, int width, int height, double alpha) {
+        this.worldWidth = snapshot.getWorldWidth();
+        this.worldHeight = snapshot.getWorldHeight();
+
+        if (this.worldWidth <= width && this.worldHeight <= height) {
+            this.left = 0;
+            this.top = 0;
+            this.zoom = 1;
+        } else if (snapshot.getLocalShipId() != RenderSnapshot.NO_SHIP) {
+            int row = snapshot.findShip(snapshot.getLocalShipId());
+            if (row >= 0 && !snapshot.isShipDestroyed(row)) {
+                this.left = snapshot.getShipX(row, alpha) - width / 2.0;
+                this.top = snapshot.getShipY(row, alpha) - height / 2.0;
+                this.hasFollowed = true;
+            } else if (!this.hasFollowed) {
+                this.left = 0;
+                this.top = 0;
+            }
+            this.zoom = 1;
+        } else {
+            this.left = 0;
+            this.top = 0;
+            this.zoom = Math.min(width / (double) this.worldWidth, height / (double) this.worldHeight);
+        }
+        this.visibleWidth = Math.min(width / this.zoom, this.worldWidth);
+        this.visibleHeight = Math.min(height / this.zoom, this.worldHeight);
+    }
+
+    /**
+     * Computes the screen locations at which an object at the given world location is visible, see getScreenX(...)
+     *
+     * @param radius the distance from the location within which the object is drawn, in world units.
+     * @return the amount of locations, 0 when the object is outside the view.
+     */
+    public int project(double x, double y, double radius) {
+        // the location relative to the view, in [0, world size), and the copy one world size to the left or above
+        double dx = floorMod(x - this.left, this.worldWidth);
+        double dy = floorMod(y - this.top, this.worldHeight);
+        int count = 0;
+        for (int i = 0; i < 2; i++) {
+            double cx = i == 0 ? dx : dx - this.worldWidth;
+            if (cx + radius < 0 || cx - radius > this.visibleWidth) {
+                continue;
+            }
+            for (int j = 0; j < 2; j++) {
+                double cy = j == 0 ? dy : dy - this.worldHeight;
+                if (cy + radius < 0 || cy - radius > this.visibleHeight) {
+                    continue;
+                }
+                this.screenX[count] = cx * this.zoom;
+                this.screenY[count] = cy * this.zoom;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static double floorMod(double value, int size) {
+        double mod = value % size;
+        return mod < 0 ? mod + size : mod;
+    }
+
+    /**
+     * Getters : the screen locations of the last projected object, and the scale
+     */
+
+    public double getScreenX(int i) {
+        return this.screenX[i];
+    }
+
+    public double getScreenY(int i) {
+        return this.screenY[i];
+    }
+
+    public double getZoom() {
+        return this.zoom;
+    }
+
+}
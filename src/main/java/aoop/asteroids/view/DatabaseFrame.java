@@ -1,12 +1,11 @@
 package aoop.asteroids.view;
 
 import aoop.asteroids.model.Database;
-import aoop.asteroids.model.Player;
+import aoop.asteroids.model.ScoreStore;
 
 import javax.swing.*;
-import javax.swing.text.SimpleAttributeSet;
-import javax.swing.text.StyleConstants;
-import javax.swing.text.StyledDocument;
+import javax.swing.Timer;
+import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
 import java.awt.event.*;
 
@@ -15,10 +14,12 @@ public class DatabaseFrame extends JFrame implements KeyListener {
     public static final int DF_WIDTH = 550, DF_HEIGHT = 500;
     private Image background;
     private Database database;
+    private LeaderboardTableModel model;
+    private Timer refreshTimer;
 
     public DatabaseFrame() {
 
-        this.database = new Database();
+        this.database = Database.open(Database.DEFAULT_PATH);
 
         this.setTitle("Database");
         this.setSize(DF_WIDTH, DF_HEIGHT);
@@ -47,24 +48,30 @@ public class DatabaseFrame extends JFrame implements KeyListener {
         label.setFont(new Font(Font.MONOSPACED, Font.BOLD, 18));
         panel.add(label);
 
-        // The text obtained from the database
-        String text = "";
-        for (Player p : database.getPlayers()) {
-            text = text.concat(p.getName() + " - " + p.getCurrentScore() + "\n");
+        // The players ordered by score : the table only looks up the rows it shows
+        this.model = new LeaderboardTableModel(this.database.getLeaderboard());
+        JTable table = new JTable(this.model);
+        table.setForeground(new Color(73, 93, 134));
+        table.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 16));
+        table.setRowHeight(22);
+        table.setFocusable(false);
+        table.getColumnModel().getColumn(0).setPreferredWidth(60);
+        table.getColumnModel().getColumn(1).setPreferredWidth(160);
+        table.getColumnModel().getColumn(2).setPreferredWidth(80);
+        DefaultTableCellRenderer center = new DefaultTableCellRenderer();
+        center.setHorizontalAlignment(SwingConstants.CENTER);
+        for (int i = 0; i < table.getColumnCount(); i++) {
+            table.getColumnModel().getColumn(i).setCellRenderer(center);
         }
 
-        JTextPane textPane = new JTextPane();
-        textPane.setText(text);
-        textPane.setBounds(125, 80, 300, 300);
-        textPane.setForeground(new Color(73, 93, 134));
-        textPane.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 16));
-        textPane.setEditable(false);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setBounds(125, 80, 300, 300);
+        scrollPane.setFocusable(false);
+        panel.add(scrollPane);
 
-        StyledDocument doc = textPane.getStyledDocument();
-        SimpleAttributeSet center = new SimpleAttributeSet();
-        StyleConstants.setAlignment(center, StyleConstants.ALIGN_CENTER);
-        doc.setParagraphAttributes(0, doc.getLength(), center, false);
-        panel.add(textPane);
+        // show the scores written by games in the meantime
+        this.refreshTimer = new Timer(1000, e -> this.model.refresh());
+        this.refreshTimer.start();
 
         JLabel delete = new JLabel("* Press D to delete an entry *");
         delete.setBounds(185, 400, 300, 20);
@@ -90,6 +97,17 @@ public class DatabaseFrame extends JFrame implements KeyListener {
         this.setVisible(true);
     }
 
+    @Override
+    public void dispose() {
+        this.refreshTimer.stop();
+        // dispose() may be called more than once, the database is closed once
+        if (this.database != null) {
+            this.database.closeDatabaseConnection();
+            this.database = null;
+        }
+        super.dispose();
+    }
+
     /**
      * If key D is pressed, the user has the possibility of removing entries from the database
      */
@@ -98,7 +116,9 @@ public class DatabaseFrame extends JFrame implements KeyListener {
         if (event.getKeyCode() == KeyEvent.VK_D) {
             JFrame frame = new JFrame();
             String name = JOptionPane.showInputDialog(frame, "Name of player to delete:");
-            this.database.deletePlayer(name);
+            if (name != null) {
+                this.database.deletePlayer(name);
+            }
 
             JOptionPane.showMessageDialog(frame, "Refresh");
 
@@ -108,7 +128,13 @@ public class DatabaseFrame extends JFrame implements KeyListener {
         if (event.getKeyCode() == KeyEvent.VK_F) {
             String name = JOptionPane.showInputDialog("Name of player to find:");
             if (name != null) {
-                this.database.findScore(name);
+                int score = this.database.findScore(name);
+                if (score != ScoreStore.NO_SCORE) {
+                    JOptionPane.showMessageDialog(null, "Player " + name + " has highscore: " + score
+                            + " (rank " + (this.database.getLeaderboard().getRank(name) + 1) + ")");
+                } else {
+                    JOptionPane.showMessageDialog(null, "Sorry! Player " + name + " is not in the database.");
+                }
             }
         }
     }
@@ -0,0 +1,194 @@
+package aoop.asteroids.view;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.imageio.ImageIO;
+
+/**
+ * Captures the frames of an OffscreenRenderer at a fixed rate, on a thread of its own, and writes them to a directory :
+ * as numbered PNG files, or appended to one raw file of 8 bit RGB pixels (i.e. for ffmpeg -f rawvideo -pix_fmt rgb24).
+ * <p>
+ * The game is never blocked by the capture, it only publishes render snapshots. When writing a frame takes longer
+ * than the frame time the frames in between are skipped, so the rate is an upper bound.
+ */
+public class FrameWriter implements Runnable {
+
+    /**
+     * Write every frame to a PNG file of its own
+     */
+    public static final String PNG = "png";
+
+    /**
+     * Append every frame to one file of raw RGB pixels
+     */
+    public static final String RAW = "rgb";
+
+    private final OffscreenRenderer renderer;
+    private final File directory;
+    private final String format;
+    // frames per second, and the maximum amount of frames to write
+    private final int frameRate;
+    private final int maxFrames;
+    private volatile boolean isRunning;
+    private Thread thread;
+
+    // statistics, i.e. for benchmarks : frames written and the time spent drawing them
+    private volatile int frameCount;
+    private volatile long renderTime;
+
+    // raw format : the output stream and the reused pixel row
+    private OutputStream raw;
+    private byte[] rawRow;
+
+    /**
+     * Constructor
+     *
+     * @param renderer  draws the frames.
+     * @param directory the directory the frames are written to, created when needed.
+     * @param format    PNG or RAW.
+     * @param frameRate amount of frames per second.
+     * @param maxFrames the writer stops after this amount of frames, 0 for no limit.
+     */
+    public FrameWriter(OffscreenRenderer renderer, File directory, String format, int frameRate, int maxFrames) {
+        if (!PNG.equals(format) && !RAW.equals(format)) {
+            throw new IllegalArgumentException("Frame format must be " + PNG + " or " + RAW + ", got " + format);
+        }
+        if (frameRate < 1) {
+            throw new IllegalArgumentException("Frame rate must be at least 1, got " + frameRate);
+        }
+        this.renderer = renderer;
+        this.directory = directory;
+        this.format = format;
+        this.frameRate = frameRate;
+        this.maxFrames = maxFrames;
+    }
+
+    /**
+     * Start capturing on a thread of its own
+     */
+    public synchronized void start() {
+        if (this.thread != null) {
+            return;
+        }
+        this.isRunning = true;
+        this.thread = new Thread(this, "frame-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Stop capturing : the frame being written is finished, then the output is closed
+     */
+    public synchronized void stop() {
+        this.isRunning = false;
+    }
+
+    /**
+     * Waits until the capture is stopped and the output is closed
+     */
+    public void join() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = this.thread;
+        }
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Capture loop : draw and write a frame, sleep until the next one is due
+     */
+    public void run() {
+        if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            System.err.println("Frames could not be written: cannot create " + this.directory);
+            return;
+        }
+        long frameTime = 1000000000L / this.frameRate;
+        long nextFrame = System.nanoTime();
+        try {
+            while (this.isRunning && (this.maxFrames == 0 || this.frameCount < this.maxFrames)) {
+                long start = System.nanoTime();
+                BufferedImage image = this.renderer.render();
+                this.renderTime += System.nanoTime() - start;
+                this.write(image);
+                this.frameCount++;
+
+                nextFrame += frameTime;
+                long sleepTime = nextFrame - System.nanoTime();
+                if (sleepTime <= 0) {
+                    // skip the frames that are late
+                    nextFrame = System.nanoTime();
+                    continue;
+                }
+                Thread.sleep(sleepTime / 1000000L, (int) (sleepTime % 1000000L));
+            }
+        } catch (IOException e) {
+            System.err.println("Frame could not be written: " + e.getMessage());
+        } catch (InterruptedException e) {
+            // stop capturing
+        } finally {
+            this.closeRaw();
+            this.renderer.close();
+        }
+    }
+
+    /**
+     * Write one frame in the chosen format
+     */
+    private void write(BufferedImage image) throws IOException {
+        if (PNG.equals(this.format)) {
+            ImageIO.write(image, "png", new File(this.directory, String.format("frame-%06d.png", this.frameCount)));
+            return;
+        }
+
+        int width = this.renderer.getWidth(), height = this.renderer.getHeight();
+        if (this.raw == null) {
+            this.raw = new BufferedOutputStream(new FileOutputStream(new File(this.directory, "frames-" + width + "x" + height + ".rgb")), 1 << 16);
+            this.rawRow = new byte[3 * width];
+        }
+        int[] pixels = this.renderer.getPixels();
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int rgb = pixels[offset + x];
+                this.rawRow[3 * x] = (byte) (rgb >> 16);
+                this.rawRow[3 * x + 1] = (byte) (rgb >> 8);
+                this.rawRow[3 * x + 2] = (byte) rgb;
+            }
+            this.raw.write(this.rawRow);
+        }
+    }
+
+    private void closeRaw() {
+        if (this.raw != null) {
+            try {
+                this.raw.close();
+            } catch (IOException e) {
+                System.err.println("Frames could not be written: " + e.getMessage());
+            }
+            this.raw = null;
+        }
+    }
+
+    /**
+     * Getters : statistics
+     */
+
+    public int getFrameCount() {
+        return this.frameCount;
+    }
+
+    /**
+     * Returns the average time spent drawing a frame in nanoseconds, the time to write it not included
+     */
+    public long getAverageRenderTime() {
+        int frames = this.frameCount;
+        return frames > 0 ? this.renderTime / frames : 0;
+    }
+
+}
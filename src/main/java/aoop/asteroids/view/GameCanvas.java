@@ -0,0 +1,128 @@
+package aoop.asteroids.view;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+/**
+ * Active rendering : a canvas that is drawn by a render thread of its own through a BufferStrategy,
+ * at a fixed refresh rate that does not depend on the tick rate of the game.
+ * Every frame is drawn between the last two updates of the game, see GameRenderer, so the objects move
+ * smoothly at refresh rates above the tick rate.
+ */
+public class GameCanvas extends Canvas implements Runnable {
+
+    public static final long serialVersionUID = 1L;
+
+    private final GameRenderer renderer;
+    // frames per second
+    private final int refreshRate;
+    private volatile boolean isRunning;
+    private Thread thread;
+
+    /**
+     * Constructor : the frames are drawn by the given renderer, at the given amount of frames per second
+     */
+    public GameCanvas(GameRenderer renderer, int refreshRate) {
+        if (refreshRate < 1) {
+            throw new IllegalArgumentException("Refresh rate must be at least 1, got " + refreshRate);
+        }
+        this.renderer = renderer;
+        this.refreshRate = refreshRate;
+        this.setIgnoreRepaint(true);
+        this.setBackground(Color.black);
+        // the key listener is on the frame
+        this.setFocusable(false);
+    }
+
+    /**
+     * Start the render thread : the canvas has to be displayable, i.e. its frame is visible
+     */
+    public synchronized void start() {
+        if (this.thread != null) {
+            return;
+        }
+        this.createBufferStrategy(2);
+        this.isRunning = true;
+        this.thread = new Thread(this, "render-thread");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Stop the render thread, the frame being drawn is finished first : after this returns the renderer
+     * is no longer used and can be closed. The lock is not held while waiting, a frame does not need it
+     */
+    public void stop() {
+        Thread rendering;
+        synchronized (this) {
+            this.isRunning = false;
+            rendering = this.thread;
+            this.thread = null;
+        }
+        if (rendering == null || rendering == Thread.currentThread()) {
+            return;
+        }
+        try {
+            rendering.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Render loop : draw a frame, sleep until the next one is due
+     * when a frame was late the next one is due a full frame time later, late frames are not caught up with
+     */
+    public void run() {
+        long frameTime = 1000000000L / this.refreshRate;
+        long nextFrame = System.nanoTime();
+        while (this.isRunning) {
+            try {
+                this.renderFrame();
+            } catch (IllegalStateException e) {
+                // the canvas was removed from its frame in the meantime
+                return;
+            }
+
+            nextFrame += frameTime;
+            long sleepTime = nextFrame - System.nanoTime();
+            if (sleepTime <= 0) {
+                nextFrame = System.nanoTime();
+                Thread.yield();
+                continue;
+            }
+            try {
+                Thread.sleep(sleepTime / 1000000L, (int) (sleepTime % 1000000L));
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Draw one frame and show it, again when the contents of the buffers were lost meanwhile
+     */
+    private void renderFrame() {
+        BufferStrategy strategy = this.getBufferStrategy();
+        if (strategy == null) {
+            return;
+        }
+        do {
+            do {
+                Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    this.renderer.render(g, this.getWidth(), this.getHeight(), true);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    public int getRefreshRate() {
+        return this.refreshRate;
+    }
+
+}
@@ -0,0 +1,238 @@
+package aoop.asteroids.view;
+
+import aoop.asteroids.model.Game;
+import aoop.asteroids.model.RenderBuffer;
+import aoop.asteroids.model.RenderSnapshot;
+
+import java.awt.*;
+
+/**
+ * Draws a game : used by the AsteroidsPanel when the EDT repaints, and by the GameCanvas from its render thread.
+ * <p>
+ * The renderer only reads the render snapshots the game publishes at every update (see RenderBuffer), never the game
+ * itself, so drawing does not copy any objects and does not race with the thread that updates the game.
+ * Every snapshot holds the locations of the update before as well, so a frame can be drawn anywhere between the two.
+ * Only the objects within the view of the Camera are drawn, at less detail when the world is scaled down.
+ * A renderer is meant to be used by one thread.
+ */
+public class GameRenderer {
+
+    private static final String WAITING_MESSAGE = "Please wait for all opponents to connect.";
+    private static final String REJECTED_MESSAGE = "The game has started already, it cannot be joined.";
+
+    // level of detail : asteroids smaller than this radius on screen are a dot, as are ships smaller than this size
+    private static final int MIN_SPRITE_RADIUS = 4;
+    private static final int MIN_SHIP_SIZE = 5;
+    // distance from the location of a ship within which it is drawn, its name included
+    private static final int SHIP_EXTENT = 80;
+
+    private final Game game;
+    private final boolean isMultiPlayer;
+    // the snapshots of the game
+    private final RenderBuffer buffer;
+    // textures and sprites, created on the first frame
+    private RenderAssets assets;
+    // ship vertices per heading, and ship outline colors
+    private final ShipShapes shipShapes;
+    // the part of the world that is drawn
+    private final Camera camera;
+    // scoreboard and messages, and the end of game message shown last
+    private final HudLayer hud;
+    private String endGameMessage;
+    private boolean endGameWon;
+    private int endGameScore;
+
+    /**
+     * Constructor : start receiving the snapshots of the game
+     */
+    public GameRenderer(Game game, boolean isMultiPlayer) {
+        this.game = game;
+        this.isMultiPlayer = isMultiPlayer;
+        this.buffer = game.openRenderBuffer();
+        this.shipShapes = new ShipShapes();
+        this.hud = new HudLayer();
+        this.camera = new Camera();
+    }
+
+    /**
+     * Stop receiving the snapshots of the game
+     */
+    public void close() {
+        this.game.closeRenderBuffer(this.buffer);
+    }
+
+    /**
+     * Draws a frame of the given size, of the last snapshot of the game
+     *
+     * @param interpolate whether to draw the objects between the previous update and the last one,
+     *                    by the time that passed since the last one : otherwise they are drawn at the last update.
+     */
+    public void render(Graphics2D g, int width, int height, boolean interpolate) {
+        RenderSnapshot snapshot = this.buffer.acquire();
+        double alpha = interpolate ? snapshot.getInterpolationAlpha(System.nanoTime()) : 1;
+
+        g.setColor(Color.black);
+        g.fillRect(0, 0, width, height);
+
+        if (!snapshot.isSpectator() && this.isMultiPlayer && snapshot.getShipCount() <= 1 && !snapshot.isWaiting()) {
+            // game has ended
+            this.paintEndGame(g, snapshot, width, height);
+            return;
+        } else if (!snapshot.isSpectator() && this.isMultiPlayer && snapshot.isWaiting()) {
+            // game is waiting to begin
+            this.paintWaiting(g, snapshot, width, height);
+            return;
+        }
+
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        this.camera.update(snapshot, width, height, alpha);
+        this.paintSpaceships(g, snapshot, alpha);
+        this.paintAsteroids(g, snapshot, alpha);
+        this.paintBullets(g, snapshot, alpha);
+        this.paintPlayers(g, snapshot);
+    }
+
+    /**
+     * Draws all bullets as a yellow circle, as a dot when the world is scaled down
+     */
+    private void paintBullets(Graphics2D g, RenderSnapshot snapshot, double alpha) {
+        Camera camera = this.camera;
+        boolean isDetailed = camera.getZoom() >= 1;
+        g.setColor(Color.yellow);
+        for (int i = 0; i < snapshot.getBulletCount(); i++) {
+            int copies = camera.project(snapshot.getBulletX(i, alpha), snapshot.getBulletY(i, alpha), 3);
+            for (int k = 0; k < copies; k++) {
+                int x = (int) camera.getScreenX(k), y = (int) camera.getScreenY(k);
+                if (isDetailed) {
+                    g.drawOval(x - 2, y - 2, 5, 5);
+                } else {
+                    g.fillRect(x, y, 1, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws asteroids, as their cached sprite : scaled when the world is scaled down, a gray dot when that is tiny
+     */
+    private void paintAsteroids(Graphics2D g, RenderSnapshot snapshot, double alpha) {
+        RenderAssets assets = this.getAssets(g.getDeviceConfiguration());
+        Camera camera = this.camera;
+        double zoom = camera.getZoom();
+        for (int i = 0; i < snapshot.getAsteroidCount(); i++) {
+            int radius = snapshot.getAsteroidRadius(i);
+            int copies = camera.project(snapshot.getAsteroidX(i, alpha), snapshot.getAsteroidY(i, alpha), radius);
+            double screenRadius = radius * zoom;
+            for (int k = 0; k < copies; k++) {
+                int x = (int) camera.getScreenX(k), y = (int) camera.getScreenY(k);
+                if (zoom >= 1) {
+                    g.drawImage(assets.getAsteroidSprite(radius), x - radius, y - radius, null);
+                } else if (screenRadius >= MIN_SPRITE_RADIUS) {
+                    int r = (int) screenRadius;
+                    g.drawImage(assets.getAsteroidSprite(radius), x - r, y - r, 2 * r, 2 * r, null);
+                } else {
+                    int size = Math.max(1, (int) (2 * screenRadius));
+                    g.setColor(Color.gray);
+                    g.fillRect(x - size / 2, y - size / 2, size, size);
+                }
+            }
+        }
+    }
+
+    /**
+     * Paints all the spaceships as a triangle using the color chosen by each player
+     * when the ship is accelerating it represents a flame at the bottom of the ship
+     * the shapes are precomputed for every heading, see ShipShapes
+     * when the world is scaled down the names and flames are left out, tiny ships are a dot
+     */
+    private void paintSpaceships(Graphics2D g, RenderSnapshot snapshot, double alpha) {
+        ShipShapes shapes = this.shipShapes;
+        Camera camera = this.camera;
+        double zoom = camera.getZoom();
+        for (int i = 0; i < snapshot.getShipCount(); i++) {
+            if (!snapshot.isShipDestroyed(i)) {
+                // the name reaches furthest from the ship
+                int copies = camera.project(snapshot.getShipX(i, alpha), snapshot.getShipY(i, alpha), zoom >= 1 ? SHIP_EXTENT : 25);
+                if (copies == 0) {
+                    continue;
+                }
+                int heading = ShipShapes.toHeading(snapshot.getShipDirection(i, alpha));
+                Color color = snapshot.getShipColor(i);
+
+                for (int k = 0; k < copies; k++) {
+                    double x = camera.getScreenX(k), y = camera.getScreenY(k);
+                    if (zoom >= 1) {
+                        this.paintSpaceship(g, snapshot, i, x, y, heading, color);
+                    } else if (20 * zoom >= MIN_SHIP_SIZE) {
+                        shapes.hull(x, y, heading, zoom);
+                        g.setColor(color);
+                        g.fillPolygon(shapes.getXPoints(), shapes.getYPoints(), 3);
+                    } else {
+                        g.setColor(color);
+                        g.fillRect((int) x - 1, (int) y - 1, 3, 3);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Paints one spaceship at full detail at the given screen location
+     */
+    private void paintSpaceship(Graphics2D g, RenderSnapshot snapshot, int i, double x, double y, int heading, Color color) {
+        ShipShapes shapes = this.shipShapes;
+
+        // Draw body of the spaceships
+        shapes.hull(x, y, heading);
+        g.setColor(color);
+        g.fillPolygon(shapes.getXPoints(), shapes.getYPoints(), 3);
+        g.setColor(shapes.getOutline(color));
+        g.drawPolygon(shapes.getXPoints(), shapes.getYPoints(), 3);
+
+        g.drawString(snapshot.getShipName(i), (int) x - 12, (int) y - 25);
+
+        // Spaceship accelerating .
+        if (snapshot.isShipAccelerating(i)) {
+            // Draw flame at the exhaust
+            shapes.flame(x, y, heading);
+            g.setColor(Color.yellow);
+            g.fillPolygon(shapes.getXPoints(), shapes.getYPoints(), 3);
+        }
+    }
+
+    /**
+     * Paints all the players and their corresponding scores, see HudLayer
+     */
+    private void paintPlayers(Graphics2D g2, RenderSnapshot snapshot) {
+        this.hud.paintScoreboard(g2, snapshot);
+    }
+
+    private void paintEndGame(Graphics2D g, RenderSnapshot snapshot, int width, int height) {
+        if (this.endGameMessage == null || snapshot.isWon() != this.endGameWon || snapshot.getLocalScore() != this.endGameScore) {
+            this.endGameWon = snapshot.isWon();
+            this.endGameScore = snapshot.getLocalScore();
+            if (this.endGameWon) {
+                this.endGameMessage = "You won! Your score was: " + String.valueOf(this.endGameScore);
+            } else {
+                this.endGameMessage = "So sad, you lost!";
+            }
+        }
+        this.hud.paintMessage(g, this.endGameMessage, width, height);
+    }
+
+    private void paintWaiting(Graphics2D g, RenderSnapshot snapshot, int width, int height) {
+        this.hud.paintMessage(g, snapshot.isRejected() ? REJECTED_MESSAGE : WAITING_MESSAGE, width, height);
+    }
+
+    /**
+     * Returns the cached images, created again when drawing to a screen with another configuration
+     */
+    private RenderAssets getAssets(GraphicsConfiguration configuration) {
+        if (this.assets == null || this.assets.getConfiguration() != configuration) {
+            this.assets = new RenderAssets(configuration);
+        }
+        return this.assets;
+    }
+
+}
@@ -0,0 +1,152 @@
+package aoop.asteroids.view;
+
+import aoop.asteroids.model.RenderSnapshot;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * The layer drawn on top of the game : the scoreboard, and the messages shown instead of the game.
+ * Both are rendered into cached images, the scoreboard only again when a player joins or leaves or a score changes,
+ * a message only again when its text changes. Every frame then only draws an image.
+ */
+public class HudLayer {
+
+    // font and layout of the messages, measured once per text
+    private static final Font MESSAGE_FONT = new Font(Font.MONOSPACED, Font.BOLD, 20);
+    private static final Color MESSAGE_COLOR = new Color(181, 255, 227);
+    private static final FontRenderContext MESSAGE_CONTEXT = new FontRenderContext(new AffineTransform(), true, true);
+
+    // horizontal space per player, and room for the name of the last player
+    private static final int COLUMN_WIDTH = 100;
+    private static final int SCOREBOARD_HEIGHT = 50;
+
+    // the scoreboard, and what it was rendered from
+    private BufferedImage scoreboard;
+    private int playerCount;
+    private int[] playerIds = new int[0], playerScores = new int[0];
+    private String[] playerNames = new String[0];
+    private Color[] playerColors = new Color[0];
+    private Font scoreboardFont;
+
+    // the last message, with the location of its image relative to where the text is placed
+    private BufferedImage message;
+    private String messageText;
+    private int messageWidth, messageHeight, messageOffsetY;
+
+    // the configuration the images are compatible with
+    private GraphicsConfiguration configuration;
+
+    /**
+     * Draws the name and score of every player in the top left corner, in the color of the player
+     */
+    public void paintScoreboard(Graphics2D g, RenderSnapshot snapshot) {
+        this.checkConfiguration(g.getDeviceConfiguration());
+        if (this.scoreboard == null || !g.getFont().equals(this.scoreboardFont) || this.hasChanged(snapshot)) {
+            this.renderScoreboard(snapshot, g.getFont());
+        }
+        g.drawImage(this.scoreboard, 0, 0, null);
+    }
+
+    /**
+     * Draws the message centered on a frame of the given size
+     */
+    public void paintMessage(Graphics2D g, String text, int width, int height) {
+        this.checkConfiguration(g.getDeviceConfiguration());
+        if (this.message == null || !text.equals(this.messageText)) {
+            this.renderMessage(text);
+        }
+        int x = width / 2 - (this.messageWidth / 2);
+        int baseline = height / 2 - (this.messageHeight / 2);
+        g.drawImage(this.message, x, baseline + this.messageOffsetY, null);
+    }
+
+    /**
+     * Drop the images when they were made for another configuration
+     */
+    private void checkConfiguration(GraphicsConfiguration configuration) {
+        if (configuration != this.configuration) {
+            this.configuration = configuration;
+            this.scoreboard = null;
+            this.message = null;
+        }
+    }
+
+    /**
+     * Returns true when the players or their scores differ from the ones the scoreboard was rendered from
+     */
+    private boolean hasChanged(RenderSnapshot snapshot) {
+        if (snapshot.getPlayerCount() != this.playerCount) {
+            return true;
+        }
+        for (int i = 0; i < this.playerCount; i++) {
+            if (snapshot.getPlayerId(i) != this.playerIds[i] || snapshot.getPlayerScore(i) != this.playerScores[i]
+                    || !snapshot.getPlayerName(i).equals(this.playerNames[i]) || !snapshot.getPlayerColor(i).equals(this.playerColors[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void renderScoreboard(RenderSnapshot snapshot, Font font) {
+        int n = snapshot.getPlayerCount();
+        if (this.playerIds.length < n) {
+            this.playerIds = Arrays.copyOf(this.playerIds, n);
+            this.playerScores = Arrays.copyOf(this.playerScores, n);
+            this.playerNames = Arrays.copyOf(this.playerNames, n);
+            this.playerColors = Arrays.copyOf(this.playerColors, n);
+        }
+        this.playerCount = n;
+        this.scoreboardFont = font;
+
+        int width = 20 + (n + 1) * COLUMN_WIDTH;
+        if (this.scoreboard == null || this.scoreboard.getWidth() < width) {
+            this.scoreboard = this.createImage(width, SCOREBOARD_HEIGHT);
+        }
+        Graphics2D g = this.scoreboard.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, this.scoreboard.getWidth(), this.scoreboard.getHeight());
+        g.setComposite(AlphaComposite.SrcOver);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setFont(font);
+        for (int i = 0; i < n; i++) {
+            this.playerIds[i] = snapshot.getPlayerId(i);
+            this.playerScores[i] = snapshot.getPlayerScore(i);
+            this.playerNames[i] = snapshot.getPlayerName(i);
+            this.playerColors[i] = snapshot.getPlayerColor(i);
+
+            g.setColor(this.playerColors[i]);
+            g.drawString(this.playerNames[i], 20 + i * COLUMN_WIDTH, 20);
+            g.drawString(String.valueOf(this.playerScores[i]), 20 + i * COLUMN_WIDTH, 40);
+        }
+        g.dispose();
+    }
+
+    private void renderMessage(String text) {
+        Rectangle2D bounds = MESSAGE_FONT.getStringBounds(text, MESSAGE_CONTEXT);
+        this.messageText = text;
+        this.messageWidth = (int) bounds.getWidth();
+        this.messageHeight = (int) bounds.getHeight();
+        // the text is placed by its baseline, bounds.getY() is the ascent above it
+        this.messageOffsetY = (int) Math.floor(bounds.getY());
+
+        this.message = this.createImage((int) Math.ceil(bounds.getWidth()) + 2, (int) Math.ceil(bounds.getHeight()) + 2);
+        Graphics2D g = this.message.createGraphics();
+        g.setFont(MESSAGE_FONT);
+        g.setColor(MESSAGE_COLOR);
+        g.drawString(text, 0, -this.messageOffsetY);
+        g.dispose();
+    }
+
+    private BufferedImage createImage(int width, int height) {
+        if (this.configuration != null) {
+            return this.configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+}
@@ -0,0 +1,79 @@
+package aoop.asteroids.view;
+
+import aoop.asteroids.model.Leaderboard;
+import aoop.asteroids.model.Player;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * The rows of a Leaderboard for a JTable : rank, name and score.
+ * A table only asks for the rows it shows, so only those are looked up, however many players there are.
+ * refresh() tells the table when the leaderboard changed.
+ */
+public class LeaderboardTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {"#", "Name", "Score"};
+
+    private final Leaderboard leaderboard;
+    // the version of the leaderboard the table shows, and its size at that time
+    private long version;
+    private int rowCount;
+    // the last row that was looked up : a table asks for every column of a row in turn
+    private int lastRow = -1;
+    private Player lastPlayer;
+
+    public LeaderboardTableModel(Leaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+        this.version = leaderboard.getVersion();
+        this.rowCount = leaderboard.size();
+    }
+
+    /**
+     * Update the table when the leaderboard changed since the last refresh
+     */
+    public void refresh() {
+        long version = this.leaderboard.getVersion();
+        if (version != this.version) {
+            this.version = version;
+            this.rowCount = this.leaderboard.size();
+            this.lastRow = -1;
+            this.fireTableDataChanged();
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return this.rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (row != this.lastRow) {
+            // the leaderboard may have shrunk since the last refresh
+            if (row >= this.leaderboard.size()) {
+                return null;
+            }
+            this.lastPlayer = this.leaderboard.get(row);
+            this.lastRow = row;
+        }
+        switch (column) {
+            case 0:
+                return row + 1;
+            case 1:
+                return this.lastPlayer.getName();
+            default:
+                return this.lastPlayer.getCurrentScore();
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package aoop.asteroids.view;
+
+import aoop.asteroids.model.Game;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Draws a game into an image instead of a window, with the same drawing code as the AsteroidsPanel (see GameRenderer).
+ * It does not need a display, i.e. it runs with java.awt.headless=true on a dedicated server.
+ * The image is reused for every frame : it is only valid until the next call to render().
+ */
+public class OffscreenRenderer {
+
+    private final GameRenderer renderer;
+    private final BufferedImage image;
+
+    /**
+     * Constructor : draw the given game into frames of the given size
+     */
+    public OffscreenRenderer(Game game, int width, int height) {
+        // there is no local player : always draw the game itself, never the waiting or end of game messages
+        this.renderer = new GameRenderer(game, false);
+        this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Draws the last update of the game, returns the image it was drawn into
+     */
+    public BufferedImage render() {
+        Graphics2D g = this.image.createGraphics();
+        try {
+            this.renderer.render(g, this.image.getWidth(), this.image.getHeight(), false);
+        } finally {
+            g.dispose();
+        }
+        return this.image;
+    }
+
+    /**
+     * Returns the pixels of the image as 0xRRGGBB values, row by row
+     */
+    public int[] getPixels() {
+        return ((DataBufferInt) this.image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Stop receiving the snapshots of the game
+     */
+    public void close() {
+        this.renderer.close();
+    }
+
+    public BufferedImage getImage() {
+        return this.image;
+    }
+
+    public int getWidth() {
+        return this.image.getWidth();
+    }
+
+    public int getHeight() {
+        return this.image.getHeight();
+    }
+
+}
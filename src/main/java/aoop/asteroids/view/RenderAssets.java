@@ -0,0 +1,114 @@
+package aoop.asteroids.view;
+
+import aoop.asteroids.model.LargeAsteroid;
+import aoop.asteroids.model.MediumAsteroid;
+import aoop.asteroids.model.SmallAsteroid;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+/**
+ * Cache of the images the game is drawn with : textures are read from disk only once, and every asteroid size
+ * is rendered once to a sprite, so painting an asteroid is a single drawImage.
+ * The images are created compatible with the given graphics configuration, so drawing them to the screen needs no conversion.
+ */
+public class RenderAssets {
+
+    /**
+     * Texture the asteroids are filled with
+     */
+    public static final String ASTEROID_TEXTURE = "utils/asteroidPic.jpg";
+
+    // null when there is no screen, i.e. when rendering offscreen
+    private final GraphicsConfiguration configuration;
+    private final Map<String, BufferedImage> textures;
+    private final Map<Integer, BufferedImage> asteroidSprites;
+
+    /**
+     * Constructor : load the textures and render the asteroid sprites for the given graphics configuration
+     *
+     * @param configuration the configuration of the screen the images are drawn to, may be null.
+     */
+    public RenderAssets(GraphicsConfiguration configuration) {
+        this.configuration = configuration;
+        this.textures = new HashMap<>();
+        this.asteroidSprites = new HashMap<>();
+        for (int radius : new int[]{LargeAsteroid.RADIUS, MediumAsteroid.RADIUS, SmallAsteroid.RADIUS}) {
+            this.getAsteroidSprite(radius);
+        }
+    }
+
+    /**
+     * Returns the texture read from the given file, or null if it cannot be read
+     */
+    public BufferedImage getTexture(String path) {
+        if (!this.textures.containsKey(path)) {
+            BufferedImage texture = null;
+            try {
+                BufferedImage read = ImageIO.read(new File(path));
+                if (read != null) {
+                    texture = this.createImage(read.getWidth(), read.getHeight(), Transparency.OPAQUE);
+                    Graphics2D g = texture.createGraphics();
+                    g.drawImage(read, 0, 0, null);
+                    g.dispose();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            // a missing texture is not read again on the next frame either
+            this.textures.put(path, texture);
+        }
+        return this.textures.get(path);
+    }
+
+    /**
+     * Returns the sprite of an asteroid with the given radius, the asteroid is centered in it
+     */
+    public BufferedImage getAsteroidSprite(int radius) {
+        BufferedImage sprite = this.asteroidSprites.get(radius);
+        if (sprite == null) {
+            sprite = this.renderAsteroid(radius);
+            this.asteroidSprites.put(radius, sprite);
+        }
+        return sprite;
+    }
+
+    /**
+     * Renders an asteroid : a circle filled with the texture, tiled from the top left corner of the circle
+     */
+    private BufferedImage renderAsteroid(int radius) {
+        BufferedImage sprite = this.createImage(2 * radius, 2 * radius, Transparency.TRANSLUCENT);
+        Graphics2D g = sprite.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        BufferedImage texture = this.getTexture(ASTEROID_TEXTURE);
+        if (texture != null) {
+            g.setPaint(new TexturePaint(texture, new Rectangle(0, 0, texture.getWidth(), texture.getHeight())));
+        } else {
+            g.setColor(Color.gray);
+        }
+        g.fill(new Ellipse2D.Double(0, 0, 2 * radius, 2 * radius));
+        g.dispose();
+        return sprite;
+    }
+
+    /**
+     * Creates an image that is compatible with the screen, or a plain ARGB image without screen
+     */
+    private BufferedImage createImage(int width, int height, int transparency) {
+        if (this.configuration != null) {
+            return this.configuration.createCompatibleImage(width, height, transparency);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    public GraphicsConfiguration getConfiguration() {
+        return this.configuration;
+    }
+
+}
@@ -0,0 +1,110 @@
+package aoop.asteroids.view;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Precomputed shapes of the spaceships : the vertices of the hull and of the flame at the exhaust,
+ * relative to the location of the ship, for every one of HEADINGS directions.
+ * A ship turns 0.04 pi per game tick (see Spaceship), i.e. 50 steps per turn : the headings are a multiple of that,
+ * so ships that turn at the base tick rate are drawn at their exact direction.
+ * <p>
+ * Drawing a ship only adds its location to the offsets of its heading, into arrays that are reused for every ship.
+ * The outline colors of the ships are cached as well.
+ */
+public class ShipShapes {
+
+    /**
+     * Amount of precomputed directions in a full turn
+     */
+    public static final int HEADINGS = 200;
+
+    // offsets of the hull and flame vertices : [heading][vertex]
+    private static final double[][] HULL_X = new double[HEADINGS][3], HULL_Y = new double[HEADINGS][3];
+    private static final double[][] FLAME_X = new double[HEADINGS][3], FLAME_Y = new double[HEADINGS][3];
+
+    static {
+        for (int h = 0; h < HEADINGS; h++) {
+            double direction = 2 * Math.PI * h / HEADINGS;
+            setVertex(HULL_X[h], HULL_Y[h], 0, direction, 20);
+            setVertex(HULL_X[h], HULL_Y[h], 1, direction + 0.8 * Math.PI, 20);
+            setVertex(HULL_X[h], HULL_Y[h], 2, direction + 1.2 * Math.PI, 20);
+            // the tip of the flame points backwards
+            setVertex(FLAME_X[h], FLAME_Y[h], 0, direction + Math.PI, 25);
+            setVertex(FLAME_X[h], FLAME_Y[h], 1, direction + 0.9 * Math.PI, 15);
+            setVertex(FLAME_X[h], FLAME_Y[h], 2, direction + 1.1 * Math.PI, 15);
+        }
+    }
+
+    // the vertices of the last ship, in screen coordinates
+    private final int[] xPoints = new int[3], yPoints = new int[3];
+    // the outline color of every ship color
+    private final Map<Color, Color> outlines = new HashMap<>();
+
+    private static void setVertex(double[] xs, double[] ys, int vertex, double angle, double length) {
+        xs[vertex] = Math.sin(angle) * length;
+        ys[vertex] = -Math.cos(angle) * length;
+    }
+
+    /**
+     * Returns the heading closest to the given direction in radians, any direction is allowed
+     */
+    public static int toHeading(double direction) {
+        int heading = (int) Math.round(direction * HEADINGS / (2 * Math.PI)) % HEADINGS;
+        return heading < 0 ? heading + HEADINGS : heading;
+    }
+
+    /**
+     * Sets the points to the hull of a ship at the given location and heading, see getXPoints() and getYPoints()
+     */
+    public void hull(double x, double y, int heading) {
+        this.place(HULL_X[heading], HULL_Y[heading], x, y, 1);
+    }
+
+    /**
+     * Same as hull(...), for a ship that is drawn at the given scale
+     */
+    public void hull(double x, double y, int heading, double scale) {
+        this.place(HULL_X[heading], HULL_Y[heading], x, y, scale);
+    }
+
+    /**
+     * Sets the points to the flame of a ship at the given location and heading, see getXPoints() and getYPoints()
+     */
+    public void flame(double x, double y, int heading) {
+        this.place(FLAME_X[heading], FLAME_Y[heading], x, y, 1);
+    }
+
+    private void place(double[] xs, double[] ys, double x, double y, double scale) {
+        for (int i = 0; i < 3; i++) {
+            this.xPoints[i] = (int) (x + xs[i] * scale);
+            this.yPoints[i] = (int) (y + ys[i] * scale);
+        }
+    }
+
+    /**
+     * Returns the outline color of a ship of the given color
+     */
+    public Color getOutline(Color color) {
+        Color outline = this.outlines.get(color);
+        if (outline == null) {
+            outline = color.brighter().brighter();
+            this.outlines.put(color, outline);
+        }
+        return outline;
+    }
+
+    /**
+     * Getters : the points of the last placed shape, reused for every shape
+     */
+
+    public int[] getXPoints() {
+        return this.xPoints;
+    }
+
+    public int[] getYPoints() {
+        return this.yPoints;
+    }
+
+}
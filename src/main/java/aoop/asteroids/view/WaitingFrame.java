@@ -1,15 +1,13 @@
 package aoop.asteroids.view;
 
-import aoop.asteroids.controller.net.Address;
 import aoop.asteroids.controller.net.HostServer;
 import aoop.asteroids.model.MultiPlayerGame;
 
 import javax.swing.*;
+import javax.swing.Timer;
 import java.awt.*;
 import java.awt.event.*;
 import java.net.InetAddress;
-import java.util.Observable;
-import java.util.Observer;
 
 public class WaitingFrame extends JFrame {
 
@@ -20,6 +18,7 @@ public class WaitingFrame extends JFrame {
     private InetAddress ip;
     private Image background;
     private MultiPlayerGame game;
+    private Timer refreshTimer;
 
     public WaitingFrame(MultiPlayerGame game, HostServer hostServer, int minOpponents) {
 
@@ -87,12 +86,9 @@ public class WaitingFrame extends JFrame {
         waitingPanel.add(connected);
         connected.setAlignmentX(Component.CENTER_ALIGNMENT);
 
-        game.addObserver(new Observer() {
-            @Override
-            public void update(Observable o, Object arg) {
-                connected.setText("Connected opponents: " + WaitingFrame.this.hostServer.getNumberOfClients());
-            }
-        });
+        // the game is not stepped (nor does it notify its observers) before it starts : poll the joined clients
+        this.refreshTimer = new Timer(250, e -> connected.setText("Connected opponents: " + WaitingFrame.this.hostServer.getNumberOfClients()));
+        this.refreshTimer.start();
 
         waitingPanel.add(Box.createRigidArea(new Dimension(0, AREA_HEIGHT)));
         JButton start = new JButton("Start");
@@ -105,9 +101,7 @@ public class WaitingFrame extends JFrame {
                     WaitingFrame.this.game.setShouldEnd();
                     // send start request to all clients
                     if (hostServer.hasClients()) {
-                        for (Address a : hostServer.getClientsAddress()) {
-                            hostServer.send("start".getBytes(), a);
-                        }
+                        hostServer.sendStart();
                     }
                     // initialise the game frame
                     new AsteroidsFrame(WaitingFrame.this.game, WaitingFrame.this.game.getController());
@@ -138,4 +132,10 @@ public class WaitingFrame extends JFrame {
 
     }
 
+    @Override
+    public void dispose() {
+        this.refreshTimer.stop();
+        super.dispose();
+    }
+
 }
@@ -0,0 +1,284 @@
+package aoop.asteroids.controller.net;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of ReliableChannel : a sender and a receiver connected by lists of packets, which the tests drop,
+ * duplicate and reorder
+ */
+public class ReliableChannelTest {
+
+    private static final int ROOM_ID = 7;
+
+    private ReliableChannel sender, receiver;
+    // packets on their way to the receiver and back to the sender
+    private List<ByteBuffer> toReceiver, toSender;
+    // the messages the receiver delivered
+    private List<Integer> delivered;
+
+    @Before
+    public void setUp() {
+        this.toReceiver = new ArrayList<>();
+        this.toSender = new ArrayList<>();
+        this.delivered = new ArrayList<>();
+        this.sender = new ReliableChannel(ROOM_ID, packet -> this.toReceiver.add(copy(packet)));
+        this.receiver = new ReliableChannel(ROOM_ID, packet -> this.toSender.add(copy(packet)));
+    }
+
+    private static ByteBuffer copy(ByteBuffer packet) {
+        ByteBuffer copy = ByteBuffer.allocate(packet.remaining());
+        copy.put(packet.duplicate());
+        copy.flip();
+        return copy;
+    }
+
+    private void send(int value) {
+        ByteBuffer message = ByteBuffer.allocate(4);
+        message.putInt(value);
+        message.flip();
+        this.sender.send(message);
+    }
+
+    /**
+     * Passes a packet to the channel it was sent to, as Network.dispatch(...) does
+     */
+    private void deliver(ByteBuffer packet) {
+        packet = packet.duplicate();
+        byte type = Message.typeOf(packet);
+        assertEquals(ROOM_ID, Message.getRoomId(packet));
+        if (type == Message.CONTROL) {
+            this.receiver.receive(packet, message -> this.delivered.add(message.getInt()));
+        } else {
+            assertEquals(Message.CONTROL_ACK, type);
+            this.sender.acknowledge(packet);
+        }
+    }
+
+    /**
+     * Delivers all packets that are on their way, including the ones sent in reply, until none are left
+     */
+    private void deliverAll() {
+        while (!this.toReceiver.isEmpty() || !this.toSender.isEmpty()) {
+            List<ByteBuffer> packets = new ArrayList<>(this.toReceiver);
+            packets.addAll(this.toSender);
+            this.toReceiver.clear();
+            this.toSender.clear();
+            for (ByteBuffer packet : packets) {
+                this.deliver(packet);
+            }
+        }
+    }
+
+    private static List<Integer> range(int count) {
+        List<Integer> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    @Test
+    public void deliversInOrderAndBecomesIdle() {
+        for (int i = 0; i < 10; i++) {
+            this.send(i);
+        }
+        assertFalse(this.sender.isIdle());
+
+        this.deliverAll();
+
+        assertEquals(range(10), this.delivered);
+        assertTrue(this.sender.isIdle());
+        assertEquals(0, this.sender.getRetransmissionCount());
+    }
+
+    @Test
+    public void reorderedMessagesAreDeliveredInOrder() {
+        for (int i = 0; i < 5; i++) {
+            this.send(i);
+        }
+        List<ByteBuffer> packets = new ArrayList<>(this.toReceiver);
+        this.toReceiver.clear();
+        Collections.reverse(packets);
+
+        for (int i = 0; i < 4; i++) {
+            this.deliver(packets.get(i));
+        }
+        // kept until the first one arrives
+        assertTrue(this.delivered.isEmpty());
+        this.deliver(packets.get(4));
+
+        assertEquals(range(5), this.delivered);
+    }
+
+    @Test
+    public void duplicatesAreDeliveredOnce() {
+        for (int i = 0; i < 5; i++) {
+            this.send(i);
+        }
+        List<ByteBuffer> packets = new ArrayList<>(this.toReceiver);
+        this.toReceiver.clear();
+        // an early message arrives twice too
+        this.deliver(packets.get(3));
+        this.deliver(packets.get(3));
+        for (ByteBuffer packet : packets) {
+            this.deliver(packet);
+            this.deliver(packet);
+        }
+
+        assertEquals(range(5), this.delivered);
+        assertEquals(7, this.receiver.getDuplicateCount());
+        this.deliverAll();
+        assertTrue(this.sender.isIdle());
+    }
+
+    @Test
+    public void onlyTheWindowIsInFlight() {
+        int count = ReliableChannel.WINDOW + 10;
+        for (int i = 0; i < count; i++) {
+            this.send(i);
+        }
+        assertEquals(ReliableChannel.WINDOW, this.toReceiver.size());
+
+        // acknowledging the first 10 moves the last 10 into the window
+        List<ByteBuffer> packets = new ArrayList<>(this.toReceiver);
+        this.toReceiver.clear();
+        for (int i = 0; i < 10; i++) {
+            this.deliver(packets.get(i));
+        }
+        this.deliver(this.toSender.get(this.toSender.size() - 1));
+        this.toSender.clear();
+        assertEquals(10, this.toReceiver.size());
+
+        for (int i = 10; i < packets.size(); i++) {
+            this.deliver(packets.get(i));
+        }
+        this.deliverAll();
+        assertEquals(range(count), this.delivered);
+        assertTrue(this.sender.isIdle());
+    }
+
+    @Test
+    public void messagesTooFarAheadAreNotKept() {
+        int count = ReliableChannel.WINDOW + 1;
+        for (int i = 0; i < count; i++) {
+            this.send(i);
+        }
+        List<ByteBuffer> packets = new ArrayList<>(this.toReceiver);
+        this.toReceiver.clear();
+
+        // the last message arrives before all others, with a content that tells whether it was kept
+        ByteBuffer packet = ByteBuffer.allocate(32);
+        Message.putControl(packet, ROOM_ID, count);
+        packet.putInt(-1);
+        packet.flip();
+        this.deliver(packet);
+        for (ByteBuffer p : packets) {
+            this.deliver(p);
+        }
+        assertEquals(range(ReliableChannel.WINDOW), this.delivered);
+
+        // the sender sends it once the others are acknowledged
+        this.deliverAll();
+        assertEquals(range(count), this.delivered);
+    }
+
+    @Test
+    public void retransmissionBacksOff() {
+        long before = System.nanoTime();
+        this.send(1);
+        long after = System.nanoTime();
+        this.toReceiver.clear();
+
+        this.sender.poll(before + ReliableChannel.RETRANSMIT_TIMEOUT - 1);
+        assertTrue(this.toReceiver.isEmpty());
+
+        long now = after + ReliableChannel.RETRANSMIT_TIMEOUT;
+        this.sender.poll(now);
+        assertEquals(1, this.toReceiver.size());
+
+        // the timeout doubles with every retransmission, up to its maximum
+        long timeout = ReliableChannel.RETRANSMIT_TIMEOUT;
+        for (int i = 0; i < 6; i++) {
+            timeout = Math.min(2 * timeout, ReliableChannel.MAX_RETRANSMIT_TIMEOUT);
+            this.sender.poll(now + timeout - 1);
+            assertEquals(1 + i, this.toReceiver.size());
+            now += timeout;
+            this.sender.poll(now);
+            assertEquals(2 + i, this.toReceiver.size());
+        }
+        assertEquals(ReliableChannel.MAX_RETRANSMIT_TIMEOUT, timeout);
+        assertEquals(7, this.sender.getRetransmissionCount());
+
+        this.deliverAll();
+        assertEquals(Collections.singletonList(1), this.delivered);
+        assertTrue(this.sender.isIdle());
+        this.sender.poll(now + ReliableChannel.MAX_RETRANSMIT_TIMEOUT);
+        assertTrue(this.toReceiver.isEmpty());
+    }
+
+    @Test
+    public void lostAcknowledgementIsSentAgain() {
+        this.send(1);
+        this.deliver(this.toReceiver.remove(0));
+        this.toSender.clear();
+        assertFalse(this.sender.isIdle());
+
+        this.sender.poll(System.nanoTime() + ReliableChannel.RETRANSMIT_TIMEOUT);
+        this.deliverAll();
+
+        assertEquals(Collections.singletonList(1), this.delivered);
+        assertEquals(1, this.receiver.getDuplicateCount());
+        assertTrue(this.sender.isIdle());
+    }
+
+    @Test
+    public void deliversEverythingOverLossyLink() {
+        Random random = new Random(8);
+        int count = 200;
+        for (int i = 0; i < count; i++) {
+            this.send(i);
+        }
+
+        long now = System.nanoTime();
+        for (int round = 0; round < 1000 && !this.sender.isIdle(); round++) {
+            // drop a third, duplicate some and shuffle the rest of the packets in both directions
+            List<ByteBuffer> packets = new ArrayList<>();
+            for (ByteBuffer packet : this.toReceiver) {
+                if (random.nextInt(3) != 0) {
+                    packets.add(packet);
+                    if (random.nextInt(10) == 0) {
+                        packets.add(packet);
+                    }
+                }
+            }
+            for (ByteBuffer packet : this.toSender) {
+                if (random.nextInt(3) != 0) {
+                    packets.add(packet);
+                }
+            }
+            this.toReceiver.clear();
+            this.toSender.clear();
+            Collections.shuffle(packets, random);
+            for (ByteBuffer packet : packets) {
+                this.deliver(packet);
+            }
+            now += ReliableChannel.MAX_RETRANSMIT_TIMEOUT;
+            this.sender.poll(now);
+        }
+
+        assertEquals(range(count), this.delivered);
+        assertTrue(this.sender.isIdle());
+    }
+
+}
@@ -0,0 +1,210 @@
+package aoop.asteroids.controller.net;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests of SnapshotReassembler : snapshots are split into fragments as SnapshotBroadcaster does, which arrive
+ * out of order, twice, or after a newer snapshot
+ */
+public class SnapshotReassemblerTest {
+
+    private SnapshotReassembler reassembler;
+    private Random random;
+
+    @Before
+    public void setUp() {
+        this.reassembler = new SnapshotReassembler();
+        this.random = new Random(9);
+    }
+
+    private byte[] snapshot(int length) {
+        byte[] data = new byte[length];
+        this.random.nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Splits the snapshot into the given amount of fragments, each positioned at its type byte
+     */
+    private static List<ByteBuffer> fragments(int sequence, byte[] data, int count) {
+        List<ByteBuffer> fragments = new ArrayList<>(count);
+        int size = Message.getFragmentSize(data.length, count);
+        for (int index = 0; index < count; index++) {
+            int offset = index * size;
+            int length = Math.min(size, data.length - offset);
+            ByteBuffer fragment = ByteBuffer.allocate(Message.MAX_FRAGMENT_HEADER_SIZE + length);
+            Message.putFragment(fragment, sequence, data.length, count, index);
+            fragment.put(data, offset, length);
+            fragment.flip();
+            fragments.add(fragment);
+        }
+        return fragments;
+    }
+
+    /**
+     * Adds the fragments, only the last one may complete the snapshot, which is returned
+     */
+    private ByteBuffer addAll(List<ByteBuffer> fragments) {
+        for (int i = 0; i < fragments.size() - 1; i++) {
+            assertNull(this.reassembler.add(fragments.get(i).duplicate()));
+        }
+        return this.reassembler.add(fragments.get(fragments.size() - 1).duplicate());
+    }
+
+    private static void assertSnapshot(byte[] expected, ByteBuffer actual) {
+        assertNotNull(actual);
+        byte[] bytes = new byte[actual.remaining()];
+        actual.get(bytes);
+        assertEquals(expected.length, bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            assertEquals("byte " + i, expected[i], bytes[i]);
+        }
+    }
+
+    @Test
+    public void singleFragmentIsCompleteAtOnce() {
+        byte[] data = this.snapshot(100);
+        assertSnapshot(data, this.reassembler.add(fragments(1, data, 1).get(0)));
+    }
+
+    @Test
+    public void fragmentsOutOfOrderAreReassembled() {
+        byte[] data = this.snapshot(10007);
+        List<ByteBuffer> fragments = fragments(1, data, 9);
+        Collections.shuffle(fragments, this.random);
+
+        assertSnapshot(data, this.addAll(fragments));
+        assertEquals(0, this.reassembler.getDroppedCount());
+    }
+
+    @Test
+    public void duplicateFragmentsDoNotCompleteTheSnapshot() {
+        byte[] data = this.snapshot(3000);
+        List<ByteBuffer> fragments = fragments(1, data, 3);
+
+        assertNull(this.reassembler.add(fragments.get(0).duplicate()));
+        assertNull(this.reassembler.add(fragments.get(0).duplicate()));
+        assertNull(this.reassembler.add(fragments.get(1).duplicate()));
+        assertNull(this.reassembler.add(fragments.get(1).duplicate()));
+        assertSnapshot(data, this.reassembler.add(fragments.get(2).duplicate()));
+        // the completed snapshot is not delivered again
+        assertNull(this.reassembler.add(fragments.get(2).duplicate()));
+    }
+
+    @Test
+    public void interleavedSnapshotsAreReassembled() {
+        byte[] first = this.snapshot(5000), second = this.snapshot(4000);
+        List<ByteBuffer> a = fragments(1, first, 5), b = fragments(2, second, 4);
+
+        for (int i = 0; i < 4; i++) {
+            assertNull(this.reassembler.add(a.get(i).duplicate()));
+            if (i < 3) {
+                assertNull(this.reassembler.add(b.get(i).duplicate()));
+            }
+        }
+        assertSnapshot(first, this.reassembler.add(a.get(4).duplicate()));
+        assertSnapshot(second, this.reassembler.add(b.get(3).duplicate()));
+    }
+
+    @Test
+    public void olderSnapshotIsDroppedOnceNewerIsComplete() {
+        byte[] older = this.snapshot(3000), newer = this.snapshot(2000);
+        List<ByteBuffer> a = fragments(4, older, 3), b = fragments(5, newer, 2);
+
+        assertNull(this.reassembler.add(a.get(0).duplicate()));
+        assertSnapshot(newer, this.addAll(b));
+        assertEquals(1, this.reassembler.getDroppedCount());
+
+        // the rest of the older snapshot arrives too late
+        assertNull(this.reassembler.add(a.get(1).duplicate()));
+        assertNull(this.reassembler.add(a.get(2).duplicate()));
+        // as does an even older one, completely
+        assertNull(this.addAll(fragments(3, this.snapshot(1000), 2)));
+    }
+
+    @Test
+    public void deliveredSnapshotDropsItsFragments() {
+        byte[] data = this.snapshot(2000);
+        List<ByteBuffer> fragments = fragments(6, data, 2);
+        assertNull(this.reassembler.add(fragments.get(0).duplicate()));
+
+        // the same snapshot was decoded from a full copy
+        this.reassembler.setDelivered(6);
+
+        assertNull(this.reassembler.add(fragments.get(1).duplicate()));
+        assertSnapshot(data, this.addAll(fragments(7, data, 2)));
+    }
+
+    @Test
+    public void oldestSnapshotIsDroppedWhenAllSlotsAreTaken() {
+        List<List<ByteBuffer>> snapshots = new ArrayList<>();
+        List<byte[]> data = new ArrayList<>();
+        for (int sequence = 1; sequence <= SnapshotReassembler.SLOTS + 1; sequence++) {
+            data.add(this.snapshot(1000));
+            snapshots.add(fragments(sequence, data.get(sequence - 1), 2));
+            assertNull(this.reassembler.add(snapshots.get(sequence - 1).get(0).duplicate()));
+        }
+        assertEquals(1, this.reassembler.getDroppedCount());
+
+        // the first one lost its slot, the second one is still complete
+        assertNull(this.reassembler.add(snapshots.get(0).get(1).duplicate()));
+        assertSnapshot(data.get(1), this.reassembler.add(snapshots.get(1).get(1).duplicate()));
+        assertSnapshot(data.get(SnapshotReassembler.SLOTS), this.reassembler.add(snapshots.get(SnapshotReassembler.SLOTS).get(1).duplicate()));
+    }
+
+    @Test
+    public void sequenceNumbersWrapAround() {
+        byte[] older = this.snapshot(1000), newer = this.snapshot(1000);
+        assertSnapshot(older, this.addAll(fragments(Integer.MAX_VALUE, older, 2)));
+        assertSnapshot(newer, this.addAll(fragments(Integer.MIN_VALUE, newer, 2)));
+    }
+
+    @Test
+    public void malformedFragmentsAreIgnored() {
+        // index beyond the count
+        ByteBuffer fragment = ByteBuffer.allocate(64);
+        Message.putFragment(fragment, 1, 20, 2, 2);
+        fragment.put(new byte[10]);
+        fragment.flip();
+        assertNull(this.reassembler.add(fragment));
+
+        // fewer bytes than the header promises
+        fragment = ByteBuffer.allocate(64);
+        Message.putFragment(fragment, 1, 20, 2, 0);
+        fragment.put(new byte[9]);
+        fragment.flip();
+        assertNull(this.reassembler.add(fragment));
+
+        // longer than a snapshot can be
+        fragment = ByteBuffer.allocate(64);
+        Message.putFragment(fragment, 1, Message.MAX_SNAPSHOT_SIZE + 1, 1, 0);
+        fragment.flip();
+        assertNull(this.reassembler.add(fragment));
+
+        // a length that does not match the earlier fragments of the snapshot
+        byte[] data = this.snapshot(20);
+        List<ByteBuffer> fragments = fragments(1, data, 2);
+        assertNull(this.reassembler.add(fragments.get(0).duplicate()));
+        fragment = ByteBuffer.allocate(64);
+        Message.putFragment(fragment, 1, 30, 2, 1);
+        fragment.put(new byte[15]);
+        fragment.flip();
+        assertNull(this.reassembler.add(fragment));
+
+        assertEquals(4, this.reassembler.getMalformedCount());
+        assertSnapshot(data, this.reassembler.add(fragments.get(1).duplicate()));
+        assertEquals(0, this.reassembler.getDroppedCount());
+    }
+
+}
@@ -0,0 +1,128 @@
+package aoop.asteroids.model;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of EntityStore : removing an entity moves the last one into its place, and of sorting the snapshot rows
+ * of a store that is no longer in id order because of that
+ */
+public class EntityStoreTest {
+
+    /**
+     * Returns a store with the given amount of entities, entity i at location (i, 2i) with radius i
+     */
+    private static EntityStore store(int count) {
+        EntityStore store = new EntityStore();
+        for (int i = 0; i < count; i++) {
+            store.add(i, 2 * i, 1, -1, i, EntityStore.NO_TTL, i % 3);
+        }
+        return store;
+    }
+
+    /**
+     * Checks that the entity at the given index still has the values it was added with
+     */
+    private static void assertEntity(EntityStore store, int index, int added) {
+        assertEquals(added, store.getX(index), 0.0);
+        assertEquals(2 * added, store.getY(index), 0.0);
+        assertEquals(added, store.getRadius(index));
+        assertEquals(added % 3, store.getOwner(index));
+    }
+
+    @Test
+    public void removeMovesTheLastEntityIntoTheGap() {
+        EntityStore store = store(5);
+        int lastId = store.getId(4);
+
+        store.remove(1);
+
+        assertEquals(4, store.size());
+        assertEquals(lastId, store.getId(1));
+        assertEntity(store, 1, 4);
+        assertEntity(store, 0, 0);
+        assertEntity(store, 2, 2);
+        assertEntity(store, 3, 3);
+    }
+
+    @Test
+    public void removeLastEntityOnlyShrinks() {
+        EntityStore store = store(3);
+        store.remove(2);
+
+        assertEquals(2, store.size());
+        assertEntity(store, 0, 0);
+        assertEntity(store, 1, 1);
+    }
+
+    @Test
+    public void removeDestroyedKeepsTheOthers() {
+        EntityStore store = store(10);
+        Set<Integer> kept = new HashSet<>();
+        for (int i = 0; i < store.size(); i++) {
+            if (i % 3 == 0 || i == 9) {
+                store.destroy(i);
+            } else {
+                kept.add(store.getId(i));
+            }
+        }
+
+        store.removeDestroyed();
+
+        assertEquals(kept.size(), store.size());
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < store.size(); i++) {
+            assertFalse(store.isDestroyed(i));
+            ids.add(store.getId(i));
+        }
+        assertEquals(kept, ids);
+    }
+
+    @Test
+    public void idsStayUniqueAfterRemovals() {
+        EntityStore store = store(4);
+        store.remove(0);
+        store.remove(0);
+        int index = store.add(0, 0, 0, 0, 1, EntityStore.NO_TTL, 0);
+
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < store.size(); i++) {
+            assertTrue(ids.add(store.getId(i)));
+        }
+        assertEquals(store.size() - 1, index);
+    }
+
+    @Test
+    public void snapshotRowsOfSwapRemovedStoreAreSortedById() {
+        Random random = new Random(4);
+        EntityStore store = store(1000);
+        for (int i = 0; i < 600; i++) {
+            store.remove(random.nextInt(store.size()));
+        }
+
+        SnapshotState.Table table = new SnapshotState.Table(5, false);
+        for (int i = 0; i < store.size(); i++) {
+            int row = table.addRow(store.getId(i));
+            table.set(row, SnapshotState.ASTEROID_RADIUS, store.getRadius(i));
+        }
+        table.sortById();
+
+        assertEquals(store.size(), table.size);
+        for (int row = 1; row < table.size; row++) {
+            assertTrue(table.ids[row - 1] < table.ids[row]);
+        }
+        // every row moved together with its id : entity i was added with radius i and id i + 1
+        int offset = table.ids[0] - table.get(0, SnapshotState.ASTEROID_RADIUS);
+        for (int row = 0; row < table.size; row++) {
+            assertEquals(table.ids[row] - offset, table.get(row, SnapshotState.ASTEROID_RADIUS));
+        }
+    }
+
+}
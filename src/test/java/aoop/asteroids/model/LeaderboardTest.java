@@ -0,0 +1,148 @@
+package aoop.asteroids.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of Leaderboard : ranks, players at a rank and pages are compared to sorting all scores
+ */
+public class LeaderboardTest {
+
+    /**
+     * Returns the names sorted as on the leaderboard : highest score first, the same score by name
+     */
+    private static List<String> sorted(Map<String, Integer> scores) {
+        List<String> names = new ArrayList<>(scores.keySet());
+        names.sort((a, b) -> {
+            int c = Integer.compare(scores.get(b), scores.get(a));
+            return c != 0 ? c : a.compareTo(b);
+        });
+        return names;
+    }
+
+    private static void assertMatches(Map<String, Integer> scores, Leaderboard leaderboard) {
+        List<String> expected = sorted(scores);
+        assertEquals(expected.size(), leaderboard.size());
+        for (int rank = 0; rank < expected.size(); rank++) {
+            String name = expected.get(rank);
+            assertEquals(rank, leaderboard.getRank(name));
+            Player player = leaderboard.get(rank);
+            assertEquals(name, player.getName());
+            assertEquals((int) scores.get(name), player.getCurrentScore());
+        }
+    }
+
+    @Test
+    public void ranksFollowTheScores() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.update("carol", 5);
+        leaderboard.update("alice", 10);
+        leaderboard.update("bob", 5);
+
+        assertEquals(0, leaderboard.getRank("alice"));
+        assertEquals(1, leaderboard.getRank("bob"));
+        assertEquals(2, leaderboard.getRank("carol"));
+        assertEquals(-1, leaderboard.getRank("dave"));
+    }
+
+    @Test
+    public void constructedFromPlayers() {
+        Player alice = new Player("alice", null);
+        alice.setScore(3);
+        Player bob = new Player("bob", null);
+        bob.setScore(7);
+
+        Leaderboard leaderboard = new Leaderboard(Arrays.asList(alice, bob));
+
+        assertEquals(2, leaderboard.size());
+        assertEquals("bob", leaderboard.get(0).getName());
+        assertEquals("alice", leaderboard.get(1).getName());
+    }
+
+    @Test
+    public void matchesSortedScoresUnderUpdates() {
+        Random random = new Random(5);
+        Leaderboard leaderboard = new Leaderboard();
+        Map<String, Integer> scores = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            String name = "player" + random.nextInt(300);
+            if (random.nextInt(10) == 0) {
+                leaderboard.remove(name);
+                scores.remove(name);
+            } else {
+                int score = random.nextInt(50);
+                leaderboard.update(name, score);
+                scores.put(name, score);
+            }
+            if (i % 500 == 0) {
+                assertMatches(scores, leaderboard);
+            }
+        }
+        assertMatches(scores, leaderboard);
+    }
+
+    @Test
+    public void rangesArePagesOfTheSortedScores() {
+        Random random = new Random(6);
+        Leaderboard leaderboard = new Leaderboard();
+        Map<String, Integer> scores = new HashMap<>();
+        for (int i = 0; i < 237; i++) {
+            int score = random.nextInt(100);
+            leaderboard.update("player" + i, score);
+            scores.put("player" + i, score);
+        }
+        List<String> expected = sorted(scores);
+
+        for (int first = 0; first <= expected.size(); first += 17) {
+            List<Player> range = leaderboard.getRange(first, 25);
+            assertEquals(Math.min(25, expected.size() - first), range.size());
+            for (int k = 0; k < range.size(); k++) {
+                assertEquals(expected.get(first + k), range.get(k).getName());
+            }
+        }
+        assertEquals(expected.subList(0, 10), names(leaderboard.getTop(10)));
+        assertEquals(expected.subList(40, 60), names(leaderboard.getPage(2, 20)));
+        assertEquals(expected.subList(220, 237), names(leaderboard.getPage(11, 20)));
+        assertTrue(leaderboard.getRange(237, 10).isEmpty());
+        assertTrue(leaderboard.getRange(0, 0).isEmpty());
+    }
+
+    @Test
+    public void versionChangesOnlyWithTheLeaderboard() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.update("alice", 1);
+        long version = leaderboard.getVersion();
+
+        leaderboard.update("alice", 1);
+        leaderboard.remove("bob");
+        assertEquals(version, leaderboard.getVersion());
+
+        leaderboard.update("alice", 2);
+        assertTrue(leaderboard.getVersion() != version);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getBeyondTheLastRankFails() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.update("alice", 1);
+        leaderboard.get(1);
+    }
+
+    private static List<String> names(List<Player> players) {
+        List<String> names = new ArrayList<>(players.size());
+        for (Player p : players) {
+            names.add(p.getName());
+        }
+        return names;
+    }
+
+}
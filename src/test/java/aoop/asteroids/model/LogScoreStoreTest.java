@@ -0,0 +1,180 @@
+package aoop.asteroids.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of LogScoreStore : the scores are read back from the log after reopening it, also when its last record
+ * is incomplete, and after it was compacted
+ */
+public class LogScoreStoreTest {
+
+    // file header and the bytes of a record besides its name, see LogScoreStore
+    private static final int HEADER_SIZE = 8, RECORD_SIZE = 11;
+
+    private File directory, file;
+    private LogScoreStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("scores").toFile();
+        this.file = new File(this.directory, "scores.log");
+        this.store = new LogScoreStore(this.file.getPath());
+    }
+
+    @After
+    public void tearDown() {
+        this.store.close();
+        File[] files = this.directory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        this.directory.delete();
+    }
+
+    private void reopen() {
+        this.store.close();
+        this.store = new LogScoreStore(this.file.getPath());
+    }
+
+    private static Player player(String name, int score) {
+        Player player = new Player(name, null);
+        player.setScore(score);
+        return player;
+    }
+
+    @Test
+    public void scoresSurviveReopening() {
+        assertTrue(this.store.addPlayer(player("alice", 0)));
+        assertTrue(this.store.addPlayer(player("bob", 4)));
+        assertFalse(this.store.addPlayer(player("alice", 9)));
+        assertTrue(this.store.updateScore("alice", 7));
+        assertFalse(this.store.updateScore("bob", 3));
+        assertFalse(this.store.updateScore("carol", 3));
+        assertTrue(this.store.addPlayer(player("carol", 1)));
+        assertTrue(this.store.deletePlayer("carol"));
+
+        this.reopen();
+
+        assertEquals(7, this.store.findScore("alice"));
+        assertEquals(4, this.store.findScore("bob"));
+        assertEquals(ScoreStore.NO_SCORE, this.store.findScore("carol"));
+        assertEquals(2, this.store.getPlayers().size());
+        assertEquals(5, this.store.getRecordCount());
+    }
+
+    @Test
+    public void updateScoresOnlyStoresHigherScoresOfStoredPlayers() {
+        this.store.addPlayer(player("alice", 5));
+        this.store.addPlayer(player("bob", 5));
+        Map<String, Integer> scores = new LinkedHashMap<>();
+        scores.put("alice", 8);
+        scores.put("bob", 2);
+        scores.put("carol", 9);
+
+        Map<String, Integer> updated = this.store.updateScores(scores);
+
+        assertEquals(1, updated.size());
+        assertEquals(8, (int) updated.get("alice"));
+        this.reopen();
+        assertEquals(8, this.store.findScore("alice"));
+        assertEquals(5, this.store.findScore("bob"));
+    }
+
+    @Test
+    public void replayStopsAtTruncatedRecord() throws IOException {
+        this.store.addPlayer(player("alice", 3));
+        this.store.addPlayer(player("bob", 4));
+        this.store.close();
+
+        // the process died while the record of bob was being written
+        int end = HEADER_SIZE + (RECORD_SIZE + "alice".length()) + (RECORD_SIZE + "bob".length());
+        try (RandomAccessFile log = new RandomAccessFile(this.file, "rw")) {
+            log.setLength(end - 3);
+        }
+        this.store = new LogScoreStore(this.file.getPath());
+
+        assertEquals(3, this.store.findScore("alice"));
+        assertEquals(ScoreStore.NO_SCORE, this.store.findScore("bob"));
+        assertEquals(1, this.store.getRecordCount());
+
+        // the incomplete record is overwritten, not mistaken for a record after the next one
+        this.store.addPlayer(player("carol", 5));
+        this.reopen();
+        assertEquals(3, this.store.findScore("alice"));
+        assertEquals(5, this.store.findScore("carol"));
+        assertEquals(2, this.store.getRecordCount());
+    }
+
+    @Test
+    public void replayStopsAtCorruptedRecord() throws IOException {
+        this.store.addPlayer(player("alice", 3));
+        this.store.addPlayer(player("bob", 4));
+        this.store.addPlayer(player("carol", 5));
+        this.store.close();
+
+        // flip a byte in the name of bob : its checksum no longer matches
+        try (RandomAccessFile log = new RandomAccessFile(this.file, "rw")) {
+            long position = HEADER_SIZE + RECORD_SIZE + "alice".length() + 7;
+            log.seek(position);
+            int b = log.read();
+            log.seek(position);
+            log.write(b ^ 1);
+        }
+        this.store = new LogScoreStore(this.file.getPath());
+
+        assertEquals(3, this.store.findScore("alice"));
+        assertEquals(ScoreStore.NO_SCORE, this.store.findScore("bob"));
+        assertEquals(ScoreStore.NO_SCORE, this.store.findScore("carol"));
+    }
+
+    @Test
+    public void compactionKeepsOneRecordPerPlayer() {
+        this.store.addPlayer(player("alice", 0));
+        this.store.addPlayer(player("bob", 0));
+        for (int score = 1; score <= LogScoreStore.MIN_COMPACTION_RECORDS; score++) {
+            this.store.updateScore("alice", score);
+        }
+
+        // compacted once the log held MIN_COMPACTION_RECORDS records, then appended to
+        assertTrue(this.store.getRecordCount() < LogScoreStore.MIN_COMPACTION_RECORDS);
+        assertEquals(LogScoreStore.MIN_COMPACTION_RECORDS, this.store.findScore("alice"));
+        assertFalse(new File(this.file.getPath() + ".compact").exists());
+
+        this.reopen();
+        assertEquals(LogScoreStore.MIN_COMPACTION_RECORDS, this.store.findScore("alice"));
+        assertEquals(0, this.store.findScore("bob"));
+        assertEquals(2, this.store.getPlayers().size());
+        assertTrue(this.store.getRecordCount() < LogScoreStore.MIN_COMPACTION_RECORDS);
+    }
+
+    @Test
+    public void logGrowsBeyondItsInitialMapping() {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            name.append('x');
+        }
+        for (int i = 0; i < 200; i++) {
+            this.store.addPlayer(player(name.toString() + i, i));
+        }
+
+        this.reopen();
+        assertEquals(200, this.store.getPlayers().size());
+        assertEquals(199, this.store.findScore(name.toString() + 199));
+    }
+
+}
@@ -0,0 +1,224 @@
+package aoop.asteroids.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of SnapshotCodec : full and delta snapshots written by the host are read back by a client as the same state
+ */
+public class SnapshotCodecTest {
+
+    private static final int WIDTH = 800, HEIGHT = 600;
+
+    // the states the host sent and the ones the client received
+    private SnapshotHistory host, client;
+    private ByteBuffer buffer;
+
+    @Before
+    public void setUp() {
+        this.host = new SnapshotHistory();
+        this.client = new SnapshotHistory();
+        this.buffer = ByteBuffer.allocate(1 << 22);
+    }
+
+    /**
+     * Returns an empty state of the host with the given sequence number and tick, to be filled by the caller
+     */
+    private SnapshotState prepare(int sequence, int tick) {
+        SnapshotState state = this.host.prepare(sequence);
+        state.tick = tick;
+        state.tickRate = Game.BASE_TICK_RATE;
+        state.worldWidth = WIDTH;
+        state.worldHeight = HEIGHT;
+        for (SnapshotState.Table table : state.tables) {
+            table.clear();
+        }
+        state.pointCount = 0;
+        return state;
+    }
+
+    /**
+     * Adds a row of a moving object : location and velocity, followed by the given values of the other columns
+     */
+    private static void addRow(SnapshotState state, int table, int id, int x, int y, int vx, int vy, int... values) {
+        SnapshotState.Table t = state.tables[table];
+        int row = t.addRow(id);
+        t.set(row, SnapshotState.X, x);
+        t.set(row, SnapshotState.Y, y);
+        t.set(row, SnapshotState.VX, vx);
+        t.set(row, SnapshotState.VY, vy);
+        for (int c = 0; c < values.length; c++) {
+            t.set(row, SnapshotState.VY + 1 + c, values[c]);
+        }
+    }
+
+    private static void addPlayer(SnapshotState state, int id, String name, int score) {
+        SnapshotState.Table players = state.tables[SnapshotState.PLAYERS];
+        int row = players.addRow(id);
+        players.set(row, SnapshotState.PLAYER_SCORE, score);
+        players.set(row, SnapshotState.PLAYER_COLOR, 0xFF00FF00);
+        players.names[row] = name;
+    }
+
+    /**
+     * Writes the state, against the baseline when not null, and reads it back into the history of the client
+     * returns the decoded state, or null when the client does not have the baseline
+     */
+    private SnapshotState roundTrip(SnapshotState state, SnapshotState baseline) {
+        state.isComplete = true;
+        this.buffer.clear();
+        SnapshotCodec.encode(state, baseline, this.buffer);
+        this.buffer.flip();
+        assertTrue(SnapshotCodec.isSnapshot(this.buffer));
+        assertEquals(state.sequence, SnapshotCodec.peekSequence(this.buffer));
+        SnapshotState decoded = SnapshotCodec.decode(this.buffer, this.client);
+        if (decoded != null) {
+            assertEquals(0, this.buffer.remaining());
+        }
+        return decoded;
+    }
+
+    private static void assertStateEquals(SnapshotState expected, SnapshotState actual) {
+        assertNotNull(actual);
+        assertEquals(expected.sequence, actual.sequence);
+        assertEquals(expected.tick, actual.tick);
+        assertEquals(expected.tickRate, actual.tickRate);
+        assertEquals(expected.worldWidth, actual.worldWidth);
+        assertEquals(expected.worldHeight, actual.worldHeight);
+        for (int t = 0; t < SnapshotState.TABLES; t++) {
+            SnapshotState.Table e = expected.tables[t], a = actual.tables[t];
+            assertEquals("size of table " + t, e.size, a.size);
+            for (int row = 0; row < e.size; row++) {
+                assertEquals("id in table " + t, e.ids[row], a.ids[row]);
+                for (int c = 0; c < e.columns; c++) {
+                    assertEquals("column " + c + " of id " + e.ids[row] + " in table " + t, e.get(row, c), a.get(row, c));
+                }
+                if (e.names != null) {
+                    assertEquals(e.names[row], a.names[row]);
+                }
+            }
+        }
+        assertEquals(expected.pointCount, actual.pointCount);
+        for (int i = 0; i < expected.pointCount; i++) {
+            assertEquals(expected.pointsTo[i], actual.pointsTo[i]);
+        }
+    }
+
+    /**
+     * The state of the first snapshot : two players with a ship each, three asteroids and a bullet
+     */
+    private SnapshotState firstState() {
+        SnapshotState state = this.prepare(1, 10);
+        addPlayer(state, 1, "alice", 3);
+        addPlayer(state, 2, "bob", 0);
+        addRow(state, SnapshotState.SHIPS, 1, 1600, 1600, 0, 0, 0, 0, 5, 0);
+        addRow(state, SnapshotState.SHIPS, 2, 3200, 4800, -256, 128, 16384, 1, 7, 3);
+        addRow(state, SnapshotState.ASTEROIDS, 3, 100, 200, 300, -400, 40);
+        addRow(state, SnapshotState.ASTEROIDS, 5, 12000, 9000, -1000, 0, 20);
+        addRow(state, SnapshotState.ASTEROIDS, 8, 0, 0, 0, 2000, 10);
+        addRow(state, SnapshotState.BULLETS, 4, 500, 500, 2560, 0, 40, 1);
+        state.addPoint(1);
+        return state;
+    }
+
+    @Test
+    public void fullSnapshotRoundTrip() {
+        SnapshotState state = this.firstState();
+        assertStateEquals(state, this.roundTrip(state, null));
+    }
+
+    @Test
+    public void deltaSnapshotRoundTrip() {
+        SnapshotState baseline = this.firstState();
+        this.roundTrip(baseline, null);
+
+        int steps = 4;
+        SnapshotState state = this.prepare(2, baseline.tick + steps);
+        // alice scored, bob left and carol joined
+        addPlayer(state, 1, "alice", 4);
+        addPlayer(state, 6, "carol", 0);
+        // the ship of alice turned, the ship of bob is gone
+        addRow(state, SnapshotState.SHIPS, 1, 1600, 1600, 0, 0, 200, 1, 9, 0);
+        // asteroid 3 moved as predicted, 5 was destroyed, 8 changed course and 9 appeared
+        SnapshotState.Table asteroids = baseline.tables[SnapshotState.ASTEROIDS];
+        addRow(state, SnapshotState.ASTEROIDS, 3,
+                baseline.predict(SnapshotState.ASTEROIDS, 0, SnapshotState.X, steps),
+                baseline.predict(SnapshotState.ASTEROIDS, 0, SnapshotState.Y, steps),
+                300, -400, 40);
+        addRow(state, SnapshotState.ASTEROIDS, 8, 50, 60, -2000, 0, asteroids.get(2, SnapshotState.ASTEROID_RADIUS));
+        addRow(state, SnapshotState.ASTEROIDS, 9, 7000, 7000, 10, 10, 20);
+        // the bullet is gone
+        state.addPoint(1);
+        state.addPoint(6);
+
+        assertStateEquals(state, this.roundTrip(state, baseline));
+    }
+
+    @Test
+    public void deltaOfUnchangedStateIsSmall() {
+        SnapshotState baseline = this.firstState();
+        this.roundTrip(baseline, null);
+        int fullSize = this.buffer.limit();
+
+        SnapshotState state = this.prepare(2, baseline.tick);
+        state.copyFrom(baseline);
+        state.sequence = 2;
+        SnapshotState decoded = this.roundTrip(state, baseline);
+
+        assertStateEquals(state, decoded);
+        assertTrue(this.buffer.limit() < fullSize / 4);
+    }
+
+    @Test
+    public void deltaAgainstMissingBaselineIsNotDecoded() {
+        SnapshotState baseline = this.firstState();
+        baseline.isComplete = true;
+        // the client never received the baseline
+        SnapshotState state = this.prepare(2, baseline.tick + 1);
+        addPlayer(state, 1, "alice", 3);
+
+        assertNull(this.roundTrip(state, baseline));
+    }
+
+    @Test
+    public void largeTablesRoundTrip() {
+        // counts of more than one byte move the rows that were written after them
+        SnapshotState baseline = this.prepare(1, 0);
+        for (int id = 1; id <= 70000; id++) {
+            addRow(baseline, SnapshotState.ASTEROIDS, id, id % 12800, id % 9600, id % 200 - 100, 0, 10 + id % 30);
+        }
+        assertStateEquals(baseline, this.roundTrip(baseline, null));
+
+        SnapshotState state = this.prepare(2, 0);
+        for (int id = 1; id <= 70000; id++) {
+            if (id % 3 != 0) {
+                addRow(state, SnapshotState.ASTEROIDS, id, id % 12800, id % 9600, id % 200 - 100, 0, 10 + id % 30);
+            }
+        }
+        for (int id = 70001; id <= 70200; id++) {
+            addRow(state, SnapshotState.ASTEROIDS, id, 1, 2, 3, 4, 5);
+        }
+        assertStateEquals(state, this.roundTrip(state, baseline));
+    }
+
+    @Test
+    public void varIntRoundTrip() {
+        int[] values = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+        ByteBuffer out = ByteBuffer.allocate(64);
+        for (int value : values) {
+            SnapshotCodec.putVarInt(out, value);
+        }
+        out.flip();
+        for (int value : values) {
+            assertEquals(value, SnapshotCodec.getVarInt(out));
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package aoop.asteroids.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of SpatialGrid : the candidates of a query are compared to testing every pair
+ */
+public class SpatialGridTest {
+
+    private static final int WIDTH = 800, HEIGHT = 600, CELL_SIZE = 80;
+
+    /**
+     * Returns a store with the given amount of entities at random locations, with radii of 2 to 40
+     */
+    private static EntityStore randomStore(Random random, int count) {
+        EntityStore store = new EntityStore();
+        for (int i = 0; i < count; i++) {
+            store.add(random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT, 0, 0,
+                    2 + random.nextInt(39), EntityStore.NO_TTL, 0, 0);
+        }
+        return store;
+    }
+
+    /**
+     * Returns whether the index is among the candidates of the last query of the grid
+     */
+    private static boolean isCandidate(SpatialGrid grid, int count, int index) {
+        for (int k = 0; k < count; k++) {
+            if (grid.getCandidate(k) == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void queryFindsEveryCollisionOfBruteForce() {
+        Random random = new Random(1);
+        EntityStore store = randomStore(random, 500);
+        SpatialGrid grid = new SpatialGrid(WIDTH, HEIGHT, CELL_SIZE);
+        grid.build(store);
+
+        int collisions = 0;
+        for (int i = 0; i < store.size(); i++) {
+            int count = grid.query(store.getX(i), store.getY(i), store.getRadius(i));
+            for (int j = 0; j < store.size(); j++) {
+                if (store.collides(i, store, j)) {
+                    assertTrue("entity " + j + " collides with " + i + " but is no candidate", isCandidate(grid, count, j));
+                    collisions++;
+                }
+            }
+        }
+        // the test is only meaningful when there are collisions to find
+        assertTrue(collisions > store.size());
+    }
+
+    @Test
+    public void candidatesAreSortedWithoutDuplicates() {
+        Random random = new Random(2);
+        EntityStore store = randomStore(random, 300);
+        SpatialGrid grid = new SpatialGrid(WIDTH, HEIGHT, CELL_SIZE);
+        grid.build(store);
+
+        for (int i = 0; i < store.size(); i++) {
+            int count = grid.query(store.getX(i), store.getY(i), store.getRadius(i));
+            for (int k = 1; k < count; k++) {
+                assertTrue(grid.getCandidate(k - 1) < grid.getCandidate(k));
+            }
+        }
+    }
+
+    @Test
+    public void neighbourhoodWrapsAroundTheBorders() {
+        SpatialGrid grid = new SpatialGrid(WIDTH, HEIGHT, CELL_SIZE);
+        grid.insert(0, WIDTH - 2, HEIGHT - 2, 10);
+        grid.insert(1, WIDTH / 2, HEIGHT / 2, 10);
+
+        // the opposite corner is next to the object in the toroidal world
+        int count = grid.query(2, 2, 10);
+        assertTrue(isCandidate(grid, count, 0));
+        assertFalse(isCandidate(grid, count, 1));
+    }
+
+    @Test
+    public void largeRadiusVisitsEveryCellOnce() {
+        SpatialGrid grid = new SpatialGrid(WIDTH, HEIGHT, CELL_SIZE);
+        for (int i = 0; i < 20; i++) {
+            grid.insert(i, i * 40, i * 30, 5);
+        }
+
+        int count = grid.query(0, 0, WIDTH);
+        assertEquals(20, count);
+        for (int k = 0; k < count; k++) {
+            assertEquals(k, grid.getCandidate(k));
+        }
+    }
+
+    @Test
+    public void rebuildDropsRemovedEntities() {
+        Random random = new Random(3);
+        EntityStore store = randomStore(random, 100);
+        SpatialGrid grid = new SpatialGrid(WIDTH, HEIGHT, CELL_SIZE);
+        grid.build(store);
+        while (store.size() > 10) {
+            store.remove(store.size() - 1);
+        }
+        grid.build(store);
+
+        int count = grid.query(0, 0, WIDTH);
+        assertEquals(10, count);
+    }
+
+}